@@ -0,0 +1,136 @@
+package com.project.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.project.model.CacheStatistics;
+import com.project.model.Pet;
+import com.project.repository.PetChangeListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the UTF-8 JSON of recently read pets so hot reads skip Jackson. Entries are keyed by pet
+ * id and remember the version they were encoded from; a lookup only hits when the stored pet still
+ * has that version, so an entry written by a reader that lost a race with an update is never
+ * served. Writes evict the pet's entry through {@link PetChangeListener}. Caffeine bounds the
+ * total size of the encoded bytes and picks victims with W-TinyLFU.
+ */
+public class PetJsonCache implements PetChangeListener {
+    // rough heap cost of an entry beyond its bytes: key, entry object, array header and cache node
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final ObjectWriter writer;
+    private final Cache<Long, CachedJson> cache;
+    private final long maxWeightBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PetJsonCache(ObjectMapper objectMapper, long maxWeightBytes) {
+        this.writer = objectMapper.writerFor(Pet.class);
+        this.maxWeightBytes = maxWeightBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .<Long, CachedJson>weigher((id, json) -> json.bytes.length + ENTRY_OVERHEAD_BYTES)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the pet's JSON; the array is shared and must not be modified
+     */
+    public byte[] json(Pet pet) {
+        Long version = pet.getVersion();
+        if(version == null) return encode(pet);
+        CachedJson cached = cache.getIfPresent(pet.getId());
+        if(cached != null && cached.version == version) {
+            hits.increment();
+            return cached.bytes;
+        }
+        misses.increment();
+        byte[] bytes = encode(pet);
+        cache.put(pet.getId(), new CachedJson(version, bytes));
+        return bytes;
+    }
+
+    /**
+     * Writes the pets as one JSON array by joining their cached encodings.
+     */
+    public void writeArray(List<Pet> pets, OutputStream out) throws IOException {
+        out.write('[');
+        for(int i = 0; i < pets.size(); i++) {
+            if(i > 0) out.write(',');
+            out.write(json(pets.get(i)));
+        }
+        out.write(']');
+    }
+
+    @Override
+    public void saved(Pet pet) {
+        cache.invalidate(pet.getId());
+    }
+
+    @Override
+    public void deleted(long id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Statistics for the cache endpoint; settles pending evictions first so the sizes are current,
+     * which makes it too costly for a metrics scrape.
+     */
+    public CacheStatistics statistics() {
+        cache.cleanUp();
+        return CacheStatistics.builder()
+                .hits(hits())
+                .misses(misses())
+                .evictions(evictions())
+                .entries(cache.estimatedSize())
+                .weightBytes(weightBytes())
+                .maxWeightBytes(maxWeightBytes)
+                .build();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * @return the weight of the cached entries, which may briefly include entries awaiting eviction
+     */
+    public long weightBytes() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private byte[] encode(Pet pet) {
+        try {
+            return writer.writeValueAsBytes(pet);
+        } catch(JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class CachedJson {
+        private final long version;
+        private final byte[] bytes;
+
+        CachedJson(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+}
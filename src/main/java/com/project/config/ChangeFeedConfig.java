@@ -0,0 +1,23 @@
+package com.project.config;
+
+import com.project.repository.PetChangeLog;
+import com.project.repository.PetRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ChangeFeedConfig {
+
+    /**
+     * Method to create the log of recent pet changes and subscribe it to pet writes
+     *
+     * @return PetChangeLog
+     */
+
+    @Bean
+    public PetChangeLog petChangeLog(PetStoreProperties properties, PetRepository petRepository) {
+        PetChangeLog petChangeLog = new PetChangeLog(properties.getChanges().getCapacity());
+        petRepository.addChangeListener(petChangeLog);
+        return petChangeLog;
+    }
+}
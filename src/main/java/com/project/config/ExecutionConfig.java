@@ -0,0 +1,87 @@
+package com.project.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in virtual-thread execution ({@code petstore.execution.mode=virtual}). Tomcat hands every
+ * request to a new virtual thread instead of its bounded worker pool, and streamed responses run
+ * on virtual threads too, so requests blocked on the journal or on slow clients no longer hold a
+ * scarce worker. Blocking in the code base goes through {@code java.util.concurrent} locks, which
+ * unmount a waiting virtual thread rather than pinning its carrier.
+ * <p>
+ * The application is compiled for Java 17, so the executor is looked up reflectively and startup
+ * fails with a clear message on a runtime without virtual threads. On Java 17 the non-blocking
+ * alternative is {@code petstore.execution.mode=reactive}, see {@link ReactiveExecutionConfig}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "petstore.execution", name = "mode", havingValue = "virtual")
+public class ExecutionConfig {
+    static final String JAVA_21_REQUIRED = "petstore.execution.mode=virtual needs Java 21 or newer, but this is Java ";
+
+    /**
+     * Method to create the executor that starts a virtual thread per task; closing it on shutdown
+     * waits for the requests still running on it
+     *
+     * @return ExecutorService
+     */
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService virtualThreadExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Method to run Tomcat's request processing on virtual threads
+     *
+     * @return TomcatProtocolHandlerCustomizer
+     */
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> {
+            protocolHandler.setExecutor(virtualThreadExecutor);
+            log.info("Tomcat requests run on virtual threads");
+        };
+    }
+
+    /**
+     * Method to run MVC async work, such as streamed responses, on virtual threads
+     *
+     * @return WebMvcConfigurer
+     */
+
+    @Bean
+    public WebMvcConfigurer virtualThreadAsyncSupport(ExecutorService virtualThreadExecutor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+            }
+        };
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch(NoSuchMethodException e) {
+            throw new IllegalStateException(JAVA_21_REQUIRED + Runtime.version().feature(), e);
+        } catch(Throwable e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+}
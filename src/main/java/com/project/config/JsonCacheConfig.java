@@ -0,0 +1,24 @@
+package com.project.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.cache.PetJsonCache;
+import com.project.repository.PetRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JsonCacheConfig {
+
+    /**
+     * Method to create the cache of encoded pet JSON and subscribe it to pet writes
+     *
+     * @return PetJsonCache
+     */
+
+    @Bean
+    public PetJsonCache petJsonCache(PetStoreProperties properties, ObjectMapper objectMapper, PetRepository petRepository) {
+        PetJsonCache petJsonCache = new PetJsonCache(objectMapper, properties.getJsonCache().getMaxSize().toBytes());
+        petRepository.addChangeListener(petJsonCache);
+        return petJsonCache;
+    }
+}
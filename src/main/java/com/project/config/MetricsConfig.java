@@ -0,0 +1,63 @@
+package com.project.config;
+
+import com.project.cache.PetJsonCache;
+import com.project.metrics.EndpointMetricsInterceptor;
+import com.project.metrics.MicrometerPetRepositoryMetrics;
+import com.project.metrics.PetStoreMeterBinder;
+import com.project.repository.PetRepository;
+import com.project.repository.PetRepositoryMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    private final ObjectProvider<EndpointMetricsInterceptor> endpointMetricsInterceptor;
+
+    public MetricsConfig(ObjectProvider<EndpointMetricsInterceptor> endpointMetricsInterceptor) {
+        this.endpointMetricsInterceptor = endpointMetricsInterceptor;
+    }
+
+    /**
+     * Method to publish pet repository operation timings and scan counts
+     *
+     * @return PetRepositoryMetrics
+     */
+
+    @Bean
+    public PetRepositoryMetrics petRepositoryMetrics(MeterRegistry meterRegistry, PetRepository petRepository) {
+        PetRepositoryMetrics petRepositoryMetrics = new MicrometerPetRepositoryMetrics(meterRegistry);
+        petRepository.setMetrics(petRepositoryMetrics);
+        return petRepositoryMetrics;
+    }
+
+    /**
+     * Method to publish store, index and JSON cache sizes
+     *
+     * @return PetStoreMeterBinder
+     */
+
+    @Bean
+    public PetStoreMeterBinder petStoreMeterBinder(PetRepository petRepository, PetJsonCache petJsonCache) {
+        return new PetStoreMeterBinder(petRepository, petJsonCache);
+    }
+
+    /**
+     * Method to time controller methods
+     *
+     * @return EndpointMetricsInterceptor
+     */
+
+    @Bean
+    public EndpointMetricsInterceptor endpointMetricsInterceptor(MeterRegistry meterRegistry) {
+        return new EndpointMetricsInterceptor(meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        endpointMetricsInterceptor.ifAvailable(registry::addInterceptor);
+    }
+}
@@ -0,0 +1,25 @@
+package com.project.config;
+
+import com.project.repository.persistence.FilePetJournal;
+import com.project.repository.persistence.PetJournal;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PetStoreProperties.class)
+public class PersistenceConfig {
+
+    /**
+     * Method to choose between the file journal and in-memory only storage
+     *
+     * @return PetJournal
+     */
+
+    @Bean(destroyMethod = "close")
+    public PetJournal petJournal(PetStoreProperties properties) {
+        PetStoreProperties.Persistence persistence = properties.getPersistence();
+        if(!persistence.isEnabled()) return PetJournal.NONE;
+        return new FilePetJournal(persistence.getDirectory(), persistence.getFlushInterval(), persistence.getSnapshotInterval(), persistence.isSyncWrites());
+    }
+}
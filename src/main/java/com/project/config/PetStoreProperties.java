@@ -0,0 +1,177 @@
+package com.project.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "petstore")
+public class PetStoreProperties {
+    private final Storage storage = new Storage();
+    private final Persistence persistence = new Persistence();
+    private final JsonCache jsonCache = new JsonCache();
+    private final Execution execution = new Execution();
+    private final Images images = new Images();
+    private final Search search = new Search();
+    private final Changes changes = new Changes();
+    private final ApiDocs apiDocs = new ApiDocs();
+    private final Startup startup = new Startup();
+
+    public enum StorageType {
+        HEAP, MAPPED
+    }
+
+    public enum ExecutionMode {
+        PLATFORM, VIRTUAL, REACTIVE
+    }
+
+    public enum ApiDocsMode {
+        SCAN, STATIC
+    }
+
+    @Data
+    public static class Storage {
+        /**
+         * Where pet records live: as objects on the heap, or as binary records in a memory-mapped file.
+         */
+        private StorageType type = StorageType.HEAP;
+
+        /**
+         * Working file of the mapped store; it is recreated on every start.
+         */
+        private Path mappedFile = Path.of("data/pets.mapped");
+
+        /**
+         * Size of each mapped region of the file; must be a power of two.
+         */
+        private DataSize mappedChunkSize = DataSize.ofMegabytes(256);
+
+        /**
+         * Number of pets the mapped store's off-heap id index is sized for up front.
+         */
+        private int expectedPets = 1024;
+
+        /**
+         * Share of the mapped file taken by replaced and deleted records at which the live records
+         * are copied into a new file; compaction also waits for at least one chunk of garbage.
+         */
+        private double mappedCompactionThreshold = 0.5;
+    }
+
+    @Data
+    public static class Persistence {
+        /**
+         * Whether pet writes are journaled to disk and recovered on startup.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory holding the write-ahead log segments and snapshots.
+         */
+        private Path directory = Path.of("data");
+
+        /**
+         * How often buffered log records are written and fsynced as one group commit.
+         */
+        private Duration flushInterval = Duration.ofMillis(10);
+
+        /**
+         * Whether a write waits for the group commit covering it before returning.
+         */
+        private boolean syncWrites = true;
+
+        /**
+         * How often a snapshot is taken and the log it covers is truncated; zero disables snapshots.
+         */
+        private Duration snapshotInterval = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class JsonCache {
+        /**
+         * Upper bound on the encoded JSON kept for hot pets; zero disables the cache.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+    }
+
+    @Data
+    public static class Execution {
+        /**
+         * Which threads run request handlers: Tomcat's bounded worker pool, a new virtual thread
+         * per request, or, in reactive mode, the worker pool plus a non-blocking WebFlux server on
+         * the reactive port for single-pet reads and writes. Virtual threads need a Java 21 or newer
+         * runtime.
+         */
+        private ExecutionMode mode = ExecutionMode.PLATFORM;
+
+        /**
+         * Port of the WebFlux server in reactive mode; zero picks a free one.
+         */
+        private int reactivePort = 8081;
+    }
+
+    @Data
+    public static class Search {
+        /**
+         * Workers of the fork-join pool that scans the store for searches the indexes cannot answer;
+         * zero uses one per available processor.
+         */
+        private int parallelism = 0;
+    }
+
+    @Data
+    public static class Changes {
+        /**
+         * Recent changes kept for clients of the change feed; a client further behind gets a
+         * snapshot instead. Rounded up to a power of two.
+         */
+        private int capacity = 65536;
+
+        /**
+         * Longest a change feed request is held open: a long poll waiting for changes, or an event
+         * stream before it ends and the client reconnects. Keep it below the async request timeout
+         * (spring.mvc.async.request-timeout, 30s on Tomcat by default).
+         */
+        private Duration maxWait = Duration.ofSeconds(25);
+
+        /**
+         * Event streams open at the same time. Each one has a thread of its own, apart from the
+         * request threads; a client beyond the limit gets a 503 and reconnects later.
+         */
+        private int maxStreams = 256;
+    }
+
+    @Data
+    public static class ApiDocs {
+        /**
+         * Whether springfox scans the controllers at startup, or the swagger.json generated at build
+         * time is served instead.
+         */
+        private ApiDocsMode mode = ApiDocsMode.SCAN;
+    }
+
+    @Data
+    public static class Startup {
+        /**
+         * Sends a few requests to the started application and exits, so a run with
+         * -XX:ArchiveClassesAtExit records the classes of startup and of the first requests.
+         */
+        private boolean trainingRun = false;
+    }
+
+    @Data
+    public static class Images {
+        /**
+         * Directory of the content-addressed image files.
+         */
+        private Path directory = Path.of("data/images");
+
+        /**
+         * Largest image accepted by an upload.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+    }
+}
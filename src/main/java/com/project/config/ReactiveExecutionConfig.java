@@ -0,0 +1,55 @@
+package com.project.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.cache.PetJsonCache;
+import com.project.controller.ReactivePetHandler;
+import com.project.service.PetService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import javax.validation.Validator;
+
+/**
+ * Opt-in non-blocking execution ({@code petstore.execution.mode=reactive}) that works on Java 17.
+ * Next to the servlet application, a WebFlux server on Reactor Netty answers the single-pet reads
+ * and writes on {@code petstore.execution.reactive-port} from a few event-loop threads, and journaled
+ * writes wait for their group commit without holding any of them. Everything else, and the same
+ * paths on the main port, stays on Tomcat.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "petstore.execution", name = "mode", havingValue = "reactive")
+public class ReactiveExecutionConfig {
+
+    /**
+     * Method to create the WebFlux routes for single pets
+     *
+     * @return ReactivePetHandler
+     */
+
+    @Bean
+    public ReactivePetHandler reactivePetHandler(PetService petService, PetJsonCache petJsonCache, ObjectMapper objectMapper, Validator validator) throws JsonProcessingException {
+        return new ReactivePetHandler(petService, petJsonCache, objectMapper, validator);
+    }
+
+    /**
+     * Method to start the Reactor Netty server for the WebFlux routes; it stops with the context
+     *
+     * @return WebServer
+     */
+
+    @Bean(destroyMethod = "stop")
+    public WebServer reactivePetServer(PetStoreProperties properties, ReactivePetHandler reactivePetHandler) {
+        WebServer server = new NettyReactiveWebServerFactory(properties.getExecution().getReactivePort())
+                .getWebServer(RouterFunctions.toHttpHandler(reactivePetHandler.routes()));
+        server.start();
+        log.info("WebFlux pet routes listening on port {}", server.getPort());
+        return server;
+    }
+}
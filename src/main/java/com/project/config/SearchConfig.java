@@ -0,0 +1,24 @@
+package com.project.config;
+
+import com.project.repository.PetRepository;
+import com.project.repository.query.PetQueryEngine;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchConfig {
+
+    /**
+     * Method to create the pet search engine with its own fork-join pool for parallel store scans
+     *
+     * @return PetQueryEngine
+     */
+
+    @Bean(destroyMethod = "close")
+    public PetQueryEngine petQueryEngine(PetStoreProperties properties, PetRepository petRepository) {
+        int parallelism = properties.getSearch().getParallelism();
+        PetQueryEngine petQueryEngine = new PetQueryEngine(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        petRepository.setQueryEngine(petQueryEngine);
+        return petQueryEngine;
+    }
+}
@@ -0,0 +1,70 @@
+package com.project.config;
+
+import com.project.cache.PetJsonCache;
+import com.project.repository.PetChangeLog;
+import com.project.repository.PetRepository;
+import com.project.repository.PetRepositoryMetrics;
+import com.project.repository.query.PetQueryEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+@Slf4j
+@Configuration
+public class StartupConfig {
+    private static final String[] TRAINING_REQUESTS = {"/pet/1", "/pet", "/pet/findByStatus?status=available", "/pet/404404"};
+
+    /**
+     * Method to keep the beans that hook into the pet repository eager under
+     * spring.main.lazy-initialization: the repository must load the journal before the first
+     * request, and the others attach to it as it is created, so nothing would ever ask for them
+     *
+     * @return LazyInitializationExcludeFilter
+     */
+
+    @Bean
+    public static LazyInitializationExcludeFilter petRepositoryHooksExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(PetRepository.class, PetRepositoryMetrics.class,
+                PetQueryEngine.class, PetChangeLog.class, PetJsonCache.class);
+    }
+
+    /**
+     * Method to exercise the started application and exit, for recording an AppCDS archive
+     *
+     * @return ApplicationListener
+     */
+
+    @Bean
+    @ConditionalOnProperty(prefix = "petstore.startup", name = "training-run", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> trainingRun() {
+        return event -> {
+            int port = ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+            HttpClient client = HttpClient.newHttpClient();
+            for(String path : TRAINING_REQUESTS) {
+                try {
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(), HttpResponse.BodyHandlers.discarding());
+                    log.info("Training request {} answered {}", path, response.statusCode());
+                } catch(IOException e) {
+                    log.warn("Training request {} failed", path, e);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            log.info("Training run finished, exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+}
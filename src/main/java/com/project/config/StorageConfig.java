@@ -0,0 +1,39 @@
+package com.project.config;
+
+import com.project.repository.blob.BlobStore;
+import com.project.repository.store.HeapPetStore;
+import com.project.repository.store.MappedPetStore;
+import com.project.repository.store.PetStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StorageConfig {
+
+    /**
+     * Method to choose the backend that holds the pet records
+     *
+     * @return PetStore
+     */
+
+    @Bean(destroyMethod = "close")
+    public PetStore petStore(PetStoreProperties properties) {
+        PetStoreProperties.Storage storage = properties.getStorage();
+        if(storage.getType() == PetStoreProperties.StorageType.MAPPED) {
+            return new MappedPetStore(storage.getMappedFile(), storage.getMappedChunkSize().toBytes(), storage.getExpectedPets(), storage.getMappedCompactionThreshold());
+        }
+        return new HeapPetStore();
+    }
+
+    /**
+     * Method to create the content-addressed store for pet images
+     *
+     * @return BlobStore
+     */
+
+    @Bean
+    public BlobStore blobStore(PetStoreProperties properties) {
+        PetStoreProperties.Images images = properties.getImages();
+        return new BlobStore(images.getDirectory(), images.getMaxSize().toBytes());
+    }
+}
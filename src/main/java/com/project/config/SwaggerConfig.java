@@ -1,18 +1,32 @@
 package com.project.config;
 
+import com.fasterxml.classmate.TypeResolver;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.schema.AlternateTypeRules;
+import springfox.documentation.schema.WildcardType;
 import springfox.documentation.service.ApiInfo;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Generates the API documentation by scanning the controllers when the application starts. With
+ * {@code petstore.api-docs.mode=static} springfox is not loaded at all and
+ * {@link com.project.controller.ApiDocsController} serves the copy generated at build time.
+ */
 @Configuration
+@ConditionalOnProperty(prefix = "petstore.api-docs", name = "mode", havingValue = "scan", matchIfMissing = true)
 @EnableSwagger2
 public class SwaggerConfig {
+    private static final TypeResolver TYPE_RESOLVER = new TypeResolver();
 
     /**
      * Method to set paths to be included through swagger
@@ -27,7 +41,11 @@ public class SwaggerConfig {
                 .select()
                 .paths(PathSelectors.any())
                 .apis(RequestHandlerSelectors.basePackage("com.project"))
-                .build();
+                .build()
+                // long polls answer with a CompletableFuture<ResponseEntity<T>>; document the T
+                .alternateTypeRules(AlternateTypeRules.newRule(
+                        TYPE_RESOLVER.resolve(CompletableFuture.class, TYPE_RESOLVER.resolve(ResponseEntity.class, WildcardType.class)),
+                        TYPE_RESOLVER.resolve(WildcardType.class)));
     }
 
     /**
@@ -0,0 +1,65 @@
+package com.project.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves the documents springfox would generate, from the copies recorded at build time in
+ * {@code api-docs/} on the classpath, so the docs and the swagger-ui page work without scanning
+ * the controllers at startup. The build fails when the copies no longer match what springfox
+ * generates.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "petstore.api-docs", name = "mode", havingValue = "static")
+public class ApiDocsController {
+    static final String DIRECTORY = "api-docs/";
+    static final Map<String, String> DOCUMENTS = Map.of(
+            "/v2/api-docs", "swagger.json",
+            "/swagger-resources", "swagger-resources.json",
+            "/swagger-resources/configuration/ui", "ui-configuration.json",
+            "/swagger-resources/configuration/security", "security-configuration.json");
+
+    private final Map<String, byte[]> loaded = new ConcurrentHashMap<>();
+
+    @GetMapping(value = "/v2/api-docs", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getApiDocs() {
+        return document("/v2/api-docs");
+    }
+
+    @GetMapping(value = "/swagger-resources", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getSwaggerResources() {
+        return document("/swagger-resources");
+    }
+
+    @GetMapping(value = "/swagger-resources/configuration/ui", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getUiConfiguration() {
+        return document("/swagger-resources/configuration/ui");
+    }
+
+    @GetMapping(value = "/swagger-resources/configuration/security", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getSecurityConfiguration() {
+        return document("/swagger-resources/configuration/security");
+    }
+
+    private ResponseEntity<byte[]> document(String path) {
+        byte[] body = loaded.computeIfAbsent(path, key -> {
+            try(InputStream in = new ClassPathResource(DIRECTORY + DOCUMENTS.get(key)).getInputStream()) {
+                return in.readAllBytes();
+            } catch(IOException e) {
+                throw new UncheckedIOException("API documentation " + DOCUMENTS.get(key) + " is missing from the build", e);
+            }
+        });
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(body);
+    }
+}
@@ -1,7 +1,10 @@
 package com.project.controller;
 
 import com.project.exception.InvalidDataException;
+import com.project.exception.PreconditionFailedException;
 import com.project.exception.ResourceNotFoundException;
+import com.project.exception.ServiceUnavailableException;
+import com.project.model.ApiResponse;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
@@ -11,23 +14,39 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import javax.servlet.http.HttpServletRequest;
-
 @RestControllerAdvice
 @Order(Ordered.HIGHEST_PRECEDENCE)
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(ResourceNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
-    public ResponseEntity<String> handleResourceNotFoundException(HttpServletRequest request, Exception ex) {
-        request.getHeader("Resource Not Found");
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).body("status - resource not found: " + ex.getMessage());
+    public ResponseEntity<ApiResponse> handleResourceNotFoundException(ResourceNotFoundException ex) {
+        return error(HttpStatus.NOT_FOUND, ex);
     }
 
     @ExceptionHandler(InvalidDataException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ResponseEntity<String> handleInvalidDataException(HttpServletRequest request, Exception ex) {
-        request.getHeader("Invalid Data");
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.APPLICATION_JSON).body("status - invalid passed data: " + ex.getMessage());
+    public ResponseEntity<ApiResponse> handleInvalidDataException(InvalidDataException ex) {
+        return error(HttpStatus.BAD_REQUEST, ex);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ResponseEntity<ApiResponse> handlePreconditionFailedException(PreconditionFailedException ex) {
+        return error(HttpStatus.PRECONDITION_FAILED, ex);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ApiResponse> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        return error(HttpStatus.SERVICE_UNAVAILABLE, ex);
+    }
+
+    static ApiResponse body(HttpStatus status, String message) {
+        return ApiResponse.builder().code(status.value()).type(status.getReasonPhrase()).message(message).build();
+    }
+
+    private static ResponseEntity<ApiResponse> error(HttpStatus status, Exception ex) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body(status, ex.getMessage()));
     }
 }
@@ -0,0 +1,117 @@
+package com.project.controller;
+
+import com.project.exception.ResourceNotFoundException;
+import com.project.service.PetImageService;
+import io.swagger.annotations.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves stored images by content hash. The file is handed to Tomcat's sendfile support when the
+ * connector offers it, so the kernel copies it to the socket; otherwise it goes through
+ * {@link FileChannel#transferTo}. Single byte ranges are honoured. Images never change under a
+ * hash, so the hash is a strong ETag and responses may be cached for good.
+ */
+@Api(value = "Image Rest Controller", description = "Pet images by content hash", tags = "/image")
+@RestController
+@RequestMapping(ImageController.PATH)
+@RequiredArgsConstructor
+public class ImageController {
+    static final String PATH = "/image";
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final int SNIFF_BYTES = 12;
+
+    private final PetImageService petImageService;
+
+    @ApiOperation(value = "Get an image", notes = "Supports single byte ranges and If-None-Match")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 206, message = "Requested range of the image"),
+            @ApiResponse(code = 304, message = "Image unchanged since the given ETag"),
+            @ApiResponse(code = 404, message = "No image with given hash found"),
+            @ApiResponse(code = 416, message = "Requested range is outside the image"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping("/{hash}")
+    public void getImage(@ApiParam(value = "SHA-256 of the image, as returned by the upload", required = true) @PathVariable String hash,
+                         @RequestHeader HttpHeaders headers, WebRequest webRequest,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = petImageService.findImage(hash).orElseThrow(() -> new ResourceNotFoundException("Image " + hash + " not found"));
+        if(webRequest.checkNotModified("\"" + hash + "\"")) return;
+        try(FileChannel channel = FileChannel.open(path)) {
+            long length = channel.size();
+            response.setContentType(contentType(channel));
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable");
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            long start = 0;
+            long end = length - 1;
+            List<HttpRange> ranges = ranges(headers);
+            if(ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                if(start >= length || end < start) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+            long count = end - start + 1;
+            response.setContentLengthLong(count);
+            if(count == 0) return;
+            if(Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+                request.setAttribute(SENDFILE_FILENAME, path.toRealPath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, start + count);
+                return;
+            }
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            for(long position = start; position <= end; ) position += channel.transferTo(position, end + 1 - position, target);
+            out.flush();
+        }
+    }
+
+    // several ranges would need a multipart/byteranges body; answering with the whole image is allowed instead
+    private static List<HttpRange> ranges(HttpHeaders headers) {
+        try {
+            return headers.getRange();
+        } catch(IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    // recognizes the usual image formats from their signature, since the upload's content type is not kept
+    private static String contentType(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(SNIFF_BYTES);
+        int read = Math.max(0, channel.read(head, 0));
+        byte[] bytes = head.array();
+        if(read >= 8 && bytes[0] == (byte) 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') return MediaType.IMAGE_PNG_VALUE;
+        if(read >= 3 && bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xD8 && bytes[2] == (byte) 0xFF) return MediaType.IMAGE_JPEG_VALUE;
+        if(read >= 6 && new String(bytes, 0, 4, StandardCharsets.US_ASCII).equals("GIF8")) return MediaType.IMAGE_GIF_VALUE;
+        if(read >= 12 && new String(bytes, 0, 4, StandardCharsets.US_ASCII).equals("RIFF") && new String(bytes, 8, 4, StandardCharsets.US_ASCII).equals("WEBP")) return "image/webp";
+        return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+}
@@ -1,54 +1,150 @@
 package com.project.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.project.cache.PetJsonCache;
 import com.project.exception.InvalidDataException;
+import com.project.exception.PreconditionFailedException;
 import com.project.exception.ResourceNotFoundException;
+import com.project.model.BatchItemResult;
+import com.project.model.CacheStatistics;
+import com.project.model.ImportSummary;
 import com.project.model.Pet;
+import com.project.model.PetChangeBatch;
 import com.project.model.Status;
+import com.project.model.StoredImage;
+import com.project.model.TransferProgress;
+import com.project.repository.query.PetQuery;
+import com.project.service.PetChangeFeedService;
+import com.project.service.PetImageService;
 import com.project.service.PetService;
+import com.project.service.PetTransferService;
 import io.swagger.annotations.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
 import javax.validation.Valid;
-import java.util.Arrays;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Api(value = "Pet Rest Controller", description = "Everything about your pets", tags = "/pet")
 @RestController
-@RequestMapping(value = "/pet", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(value = "/pet", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, PetController.APPLICATION_SMILE_VALUE})
 @RequiredArgsConstructor
 public class PetController {
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String GZIP = "gzip";
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    private static final int TRANSFER_BUFFER_BYTES = 64 * 1024;
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    static final String PET_NOT_FOUND_MESSAGE = "Pet not found";
+
     private final PetService petService;
+    private final PetTransferService petTransferService;
+    private final PetChangeFeedService petChangeFeedService;
+    private final PetImageService petImageService;
+    private final PetJsonCache petJsonCache;
+    private final ObjectMapper objectMapper;
+    private final MappingJackson2CborHttpMessageConverter cborConverter;
+    private final MappingJackson2SmileHttpMessageConverter smileConverter;
+    // the ApiResponse body GlobalExceptionHandler writes for a 404, serialized once because lookups of missing pets are common
+    private byte[] petNotFound;
+
+    @PostConstruct
+    void serializeErrorBodies() throws JsonProcessingException {
+        petNotFound = objectMapper.writeValueAsBytes(GlobalExceptionHandler.body(HttpStatus.NOT_FOUND, PET_NOT_FOUND_MESSAGE));
+    }
+
+    @ApiOperation(value = "Get all pets", notes = "Streams every pet as a JSON, CBOR or Smile array, or as NDJSON when requested through the Accept header", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<StreamingResponseBody> getAllPets(@RequestHeader HttpHeaders headers) {
+        boolean ndjson = headers.getAccept().contains(MediaType.APPLICATION_NDJSON);
+        PayloadFormat format = ndjson ? PayloadFormat.JSON : PayloadFormat.negotiate(headers.getFirst(HttpHeaders.ACCEPT));
+        ObjectWriter writer = writer(format).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = outputStream -> {
+            try(SequenceWriter sequenceWriter = ndjson ? writer.withRootValueSeparator("\n").writeValues(outputStream) : writer.writeValuesAsArray(outputStream)) {
+                petService.forEach(pet -> writeStreamed(sequenceWriter, pet));
+            }
+        };
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).contentType(ndjson ? MediaType.APPLICATION_NDJSON : format.mediaType).body(body);
+    }
 
-    @ApiOperation(value = "Get all pets", response = List.class)
+    @ApiOperation(value = "Get a page of pets", notes = "Returns up to limit pets ordered by id, starting after the given id; X-Next-Cursor holds the id to continue after", response = List.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful operation"),
-            @ApiResponse(code = 404, message = "No pets found"),
+            @ApiResponse(code = 400, message = "Invalid page parameters"),
             @ApiResponse(code = 500, message = "Internal Server Error")})
-    @GetMapping
-    public ResponseEntity<List<Pet>> getAllPets() {
-        if (petService.findAll() == null) throw new ResourceNotFoundException("No pets found");
-       return ResponseEntity.ok(petService.findAll());
+    @GetMapping(params = "limit")
+    public ResponseEntity<byte[]> getPetsPage(
+            @ApiParam(value = "Maximum number of pets to return", required = true) @RequestParam int limit,
+            @ApiParam(value = "Id of the last pet of the previous page") @RequestParam(required = false) Long after,
+            @ApiParam(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if(limit < 1 || limit > MAX_PAGE_SIZE) throw new InvalidDataException("Limit " + limit + " is invalid");
+        List<Pet> page = petService.findPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.size() == limit) response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+        return pets(response, page, accept);
     }
 
-    @ApiOperation(value = "Find pet by ID", notes = "Returns a single pet", response = Pet.class)
+    @ApiOperation(value = "Find pet by ID", notes = "Returns a single pet with its version and payload format as a strong ETag; an If-None-Match naming that ETag gets a 304 without a body", response = Pet.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 304, message = "Pet unchanged since the given ETag"),
             @ApiResponse(code = 400, message = "Invalid ID supplied"),
             @ApiResponse(code = 404, message = "No pet with given id found"),
             @ApiResponse(code = 500, message = "Internal Server Error")})
     @GetMapping("/{petId}")
-    public ResponseEntity<Pet> getPetById(@ApiParam(value = "ID of pet to return", required = true) @PathVariable("petId") Long id) {
+    public ResponseEntity<byte[]> getPetById(@ApiParam(value = "ID of pet to return", required = true) @PathVariable("petId") Long id, WebRequest request) {
         if(id < 0) throw new InvalidDataException("Id " + id + " is invalid");
-        if(petService.findById(id) == null) throw new ResourceNotFoundException("No pet with id " + id + " was found");
-        return ResponseEntity.ok(petService.findById(id));
+        Optional<Pet> found = petService.findById(id);
+        if(found.isEmpty()) return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).body(petNotFound);
+        Pet pet = found.get();
+        PayloadFormat format = PayloadFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        String eTag = eTag(pet, format);
+        if(request.checkNotModified(eTag)) return null;
+        byte[] body = format == PayloadFormat.JSON ? petJsonCache.json(pet) : encode(format, pet);
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).contentType(format.mediaType).body(body);
     }
 
     @Validated
@@ -58,7 +154,7 @@ public class PetController {
             @ApiResponse(code = 400, message = "Bad request (invalid input)"),
             @ApiResponse(code = 405, message = "Validation exception"),
             @ApiResponse(code = 500, message = "Internal Server Error")})
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<Pet> savePet(
             @ApiParam(value = "Pet object that needs to be added to the store", required = true) @Valid @RequestBody Pet pet,
             BindingResult bindingResult) {
@@ -67,37 +163,44 @@ public class PetController {
     }
 
     @Validated
-    @ApiOperation(value = "Update an existing pet by id", response = Pet.class)
+    @ApiOperation(value = "Update an existing pet by id", notes = "With If-Match the update only applies while the pet still has that ETag", response = Pet.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful operation"),
             @ApiResponse(code = 400, message = "Invalid ID supplied"),
             @ApiResponse(code = 404, message = "No pet with given id found"),
             @ApiResponse(code = 405, message = "Validation exception"),
+            @ApiResponse(code = 412, message = "Pet was changed since the If-Match ETag"),
             @ApiResponse(code = 500, message = "Internal Server Error")})
-    @PutMapping(value = "/{petId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PutMapping(value = "/{petId}", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<Pet> updatePetById(
             @ApiParam(value = "Pet object that needs to be added to the store", required = true) @Valid @RequestBody Pet pet,
             @ApiParam(value = "ID of pet to return", required = true) @PathVariable("petId") Long id,
-            BindingResult bindingResult) {
+            @ApiParam(value = "ETag the pet must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            BindingResult bindingResult, HttpServletRequest request) {
         if(bindingResult.hasErrors()) throw new InvalidDataException("Pet " + pet + " is invalid");
-        return ResponseEntity.ok(petService.updateById(pet, id));
+        Pet updated = petService.updateById(pet, id, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(updated, request.getHeader(HttpHeaders.ACCEPT))).varyBy(HttpHeaders.ACCEPT).body(updated);
     }
 
     @Validated
-    @ApiOperation(value = "Update an existing pet", response = Pet.class)
+    @ApiOperation(value = "Update an existing pet", notes = "With If-Match the update only applies while the pet still has that ETag", response = Pet.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful operation"),
             @ApiResponse(code = 400, message = "Invalid ID supplied"),
             @ApiResponse(code = 404, message = "No pet with given id found"),
             @ApiResponse(code = 405, message = "Validation exception"),
+            @ApiResponse(code = 412, message = "Pet was changed since the If-Match ETag"),
             @ApiResponse(code = 500, message = "Internal Server Error")})
-    @PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Pet> updatePet(@ApiParam(value = "Pet object that needs to be added to the store", required = true) @Valid @RequestBody Pet pet, BindingResult bindingResult) {
+    @PutMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Pet> updatePet(
+            @ApiParam(value = "Pet object that needs to be added to the store", required = true) @Valid @RequestBody Pet pet,
+            @ApiParam(value = "ETag the pet must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            BindingResult bindingResult, HttpServletRequest request) {
         if(bindingResult.hasErrors()) throw new InvalidDataException("The pet data provided is invalid!");
         Long id = pet.getId();
         if(id == null) throw new InvalidDataException("Id " + id + " is invalid");
-        if(petService.findById(pet.getId()) == null) throw new ResourceNotFoundException("No pet was found");
-        return ResponseEntity.ok(petService.save(pet));
+        Pet updated = petService.updateById(pet, id, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(updated, request.getHeader(HttpHeaders.ACCEPT))).varyBy(HttpHeaders.ACCEPT).body(updated);
     }
 
     @ApiOperation(value = "Deletes a pet", response = Map.class)
@@ -113,6 +216,130 @@ public class PetController {
         return ResponseEntity.status(HttpStatus.NO_CONTENT).body(Map.of("deleted", Boolean.TRUE));
     }
 
+    @ApiOperation(value = "Add many pets to the store", notes = "Pets without an id get one from a single reserved block; the result reports every item", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Batch processed, see the per-item codes"),
+            @ApiResponse(code = 400, message = "Batch is empty or too large"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<BatchItemResult>> savePets(
+            @ApiParam(value = "Pet objects that need to be added to the store", required = true) @RequestBody List<Pet> pets) {
+        validateBatchSize(pets.size());
+        return ResponseEntity.ok(petService.saveAll(pets));
+    }
+
+    @ApiOperation(value = "Update many existing pets", notes = "Every pet must carry the id of the pet it replaces; the result reports every item", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Batch processed, see the per-item codes"),
+            @ApiResponse(code = 400, message = "Batch is empty or too large"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @PutMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<BatchItemResult>> updatePets(
+            @ApiParam(value = "Pet objects that need to be updated", required = true) @RequestBody List<Pet> pets) {
+        validateBatchSize(pets.size());
+        return ResponseEntity.ok(petService.updateAll(pets));
+    }
+
+    @ApiOperation(value = "Deletes many pets", notes = "The result reports every item", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Batch processed, see the per-item codes"),
+            @ApiResponse(code = 400, message = "Batch is empty or too large"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @DeleteMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> deletePets(
+            @ApiParam(value = "IDs of the pets to delete", required = true) @RequestBody List<Long> ids) {
+        validateBatchSize(ids.size());
+        return ResponseEntity.ok(petService.deleteAll(ids));
+    }
+
+    @ApiOperation(value = "Export every pet", notes = "Streams the store as NDJSON, one pet per line, gzip-compressed when the client accepts it")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportPets(@RequestHeader HttpHeaders headers, HttpServletResponse response) throws IOException {
+        boolean gzip = acceptsGzip(headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        if(gzip) response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        OutputStream out = response.getOutputStream();
+        if(gzip) {
+            ExportGzipStream gzipOut = new ExportGzipStream(out);
+            try {
+                petTransferService.exportPets(gzipOut);
+                gzipOut.finish();
+            } finally {
+                gzipOut.releaseDeflater();
+            }
+        } else {
+            petTransferService.exportPets(out);
+        }
+        out.flush();
+    }
+
+    @ApiOperation(value = "Import pets", notes = "Reads NDJSON, one pet per line, optionally gzip-compressed (Content-Encoding: gzip); pets are stored in batches while the body is still arriving", response = ImportSummary.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Import finished, see the summary for rejected pets"),
+            @ApiResponse(code = 400, message = "The body is not valid NDJSON; pets before the bad record were imported"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportSummary> importPets(@RequestHeader HttpHeaders headers, HttpServletRequest request) throws IOException {
+        InputStream in = request.getInputStream();
+        if(GZIP.equalsIgnoreCase(headers.getFirst(HttpHeaders.CONTENT_ENCODING))) in = new GZIPInputStream(in, TRANSFER_BUFFER_BYTES);
+        ImportSummary summary = petTransferService.importPets(in);
+        return ResponseEntity.status(summary.getError() == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(summary);
+    }
+
+    @ApiOperation(value = "Stream pet changes", notes = "Server-sent events: saved and deleted events after the given sequence, each with its sequence as event id. "
+            + "Without a sequence, or when the recent changes no longer reach back to it, the stream starts with a snapshot of every pet. "
+            + "Streams end after a while and EventSource clients resume through Last-Event-ID")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "Invalid sequence"),
+            @ApiResponse(code = 500, message = "Internal Server Error"),
+            @ApiResponse(code = 503, message = "Too many open streams")})
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamChanges(
+            @ApiParam(value = "Sequence of the last change already seen") @RequestParam(required = false) Long after,
+            @ApiParam(hidden = true) @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        Long from = after;
+        if(lastEventId != null) {
+            try {
+                from = Long.parseLong(lastEventId.trim());
+            } catch(NumberFormatException e) {
+                throw new InvalidDataException("Last-Event-ID " + lastEventId + " is invalid");
+            }
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noCache())
+                .body(petChangeFeedService.stream(from));
+    }
+
+    @ApiOperation(value = "Poll pet changes", notes = "Long poll: returns the changes after the given sequence, waiting up to wait seconds for one when there are none yet. "
+            + "Without a sequence, or when the recent changes no longer reach back to it, returns every pet as a snapshot instead; "
+            + "pass the returned sequence as after on the next request", response = PetChangeBatch.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "Invalid wait"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<PetChangeBatch>> pollChanges(
+            @ApiParam(value = "Sequence of the last change already seen") @RequestParam(required = false) Long after,
+            @ApiParam(value = "Seconds to wait for a change; capped by the server") @RequestParam(defaultValue = "20") int wait) {
+        if(wait < 0) throw new InvalidDataException("Wait " + wait + " is invalid");
+        return petChangeFeedService.poll(after, Duration.ofSeconds(wait))
+                .thenApply(batch -> ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(batch));
+    }
+
+    @ApiOperation(value = "List running imports and exports", notes = "Reports how many pets and bytes every running transfer has processed so far", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping("/transfers")
+    public ResponseEntity<List<TransferProgress>> getActiveTransfers() {
+        return ResponseEntity.ok(petTransferService.activeTransfers());
+    }
+
     @ApiOperation(value = "Find pet by status", notes = "Multiple status values can be provided with comma separated strings", response = List.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful operation"),
@@ -120,19 +347,109 @@ public class PetController {
             @ApiResponse(code = 404, message = "No pet with given status found"),
             @ApiResponse(code = 500, message = "Internal Server Error")})
     @GetMapping("/findByStatus")
-    public ResponseEntity<List<Pet>> getPetsByStatus(
+    public ResponseEntity<byte[]> getPetsByStatus(
             @ApiParam(value = "Status to filter pets by", required = true, allowableValues = "available, pending, sold")
-            @Valid @RequestParam String status) {
+            @Valid @RequestParam String status,
+            @ApiParam(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         if(status == null) throw new ResourceNotFoundException("Invalid status value");
-        List<String> statusEnumList = List.of(Arrays.toString(Status.values()));
-        List<String> statusSplitOptions = Arrays.stream(status.split(", ")).toList();
-        statusSplitOptions.forEach(s -> {
-            if(!statusEnumList.contains(s)) {
-                throw new InvalidDataException("Invalid status value");
-            }
+        return pets(ResponseEntity.ok(), petService.getPetsByStatus(parseStatuses(status)), accept);
+    }
 
-        });
-        return ResponseEntity.ok(petService.getPetsByStatus(status));
+    @ApiOperation(value = "Find pets by tags", notes = "Returns the pets that have every given tag id", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "Invalid tag value"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping("/findByTags")
+    public ResponseEntity<byte[]> getPetsByTags(
+            @ApiParam(value = "Tag ids to filter pets by", required = true) @RequestParam("tags") List<Long> tagIds,
+            @ApiParam(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if(tagIds.isEmpty() || tagIds.contains(null)) throw new InvalidDataException("Invalid tag value");
+        return pets(ResponseEntity.ok(), petService.findByTags(tagIds), accept);
+    }
+
+    @ApiOperation(value = "Find pets by category", notes = "Returns the pets in the category with the given id", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "Invalid category id"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping("/findByCategory")
+    public ResponseEntity<byte[]> getPetsByCategory(
+            @ApiParam(value = "Category id to filter pets by", required = true) @RequestParam Long categoryId,
+            @ApiParam(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if(categoryId < 0) throw new InvalidDataException("Category id " + categoryId + " is invalid");
+        return pets(ResponseEntity.ok(), petService.findByCategory(categoryId), accept);
+    }
+
+    @ApiOperation(value = "Find pets by name prefix", notes = "Case-insensitive, for autocomplete: returns the first limit pets in name order", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "Empty prefix or invalid limit"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping("/findByName")
+    public ResponseEntity<byte[]> getPetsByName(
+            @ApiParam(value = "Start of the name", required = true) @RequestParam String prefix,
+            @ApiParam(value = "Maximum number of pets to return") @RequestParam(defaultValue = "10") int limit,
+            @ApiParam(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if(prefix.isEmpty()) throw new InvalidDataException("Prefix must not be empty");
+        if(limit < 1 || limit > MAX_PAGE_SIZE) throw new InvalidDataException("Limit " + limit + " is invalid");
+        return pets(ResponseEntity.ok(), petService.findByName(prefix, limit), accept);
+    }
+
+    @ApiOperation(value = "Search pets", notes = "Combines the given conditions with AND (match=all) or OR (match=any) and returns the first limit matches by id after the given id; X-Next-Cursor holds the id to continue after. "
+            + "Status, category, tag and name conditions are answered from the indexes (substrings need at least three characters); "
+            + "photo count conditions are checked by a parallel scan of the store", response = List.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "No condition or an invalid one given"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping("/search")
+    public ResponseEntity<byte[]> searchPets(
+            @ApiParam(value = "Case-insensitive name prefix") @RequestParam(required = false) String name,
+            @ApiParam(value = "Case-insensitive part of the name") @RequestParam(required = false) String nameContains,
+            @ApiParam(value = "Category id") @RequestParam(required = false) Long categoryId,
+            @ApiParam(value = "Tag ids the pet must all have") @RequestParam(value = "tags", required = false) List<Long> tagIds,
+            @ApiParam(value = "Comma separated statuses", allowableValues = "available, pending, sold") @RequestParam(required = false) String status,
+            @ApiParam(value = "Least number of photo URLs") @RequestParam(required = false) Integer minPhotos,
+            @ApiParam(value = "Most number of photo URLs") @RequestParam(required = false) Integer maxPhotos,
+            @ApiParam(value = "Whether all or any of the conditions must match", allowableValues = "all, any") @RequestParam(defaultValue = "all") String match,
+            @ApiParam(value = "Maximum number of pets to return") @RequestParam(defaultValue = "100") int limit,
+            @ApiParam(value = "Id of the last pet of the previous page") @RequestParam(required = false) Long after,
+            @ApiParam(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if(limit < 1 || limit > MAX_PAGE_SIZE) throw new InvalidDataException("Limit " + limit + " is invalid");
+        List<PetQuery> conditions = new ArrayList<>();
+        if(name != null) conditions.add(PetQuery.namePrefix(name));
+        if(nameContains != null) conditions.add(PetQuery.nameContains(nameContains));
+        if(categoryId != null) conditions.add(PetQuery.category(categoryId));
+        if(tagIds != null) {
+            if(tagIds.isEmpty() || tagIds.contains(null)) throw new InvalidDataException("Invalid tag value");
+            conditions.add(PetQuery.allTags(tagIds));
+        }
+        if(status != null) conditions.add(PetQuery.status(parseStatuses(status)));
+        if(minPhotos != null || maxPhotos != null) {
+            int min = minPhotos != null ? minPhotos : 0;
+            int max = maxPhotos != null ? maxPhotos : Integer.MAX_VALUE;
+            if(min < 0 || max < min) throw new InvalidDataException("Photo count range " + min + ".." + max + " is invalid");
+            conditions.add(PetQuery.photoCount(min, max));
+        }
+        if(conditions.isEmpty()) throw new InvalidDataException("Search needs at least one condition");
+        PetQuery query;
+        if(match.equals("all")) query = PetQuery.and(conditions);
+        else if(match.equals("any")) query = PetQuery.or(conditions);
+        else throw new InvalidDataException("Match " + match + " is invalid, use all or any");
+        List<Pet> page = petService.search(query, after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.size() == limit) response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+        return pets(response, page, accept);
+    }
+
+    @ApiOperation(value = "Statistics of the pet JSON cache", notes = "Hits, misses and evictions since startup, plus the current size of the cache", response = CacheStatistics.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GetMapping("/cacheStats")
+    public ResponseEntity<CacheStatistics> getCacheStatistics() {
+        return ResponseEntity.ok(petJsonCache.statistics());
     }
 
     @Validated
@@ -147,33 +464,226 @@ public class PetController {
             @ApiParam(value = "ID of pet that needs to be updated", required = true) @PathVariable("petId") Long id,
             @ApiParam(value = "Updated name of the pet") String name,
             @ApiParam(value = "Updated status of the pet") String status) {
-        Pet pet = petService.findById(id);
-        pet.setId(id);
-        pet.setName(name);
-        pet.setStatus(Status.valueOf(status));
-        petService.save(pet);
+        Status newStatus = status != null ? parseStatus(status) : null;
+        // only the given fields change, on top of the version stored when the write happens
+        petService.modifyById(id, pet -> pet.toBuilder()
+                .name(name != null ? name : pet.getName())
+                .status(newStatus != null ? newStatus : pet.getStatus())
+                .build(), null);
     }
 
-    @Validated
-    @ApiOperation(value = "Uploads an image", response = List.class)
+    @ApiOperation(value = "Partially update a pet", notes = "Applies a JSON merge patch (RFC 7396): given fields replace the stored ones, null removes them. With If-Match the patch only applies while the pet still has that ETag", response = Pet.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful operation"),
-            @ApiResponse(code = 404, message = "No pet with given status found"),
-            @ApiResponse(code = 405, message = "Invalid input"),
+            @ApiResponse(code = 400, message = "Invalid patch or the patched pet is invalid"),
+            @ApiResponse(code = 404, message = "No pet with given id found"),
+            @ApiResponse(code = 412, message = "Pet was changed since the If-Match ETag"),
             @ApiResponse(code = 500, message = "Internal Server Error")})
-    @PostMapping(value = "/{petId}/uploadImage", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public void uploadPetFile(
+    @PatchMapping(value = "/{petId}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Pet> patchPetById(
+            @ApiParam(value = "ID of pet to update", required = true) @PathVariable("petId") Long id,
+            @ApiParam(value = "Fields to change", required = true) @RequestBody JsonNode mergePatch,
+            @ApiParam(value = "ETag the pet must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            HttpServletRequest request) {
+        if(id < 0) throw new InvalidDataException("Id " + id + " is invalid");
+        Pet patched = petService.patchById(id, mergePatch, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(patched, request.getHeader(HttpHeaders.ACCEPT))).varyBy(HttpHeaders.ACCEPT).body(patched);
+    }
+
+    @ApiOperation(value = "Uploads an image", notes = "Streams the file part into the image store and adds its URL to the pet's photo URLs; identical images are stored once", response = StoredImage.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "Image is too large"),
+            @ApiResponse(code = 404, message = "No pet with given id found"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @PostMapping(value = "/{petId}/uploadImage", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StoredImage> uploadPetFile(
+            @ApiParam(value = "ID of pet that needs to be updated", required = true) @PathVariable("petId") Long id,
+            @ApiParam(value = "File to upload", required = true) @RequestPart("file") Part file) throws IOException {
+        try(InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(petImageService.addImage(id, in, imageUrlPrefix()));
+        }
+    }
+
+    @ApiOperation(value = "Uploads an image as the raw request body", notes = "Same as the multipart upload, for clients that can send the bytes directly", response = StoredImage.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "Image is too large"),
+            @ApiResponse(code = 404, message = "No pet with given id found"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @PostMapping(value = "/{petId}/uploadImage", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<StoredImage> uploadPetImageBody(
             @ApiParam(value = "ID of pet that needs to be updated", required = true) @PathVariable("petId") Long id,
-            @ApiParam(value = "Additional data to pass to server") String additionalMetadata,
-            @ApiParam(value = "File to upload") @Valid @RequestParam("file")MultipartFile file) {
-        Pet existingPet = petService.findById(id);
-        existingPet.getPhotoUrls().add(file.getOriginalFilename());
-        petService.save(existingPet);
+            HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(petImageService.addImage(id, request.getInputStream(), imageUrlPrefix()));
+    }
+
+    private static String imageUrlPrefix() {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path(ImageController.PATH).toUriString() + "/";
+    }
+
+    private ResponseEntity<byte[]> pets(ResponseEntity.BodyBuilder response, List<Pet> pets, String accept) {
+        PayloadFormat format = PayloadFormat.negotiate(accept);
+        byte[] body = format == PayloadFormat.JSON ? jsonArray(pets) : encode(format, pets);
+        return response.varyBy(HttpHeaders.ACCEPT).contentType(format.mediaType).body(body);
+    }
+
+    // binary formats are encoded on every request; only JSON, the expensive one, goes through the cache
+    private byte[] encode(PayloadFormat format, Object value) {
+        try {
+            return writer(format).writeValueAsBytes(value);
+        } catch(JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ObjectWriter writer(PayloadFormat format) {
+        switch(format) {
+            case CBOR:
+                return cborConverter.getObjectMapper().writer();
+            case SMILE:
+                return smileConverter.getObjectMapper().writer();
+            default:
+                return objectMapper.writer();
+        }
+    }
+
+    private byte[] jsonArray(List<Pet> pets) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pets.size() * 256 + 2);
+        try {
+            petJsonCache.writeArray(pets, out);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // the response body is written in the format negotiated from the same Accept header
+    private static String eTag(Pet pet, String accept) {
+        return eTag(pet, PayloadFormat.negotiate(accept));
+    }
+
+    // each encoding of a version is a different representation, so it gets its own strong ETag
+    static String eTag(Pet pet, PayloadFormat format) {
+        return "\"" + pet.getVersion() + format.eTagSuffix + "\"";
+    }
+
+    // If-Match compares strongly: * matches any stored version, weak or malformed tags never match;
+    // the ETag of any format names the version it was encoded from
+    static Long expectedVersion(String ifMatch) {
+        if(ifMatch == null) return null;
+        String expected = ifMatch.trim();
+        if(expected.equals("*")) return null;
+        if(expected.length() > 2 && expected.startsWith("\"") && expected.endsWith("\"")) {
+            try {
+                return Long.parseLong(PayloadFormat.stripETagSuffix(expected.substring(1, expected.length() - 1)));
+            } catch(NumberFormatException ignored) {
+                // falls through to the failed precondition
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match the pet's ETag");
+    }
+
+    private static Set<Status> parseStatuses(String status) {
+        Set<Status> statuses = EnumSet.noneOf(Status.class);
+        for(String statusOption : status.split(",")) statuses.add(parseStatus(statusOption));
+        return statuses;
+    }
+
+    private static Status parseStatus(String status) {
+        Status statusValue = Status.getStatusFromValue(status.trim());
+        if(statusValue == null) throw new InvalidDataException("Invalid status value");
+        return statusValue;
+    }
+
+    private static void validateBatchSize(int size) {
+        if(size == 0 || size > MAX_BATCH_SIZE) throw new InvalidDataException("Batch size " + size + " is invalid, send between 1 and " + MAX_BATCH_SIZE + " items");
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null) return false;
+        for(String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if(parts[0].trim().equalsIgnoreCase(GZIP)) return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    private static void writeStreamed(SequenceWriter sequenceWriter, Pet pet) {
+        try {
+            sequenceWriter.write(pet);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gzip stream whose native deflater can be released without closing the servlet stream below it.
+     * A failed export is not finished either, so the client never gets a valid trailer after a
+     * truncated body.
+     */
+    private static final class ExportGzipStream extends GZIPOutputStream {
+        ExportGzipStream(OutputStream out) throws IOException {
+            super(out, TRANSFER_BUFFER_BYTES);
+        }
+
+        void releaseDeflater() {
+            def.end();
+        }
+    }
+
+    /**
+     * Pet payload encodings a client can ask for through the Accept header. The binary ones carry
+     * the same fields as the JSON, without quoting and field-name text.
+     */
+    enum PayloadFormat {
+        JSON(MediaType.APPLICATION_JSON, ""),
+        CBOR(MediaType.APPLICATION_CBOR, "-cbor"),
+        SMILE(MediaType.parseMediaType(APPLICATION_SMILE_VALUE), "-smile");
+
+        private static final PayloadFormat[] FORMATS = values();
+
+        private final MediaType mediaType;
+        private final String eTagSuffix;
+
+        PayloadFormat(MediaType mediaType, String eTagSuffix) {
+            this.mediaType = mediaType;
+            this.eTagSuffix = eTagSuffix;
+        }
+
+        /**
+         * @return the opaque part of an ETag without the suffix of the format it was sent in
+         */
+        static String stripETagSuffix(String eTag) {
+            for(PayloadFormat format : FORMATS) {
+                if(!format.eTagSuffix.isEmpty() && eTag.endsWith(format.eTagSuffix)) return eTag.substring(0, eTag.length() - format.eTagSuffix.length());
+            }
+            return eTag;
+        }
+
+        /**
+         * @return the format of the most preferred acceptable media type, JSON when there is none
+         */
+        static PayloadFormat negotiate(String accept) {
+            // most clients send JSON or wildcard Accept headers, which need no parsing
+            if(accept == null || (!accept.contains("cbor") && !accept.contains("smile"))) return JSON;
+            List<MediaType> acceptable;
+            try {
+                acceptable = MediaType.parseMediaTypes(accept);
+            } catch(InvalidMediaTypeException e) {
+                return JSON;
+            }
+            MediaType.sortBySpecificityAndQuality(acceptable);
+            for(MediaType mediaType : acceptable) {
+                if(mediaType.getQualityValue() == 0) continue;
+                for(PayloadFormat format : FORMATS) {
+                    if(mediaType.includes(format.mediaType)) return format;
+                }
+            }
+            return JSON;
+        }
     }
 
-    // TODO fix findPetsByStatus logic, so I'm able to filter by multiple status values
-    // TODO fix bug: java.lang.NumberFormatException: For input string: ""
-    // TODO fix bug: java.lang.UnsupportedOperationException: null (when executing post and delete requests)
     // TODO fix updatePetWithFormData: method parameters should be recognized as form data, instead of body
-    // TODO fix uploadFile: font related issues + actually appending additional metadata and files to the pet details
+    // TODO fix uploadFile: font related issues
 }
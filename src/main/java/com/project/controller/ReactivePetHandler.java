@@ -0,0 +1,137 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.cache.PetJsonCache;
+import com.project.exception.InvalidDataException;
+import com.project.exception.PreconditionFailedException;
+import com.project.exception.ResourceNotFoundException;
+import com.project.exception.ServiceUnavailableException;
+import com.project.model.Pet;
+import com.project.service.PetService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * WebFlux routes for the single-pet reads and writes, served by the non-blocking server of
+ * {@code petstore.execution.mode=reactive}. They answer the JSON requests of the same paths like
+ * {@link PetController}, with the same ETags, If-Match handling and error bodies.
+ * <p>
+ * A read runs on the event loop that received it. A write updates the store there and then waits
+ * for the journal through {@link PetService#saveAsync} and its siblings, so no thread is held
+ * while the group commit is pending; the response is written from the journal's flushing thread.
+ */
+public class ReactivePetHandler {
+    private final PetService petService;
+    private final PetJsonCache petJsonCache;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final byte[] petNotFound;
+
+    public ReactivePetHandler(PetService petService, PetJsonCache petJsonCache, ObjectMapper objectMapper, Validator validator) throws JsonProcessingException {
+        this.petService = petService;
+        this.petJsonCache = petJsonCache;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        petNotFound = objectMapper.writeValueAsBytes(GlobalExceptionHandler.body(HttpStatus.NOT_FOUND, PetController.PET_NOT_FOUND_MESSAGE));
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/pet/{petId}", deferred(this::getPetById))
+                .POST("/pet", deferred(this::savePet))
+                .PUT("/pet/{petId}", deferred(this::updatePetById))
+                .DELETE("/pet/{petId}", deferred(this::deletePetById))
+                .onError(Exception.class, this::error)
+                .build();
+    }
+
+    private Mono<ServerResponse> getPetById(ServerRequest request) {
+        long id = petId(request);
+        Optional<Pet> found = petService.findById(id);
+        if(found.isEmpty()) return ServerResponse.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).bodyValue(petNotFound);
+        Pet pet = found.get();
+        String eTag = PetController.eTag(pet, PetController.PayloadFormat.JSON);
+        return request.checkNotModified(eTag).switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(petJsonCache.json(pet))));
+    }
+
+    private Mono<ServerResponse> savePet(ServerRequest request) {
+        return body(request)
+                .flatMap(body -> Mono.fromFuture(petService.saveAsync(validPet(body))))
+                .flatMap(saved -> json(ServerResponse.status(HttpStatus.CREATED), saved));
+    }
+
+    private Mono<ServerResponse> updatePetById(ServerRequest request) {
+        long id = petId(request);
+        Long expectedVersion = PetController.expectedVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+        return body(request)
+                .flatMap(body -> Mono.fromFuture(petService.updateByIdAsync(validPet(body), id, expectedVersion)))
+                .flatMap(updated -> json(ServerResponse.ok().eTag(PetController.eTag(updated, PetController.PayloadFormat.JSON)).varyBy(HttpHeaders.ACCEPT), updated));
+    }
+
+    private Mono<ServerResponse> deletePetById(ServerRequest request) {
+        long id = petId(request);
+        return Mono.fromFuture(petService.deleteByIdAsync(id)).then(ServerResponse.noContent().build());
+    }
+
+    private static long petId(ServerRequest request) {
+        String petId = request.pathVariable("petId");
+        try {
+            long id = Long.parseLong(petId);
+            if(id >= 0) return id;
+        } catch(NumberFormatException ignored) {
+            // reported below like a negative id
+        }
+        throw new InvalidDataException("Id " + petId + " is invalid");
+    }
+
+    private static Mono<byte[]> body(ServerRequest request) {
+        return request.bodyToMono(byte[].class).switchIfEmpty(Mono.error(() -> new InvalidDataException("The pet data provided is invalid!")));
+    }
+
+    private Pet validPet(byte[] body) {
+        Pet pet;
+        try {
+            pet = objectMapper.readValue(body, Pet.class);
+        } catch(IOException e) {
+            throw new InvalidDataException("The pet data provided is invalid!");
+        }
+        if(pet == null || !validator.validate(pet).isEmpty()) throw new InvalidDataException("Pet " + pet + " is invalid");
+        return pet;
+    }
+
+    private Mono<ServerResponse> json(ServerResponse.BodyBuilder response, Object body) {
+        try {
+            return response.contentType(MediaType.APPLICATION_JSON).bodyValue(objectMapper.writeValueAsBytes(body));
+        } catch(JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+
+    // the statuses GlobalExceptionHandler gives these exceptions; anything else is left to WebFlux's 500
+    private Mono<ServerResponse> error(Throwable e, ServerRequest request) {
+        HttpStatus status = e instanceof ResourceNotFoundException ? HttpStatus.NOT_FOUND
+                : e instanceof InvalidDataException ? HttpStatus.BAD_REQUEST
+                : e instanceof PreconditionFailedException ? HttpStatus.PRECONDITION_FAILED
+                : e instanceof ServiceUnavailableException ? HttpStatus.SERVICE_UNAVAILABLE : null;
+        if(status == null) return Mono.error(e);
+        return json(ServerResponse.status(status), GlobalExceptionHandler.body(status, e.getMessage()));
+    }
+
+    // handlers throw for bad input before building their Mono, and onError only sees errors signalled through it
+    private static HandlerFunction<ServerResponse> deferred(HandlerFunction<ServerResponse> handler) {
+        return request -> Mono.defer(() -> handler.handle(request));
+    }
+}
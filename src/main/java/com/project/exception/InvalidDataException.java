@@ -1,8 +1,12 @@
 package com.project.exception;
 
+/**
+ * Rejects malformed client input. Like the other client errors it skips the stack trace, which
+ * would only describe the controller that validated the input.
+ */
 public class InvalidDataException extends RuntimeException {
 
     public InvalidDataException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,11 @@
+package com.project.exception;
+
+/**
+ * Signals a conditional write that lost against a concurrent one; it carries no stack trace.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,8 +1,12 @@
 package com.project.exception;
 
+/**
+ * Thrown for every lookup of a missing resource. Misses are routine client errors, so no stack
+ * trace is captured.
+ */
 public class ResourceNotFoundException extends RuntimeException {
 
     public ResourceNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
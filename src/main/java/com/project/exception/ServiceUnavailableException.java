@@ -0,0 +1,11 @@
+package com.project.exception;
+
+/**
+ * Signals a request turned away because a bounded resource is exhausted; clients should retry later.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
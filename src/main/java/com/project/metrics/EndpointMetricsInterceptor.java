@@ -0,0 +1,126 @@
+package com.project.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every controller method and counts its responses by status class and the bytes its
+ * thread allocated while handling the request. Meters are created once per handler method and
+ * found again through a map lookup keyed by the {@link Method}; the start time and allocation
+ * counter live in a per-thread array, so steady-state recording on pooled threads allocates
+ * nothing (with virtual threads that array is one small allocation per request).
+ * <p>
+ * Async requests are timed across both dispatches; their allocations are not recorded because
+ * the work happens on other threads.
+ */
+public class EndpointMetricsInterceptor implements AsyncHandlerInterceptor {
+    static final String REQUESTS = "petstore.http.requests";
+    static final String RESPONSES = "petstore.http.responses";
+    static final String ALLOCATED = "petstore.http.allocated";
+    private static final String ASYNC_START_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".start";
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    private final MeterRegistry registry;
+    private final Map<Method, EndpointMeters> meters = new ConcurrentHashMap<>();
+    // [0] start nanos, 0 when nothing is being timed; [1] thread allocated bytes at the start
+    private final ThreadLocal<long[]> started = ThreadLocal.withInitial(() -> new long[2]);
+
+    public EndpointMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(!(handler instanceof HandlerMethod)) return true;
+        long[] start = started.get();
+        Object asyncStart = request.getDispatcherType() == DispatcherType.ASYNC ? request.getAttribute(ASYNC_START_ATTRIBUTE) : null;
+        start[0] = asyncStart != null ? (Long) asyncStart : System.nanoTime();
+        start[1] = asyncStart != null ? -1 : allocatedBytes();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long[] start = started.get();
+        if(start[0] != 0) request.setAttribute(ASYNC_START_ATTRIBUTE, start[0]);
+        start[0] = 0;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if(!(handler instanceof HandlerMethod)) return;
+        long[] start = started.get();
+        if(start[0] == 0) return;
+        long elapsed = System.nanoTime() - start[0];
+        long allocated = start[1] >= 0 ? allocatedBytes() - start[1] : -1;
+        start[0] = 0;
+        endpointMeters(((HandlerMethod) handler).getMethod(), request).record(elapsed, allocated, response.getStatus());
+    }
+
+    private EndpointMeters endpointMeters(Method method, HttpServletRequest request) {
+        EndpointMeters endpointMeters = meters.get(method);
+        if(endpointMeters != null) return endpointMeters;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : request.getRequestURI();
+        return meters.computeIfAbsent(method, key -> new EndpointMeters(registry, key.getName(), request.getMethod(), uri));
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)) return null;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() ? threads : null;
+    }
+
+    private static final class EndpointMeters {
+        private final Timer timer;
+        private final DistributionSummary allocated;
+        // indexed by status / 100
+        private final Counter[] responses = new Counter[6];
+
+        EndpointMeters(MeterRegistry registry, String endpoint, String httpMethod, String uri) {
+            timer = Timer.builder(REQUESTS)
+                    .description("Time spent handling requests, per controller method")
+                    .tags("endpoint", endpoint, "method", httpMethod, "uri", uri)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(10)))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry);
+            allocated = DistributionSummary.builder(ALLOCATED)
+                    .description("Bytes allocated by the request thread while handling a request")
+                    .baseUnit("bytes")
+                    .tags("endpoint", endpoint)
+                    .register(registry);
+            for(int statusClass = 2; statusClass < responses.length; statusClass++) {
+                responses[statusClass] = Counter.builder(RESPONSES)
+                        .description("Responses per controller method and status class")
+                        .tags("endpoint", endpoint, "status", statusClass + "xx")
+                        .register(registry);
+            }
+        }
+
+        void record(long elapsedNanos, long allocatedBytes, int status) {
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if(allocatedBytes >= 0) allocated.record(allocatedBytes);
+            int statusClass = status / 100;
+            if(statusClass >= 2 && statusClass < responses.length) responses[statusClass].increment();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.project.metrics;
+
+import com.project.cache.PetJsonCache;
+import com.project.model.Status;
+import com.project.repository.PetRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Gauges over the store's current shape: pet count, postings per status and distinct categories
+ * and tags in the inverted indexes, plus the JSON cache counters. They are read when scraped, so
+ * they add nothing to request handling.
+ */
+@RequiredArgsConstructor
+public class PetStoreMeterBinder implements MeterBinder {
+    private final PetRepository petRepository;
+    private final PetJsonCache petJsonCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("petstore.pets", petRepository, PetRepository::size)
+                .description("Pets in the store")
+                .register(registry);
+        for(Status status : Status.values()) {
+            Gauge.builder("petstore.index.postings", petRepository, repository -> repository.statusIndexSize(status))
+                    .description("Pet ids in the status index")
+                    .tag("status", status.toString())
+                    .register(registry);
+        }
+        Gauge.builder("petstore.index.keys", petRepository, PetRepository::categoryIndexSize)
+                .description("Distinct keys in an inverted index")
+                .tag("index", "category")
+                .register(registry);
+        Gauge.builder("petstore.index.keys", petRepository, PetRepository::tagIndexSize)
+                .description("Distinct keys in an inverted index")
+                .tag("index", "tag")
+                .register(registry);
+
+        FunctionCounter.builder("petstore.json.cache.requests", petJsonCache, PetJsonCache::hits)
+                .description("JSON cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("petstore.json.cache.requests", petJsonCache, PetJsonCache::misses)
+                .description("JSON cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("petstore.json.cache.evictions", petJsonCache, PetJsonCache::evictions)
+                .description("JSON cache entries evicted for size")
+                .register(registry);
+        Gauge.builder("petstore.json.cache.size", petJsonCache, PetJsonCache::weightBytes)
+                .description("Estimated heap held by the JSON cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,16 @@
+package com.project.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BatchItemResult {
+    private Integer index;
+
+    private Long id;
+
+    private Integer code;
+
+    private String message;
+}
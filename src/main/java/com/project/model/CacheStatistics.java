@@ -0,0 +1,20 @@
+package com.project.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CacheStatistics {
+    private Long hits;
+
+    private Long misses;
+
+    private Long evictions;
+
+    private Long entries;
+
+    private Long weightBytes;
+
+    private Long maxWeightBytes;
+}
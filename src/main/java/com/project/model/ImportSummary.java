@@ -0,0 +1,22 @@
+package com.project.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ImportSummary {
+    private Long read;
+
+    private Long imported;
+
+    private Long failed;
+
+    private Long bytes;
+
+    private List<BatchItemResult> errors;
+
+    private String error;
+}
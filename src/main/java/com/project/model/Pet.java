@@ -1,30 +1,67 @@
 package com.project.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.Builder;
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.jackson.Jacksonized;
 
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-@Data
-@Builder
+/**
+ * Immutable snapshot of a pet. The store replaces a pet by swapping in a new snapshot, so a
+ * reader always sees one complete version of it; changes go through {@link #toBuilder()} or the
+ * {@code with} methods.
+ */
+@Value
+@With
+@Builder(toBuilder = true)
+@Jacksonized
 public class Pet {
-    private Long id;
+    Long id;
 
-    private Category category;
+    Category category;
 
     @NotNull
     @ApiModelProperty(name = "name", dataType = "string", example = "doggie", required = true)
-    private String name;
+    String name;
 
     @NotNull
     @ApiModelProperty(name = "photoUrls", dataType = "array", required = true)
-    private List<String> photoUrls;
+    List<String> photoUrls;
 
-    private List<Tag> tags;
+    List<Tag> tags;
 
     @ApiModelProperty(value = "pet status in the store")
-    private Status status;
+    Status status;
+
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ApiModelProperty(hidden = true)
+    Long version;
+
+    public Pet(Long id, Category category, String name, List<String> photoUrls, List<Tag> tags, Status status, Long version) {
+        this.id = id;
+        this.category = category;
+        this.name = name;
+        this.photoUrls = immutable(photoUrls);
+        this.tags = immutable(tags);
+        this.status = status;
+        this.version = version;
+    }
+
+    // copyOf returns lists it made itself unchanged, so the with methods do not copy again;
+    // lists with null elements, which clients can send, are wrapped instead
+    private static <T> List<T> immutable(List<T> list) {
+        if(list == null) return null;
+        for(T element : list) {
+            if(element == null) return Collections.unmodifiableList(new ArrayList<>(list));
+        }
+        return List.copyOf(list);
+    }
 }
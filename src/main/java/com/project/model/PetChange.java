@@ -0,0 +1,38 @@
+package com.project.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Builder;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+/**
+ * One write to the store, numbered in the order the writes were applied. Writes to the same pet
+ * are numbered in the order they happened.
+ */
+@Value
+@Builder
+public class PetChange {
+    long sequence;
+
+    Type type;
+
+    long petId;
+
+    /**
+     * The stored snapshot for saves, null for deletes.
+     */
+    Pet pet;
+
+    @RequiredArgsConstructor
+    public enum Type {
+        SAVED("saved"), DELETED("deleted");
+
+        private final String type;
+
+        @Override
+        @JsonValue
+        public String toString() {
+            return type;
+        }
+    }
+}
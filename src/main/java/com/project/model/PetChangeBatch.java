@@ -0,0 +1,24 @@
+package com.project.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class PetChangeBatch {
+    /**
+     * Sequence to pass as {@code after} on the next request.
+     */
+    private Long sequence;
+
+    /**
+     * Whether the client was too far behind and gets every pet instead of the changes it missed.
+     */
+    private Boolean snapshot;
+
+    private List<PetChange> changes;
+
+    private List<Pet> pets;
+}
@@ -0,0 +1,18 @@
+package com.project.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class StoredImage {
+    private Long petId;
+
+    private String hash;
+
+    private Long size;
+
+    private String url;
+
+    private Boolean duplicate;
+}
@@ -1,13 +1,15 @@
 package com.project.model;
 
 import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+@Value
+@Builder
+@Jacksonized
 @AllArgsConstructor
-@NoArgsConstructor
 public class Tag {
-    private Long id;
-    private String name;
+    Long id;
+    String name;
 }
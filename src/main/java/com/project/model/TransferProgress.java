@@ -0,0 +1,20 @@
+package com.project.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class TransferProgress {
+    private Long id;
+
+    private String type;
+
+    private Long records;
+
+    private Long bytes;
+
+    private Instant startedAt;
+}
@@ -0,0 +1,13 @@
+package com.project.repository;
+
+import com.project.model.Pet;
+
+/**
+ * Hears about every write {@link PetRepository} applies. Callbacks run inside the write, while
+ * the pet's key is locked, so they see the writes to one pet in order and must return quickly.
+ */
+public interface PetChangeListener {
+
+    void saved(Pet pet);
+    void deleted(long id);
+}
@@ -0,0 +1,127 @@
+package com.project.repository;
+
+import com.project.model.Pet;
+import com.project.model.PetChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sequence-numbered log of the most recent writes, kept in a ring buffer so clients can follow
+ * the store by reading what changed after the last sequence they saw. It hears writes as a
+ * {@link PetChangeListener}, inside the write, so the sequence numbers of one pet's writes follow
+ * the order they were applied in.
+ * <p>
+ * Appending takes no lock: a writer draws the next sequence and stores its change in that slot.
+ * A reader that finds an older change in a slot has caught up with the writers; one that finds a
+ * newer change was lapped, and like a client whose sequence the log never held, has to start
+ * over from a snapshot. The log is not persisted, so sequences start from the clock at startup
+ * and a sequence from before a restart is always below the first one this log held.
+ */
+public class PetChangeLog implements PetChangeListener {
+    private final AtomicReferenceArray<PetChange> slots;
+    private final int mask;
+    private final long first;
+    private final AtomicLong last;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+
+    public PetChangeLog(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        // leaves room for a million changes per millisecond of uptime before running into the next start
+        first = System.currentTimeMillis() << 20;
+        last = new AtomicLong(first - 1);
+    }
+
+    @Override
+    public void saved(Pet pet) {
+        long sequence = last.incrementAndGet();
+        publish(PetChange.builder().sequence(sequence).type(PetChange.Type.SAVED).petId(pet.getId()).pet(pet).build());
+    }
+
+    @Override
+    public void deleted(long id) {
+        long sequence = last.incrementAndGet();
+        publish(PetChange.builder().sequence(sequence).type(PetChange.Type.DELETED).petId(id).build());
+    }
+
+    /**
+     * @return the sequence of the latest change, which a snapshot taken from now on includes
+     */
+    public long lastSequence() {
+        return last.get();
+    }
+
+    /**
+     * Reads up to {@code max} changes following {@code after}, in sequence order. A change whose
+     * writer has not finished publishing it ends the read early.
+     *
+     * @return the changes, or null when the log no longer holds the ones after {@code after}
+     */
+    public List<PetChange> read(long after, int max) {
+        if(after < first - 1 || after > last.get()) return null;
+        List<PetChange> changes = new ArrayList<>(Math.min(max, 64));
+        for(long sequence = after + 1; changes.size() < max; sequence++) {
+            PetChange change = slots.get(slot(sequence));
+            if(change == null || change.getSequence() < sequence) break;
+            if(change.getSequence() > sequence) return null;
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    /**
+     * Waits until the change following {@code after} is published, or the timeout passes.
+     *
+     * @return whether there is a change to read
+     */
+    public boolean await(long after, long timeout, TimeUnit unit) throws InterruptedException {
+        if(isPublished(after + 1)) return true;
+        long remaining = unit.toNanos(timeout);
+        // writers only take the lock to signal while somebody waits, and they check after publishing
+        waiting.incrementAndGet();
+        lock.lock();
+        try {
+            while(!isPublished(after + 1)) {
+                if(remaining <= 0) return false;
+                remaining = appended.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void publish(PetChange change) {
+        // a writer stalled for a whole lap must not overwrite the newer change in its slot
+        slots.accumulateAndGet(slot(change.getSequence()), change, (current, update) ->
+                current == null || current.getSequence() < update.getSequence() ? update : current);
+        if(waiting.get() == 0) return;
+        lock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // a lapped sequence counts as published, so the waiter reads it and learns it fell behind
+    private boolean isPublished(long sequence) {
+        PetChange change = slots.get(slot(sequence));
+        return change != null && change.getSequence() >= sequence;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & mask);
+    }
+}
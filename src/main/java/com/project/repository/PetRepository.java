@@ -1,21 +1,61 @@
 package com.project.repository;
 
+import com.project.exception.PreconditionFailedException;
 import com.project.exception.ResourceNotFoundException;
 import com.project.model.Category;
 import com.project.model.Pet;
 import com.project.model.Status;
 import com.project.model.Tag;
+import com.project.repository.PetRepositoryMetrics.Operation;
+import com.project.repository.index.PetIndexes;
+import com.project.repository.persistence.PetJournal;
+import com.project.repository.query.PetQuery;
+import com.project.repository.query.PetQueryEngine;
+import com.project.repository.store.ConcurrentLongBitmap;
+import com.project.repository.store.ConcurrentLongSet;
+import com.project.repository.store.HeapPetStore;
+import com.project.repository.store.IdSequence;
+import com.project.repository.store.OrderedLongSet;
+import com.project.repository.store.PetStore;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 @Repository
 public class PetRepository {
-   private Map<Long, Pet> pets = new HashMap<>();
+   private final PetStore pets;
+   private final IdSequence ids = new IdSequence();
+   private final IdSequence versions = new IdSequence();
+   private final PetIndexes indexes;
+   private final OrderedLongSet orderedIds;
+   private final List<PetChangeListener> listeners = new CopyOnWriteArrayList<>();
+   private final PetJournal journal;
+   private PetRepositoryMetrics metrics = PetRepositoryMetrics.NONE;
+   private PetQueryEngine queryEngine = new PetQueryEngine();
+
+   public PetRepository() {
+      this(new HeapPetStore(), PetJournal.NONE);
+   }
+
+   @Autowired
+   public PetRepository(PetStore pets, PetJournal journal) {
+      this.pets = pets;
+      this.journal = journal;
+      // an off-heap store would otherwise leave a skip list node and a set of index keys per pet on the heap
+      indexes = pets.offHeap() ? new PetIndexes(pets::get) : new PetIndexes();
+      orderedIds = pets.offHeap() ? new ConcurrentLongBitmap() : OrderedLongSet.skipList();
+   }
 
    @PostConstruct
    private void initializePets() {
+      if(journal.open(this::restore, id -> pets.compute(id, this::unstore), pets::forEachChunk)) return;
+
       Pet pet1 = Pet.builder().id(1L).name("dog")
               .category(new Category(1L, "dogs"))
               .photoUrls(List.of("url1", "url2"))
@@ -37,54 +77,406 @@ public class PetRepository {
               .status(Status.SOLD)
               .build();
 
-      pets = Map.ofEntries(
-              Map.entry(pet1.getId(), pet1),
-              Map.entry(pet2.getId(), pet2),
-              Map.entry(pet3.getId(), pet3));
+      List.of(pet1, pet2, pet3).forEach(this::save);
    }
 
    public List<Pet> findAll() {
-      return new ArrayList<>(pets.values());
+      long start = System.nanoTime();
+      List<Pet> allPets = new ArrayList<>(pets.size());
+      pets.forEach(allPets::add);
+      metrics.scanned(Operation.FIND_ALL, allPets.size(), allPets.size());
+      metrics.timed(Operation.FIND_ALL, System.nanoTime() - start);
+      return allPets;
+   }
+
+   public List<Pet> findPage(long afterId, int limit) {
+      long start = System.nanoTime();
+      List<Pet> page = new ArrayList<>(limit);
+      long[] scanned = new long[1];
+      orderedIds.forEachAfter(afterId, id -> {
+         scanned[0]++;
+         Pet pet = pets.get(id);
+         if(pet != null) page.add(pet);
+         return page.size() < limit;
+      });
+      metrics.scanned(Operation.FIND_PAGE, scanned[0], page.size());
+      metrics.timed(Operation.FIND_PAGE, System.nanoTime() - start);
+      return page;
+   }
+
+   public void forEach(Consumer<Pet> action) {
+      pets.forEach(action);
+   }
+
+   /**
+    * Hands the pets over one store segment at a time, each copied while the segment's writes are
+    * locked out, so every write that finished or was in flight when the call started is included.
+    */
+   public void forEachChunk(Consumer<List<Pet>> chunkConsumer) {
+      pets.forEachChunk(chunkConsumer);
    }
 
-   public Pet findById(Long id) {
-      return findAll().stream().filter(pet -> Objects.equals(pet.getId(), id)).findAny().orElseThrow(() -> new ResourceNotFoundException("Pet with id " + id + " not found!"));
+   /**
+    * Looks a pet up without treating a miss as an error; ids that do not exist are common
+    * (stale links, scanners), so callers decide whether a miss is worth an exception.
+    */
+   public Optional<Pet> findById(Long id) {
+      long start = System.nanoTime();
+      Pet pet = pets.get(id);
+      metrics.timed(Operation.FIND_BY_ID, System.nanoTime() - start);
+      return Optional.ofNullable(pet);
    }
 
+   /**
+    * @return the stored snapshot, which carries the new version
+    */
    public Pet save(Pet pet) {
-      return pets.compute(pet.getId(), (key, value) -> pet);
+      long start = System.nanoTime();
+      long[] logPosition = new long[1];
+      Pet stored = saveLogged(pet, logPosition);
+      journal.awaitDurable(logPosition[0]);
+      metrics.timed(Operation.SAVE, System.nanoTime() - start);
+      return stored;
+   }
+
+   /**
+    * Like {@link #save}, but instead of blocking until the journal has made the write durable, the
+    * future completes then, on the journal's flushing thread.
+    */
+   public CompletableFuture<Pet> saveAsync(Pet pet) {
+      long start = System.nanoTime();
+      long[] logPosition = new long[1];
+      Pet stored = saveLogged(pet, logPosition);
+      return journal.whenDurable(logPosition[0]).thenApply(durable -> {
+         metrics.timed(Operation.SAVE, System.nanoTime() - start);
+         return stored;
+      });
    }
 
    public Pet updateById(Pet pet, Long id) {
-      Pet petToUpdate = findById(id);
-      petToUpdate.setId(pet.getId());
-      petToUpdate.setName(pet.getName());
-      petToUpdate.setCategory(pet.getCategory());
-      petToUpdate.setPhotoUrls(pet.getPhotoUrls());
-      petToUpdate.setTags(pet.getTags());
-      petToUpdate.setStatus(pet.getStatus());
-      return petToUpdate;
+      return updateById(pet, id, null);
+   }
+
+   /**
+    * Replaces the pet with the given id, but only while its version still equals
+    * {@code expectedVersion}; a null expected version replaces whatever is stored.
+    */
+   public Pet updateById(Pet pet, Long id, Long expectedVersion) {
+      Pet replacement = pet.withId(id);
+      return modifyById(id, existing -> replacement, expectedVersion);
+   }
+
+   /**
+    * Replaces the pet with the given id by what {@code change} builds from the stored snapshot.
+    * The change runs while writes to that pet are locked out, so it sees the latest version and
+    * nothing can slip in between reading and replacing it; it must not change the id.
+    *
+    * @return the stored snapshot, which carries the new version
+    */
+   public Pet modifyById(Long id, UnaryOperator<Pet> change, Long expectedVersion) {
+      long start = System.nanoTime();
+      long[] logPosition = new long[1];
+      try {
+         Pet stored = modifyLogged(id, change, expectedVersion, logPosition);
+         journal.awaitDurable(logPosition[0]);
+         return stored;
+      } finally {
+         metrics.timed(Operation.UPDATE, System.nanoTime() - start);
+      }
+   }
+
+   /**
+    * Like {@link #updateById(Pet, Long, Long)}, but instead of blocking until the journal has made
+    * the write durable, the future completes then; a missing pet or a failed precondition fails it.
+    */
+   public CompletableFuture<Pet> updateByIdAsync(Pet pet, Long id, Long expectedVersion) {
+      long start = System.nanoTime();
+      long[] logPosition = new long[1];
+      Pet replacement = pet.withId(id);
+      Pet stored;
+      try {
+         stored = modifyLogged(id, existing -> replacement, expectedVersion, logPosition);
+      } catch(RuntimeException e) {
+         metrics.timed(Operation.UPDATE, System.nanoTime() - start);
+         return CompletableFuture.failedFuture(e);
+      }
+      return journal.whenDurable(logPosition[0]).thenApply(durable -> {
+         metrics.timed(Operation.UPDATE, System.nanoTime() - start);
+         return stored;
+      });
    }
 
    public void deleteById(Long id) {
-      pets.remove(id);
+      long start = System.nanoTime();
+      long[] logPosition = new long[1];
+      deleteLogged(id, logPosition);
+      journal.awaitDurable(logPosition[0]);
+      metrics.timed(Operation.DELETE, System.nanoTime() - start);
+   }
+
+   /**
+    * Like {@link #deleteById}, but instead of blocking until the journal has made the delete
+    * durable, the future completes then.
+    */
+   public CompletableFuture<Void> deleteByIdAsync(Long id) {
+      long start = System.nanoTime();
+      long[] logPosition = new long[1];
+      deleteLogged(id, logPosition);
+      return journal.whenDurable(logPosition[0]).thenRun(() -> metrics.timed(Operation.DELETE, System.nanoTime() - start));
+   }
+
+   /**
+    * Saves every pet in one pass, drawing one block of ids for the pets without one and waiting
+    * once for the journal to make the whole batch durable. The block is drawn above the largest
+    * explicit id in the batch, so a generated id never lands on a pet saved later in it.
+    *
+    * @return the stored snapshots, in the order of the given pets
+    */
+   public List<Pet> saveAll(List<Pet> newPets) {
+      long start = System.nanoTime();
+      int missingIds = 0;
+      for(Pet pet : newPets) {
+         if(pet.getId() == null) missingIds++;
+         else ids.advanceTo(pet.getId());
+      }
+      long nextId = missingIds > 0 ? ids.nextBlock(missingIds) : 0;
+      long[] logPosition = new long[1];
+      Pet[] stored = new Pet[newPets.size()];
+      for(int i = 0; i < stored.length; i++) {
+         Pet pet = newPets.get(i);
+         if(pet.getId() == null) pet = pet.withId(nextId++);
+         Pet newPet = pet;
+         int index = i;
+         pets.compute(pet.getId(), (id, existing) -> stored[index] = persist(id, existing, newPet, logPosition));
+      }
+      journal.awaitDurable(logPosition[0]);
+      metrics.timed(Operation.SAVE_ALL, System.nanoTime() - start);
+      return Arrays.asList(stored);
+   }
+
+   /**
+    * @return for each pet, whether it existed and was replaced
+    */
+   public boolean[] updateAll(List<Pet> updatedPets) {
+      long start = System.nanoTime();
+      boolean[] updated = new boolean[updatedPets.size()];
+      long[] logPosition = new long[1];
+      for(int i = 0; i < updatedPets.size(); i++) {
+         Pet pet = updatedPets.get(i);
+         int index = i;
+         pets.compute(pet.getId(), (id, existing) -> {
+            if(existing == null) return null;
+            updated[index] = true;
+            return persist(id, existing, pet, logPosition);
+         });
+      }
+      journal.awaitDurable(logPosition[0]);
+      metrics.timed(Operation.UPDATE_ALL, System.nanoTime() - start);
+      return updated;
    }
 
-   public List<Pet> getPetsByStatus(String statusOptionValues) {
-      String[] statusValues = statusOptionValues.split(", ");
+   /**
+    * @return for each id, whether a pet existed and was deleted
+    */
+   public boolean[] deleteAll(List<Long> petIds) {
+      long start = System.nanoTime();
+      boolean[] deleted = new boolean[petIds.size()];
+      long[] logPosition = new long[1];
+      for(int i = 0; i < petIds.size(); i++) {
+         int index = i;
+         pets.compute(petIds.get(i), (key, existing) -> {
+            if(existing == null) return null;
+            deleted[index] = true;
+            logPosition[0] = journal.appendDelete(key);
+            return unstore(key, existing);
+         });
+      }
+      journal.awaitDurable(logPosition[0]);
+      metrics.timed(Operation.DELETE_ALL, System.nanoTime() - start);
+      return deleted;
+   }
+
+   public List<Pet> getPetsByStatus(Set<Status> statuses) {
+      long start = System.nanoTime();
       List<Pet> petsWithRequiredStatus = new ArrayList<>();
-      for(Pet pet : pets.values()) {
-         for(String status : statusValues) {
-            if(status.equals(pet.getStatus().toString())) {
-               petsWithRequiredStatus.add(pet);
-            }
-         }
+      long scanned = 0;
+      for(Status status : statuses) {
+         ConcurrentLongSet postings = indexes.withStatus(status);
+         scanned += postings.size();
+         postings.forEach(id -> {
+            if(pets.statusOf(id) != status) return;
+            Pet pet = pets.get(id);
+            if(pet != null && pet.getStatus() == status) petsWithRequiredStatus.add(pet);
+         });
       }
+      metrics.scanned(Operation.FIND_BY_STATUS, scanned, petsWithRequiredStatus.size());
+      metrics.timed(Operation.FIND_BY_STATUS, System.nanoTime() - start);
       return petsWithRequiredStatus;
    }
 
+   public List<Pet> findByCategory(long categoryId) {
+      long start = System.nanoTime();
+      List<Pet> petsInCategory = new ArrayList<>();
+      ConcurrentLongSet postings = indexes.inCategory(categoryId);
+      postings.forEach(id -> {
+         Pet pet = pets.get(id);
+         if(pet != null && pet.getCategory() != null && Objects.equals(pet.getCategory().getId(), categoryId)) petsInCategory.add(pet);
+      });
+      metrics.scanned(Operation.FIND_BY_CATEGORY, postings.size(), petsInCategory.size());
+      metrics.timed(Operation.FIND_BY_CATEGORY, System.nanoTime() - start);
+      return petsInCategory;
+   }
+
+   public List<Pet> findByTags(Collection<Long> tagIds) {
+      long start = System.nanoTime();
+      List<Pet> petsWithTags = new ArrayList<>();
+      if(tagIds.isEmpty()) return petsWithTags;
+      List<ConcurrentLongSet> postingsLists = tagIds.stream().distinct().map(indexes::withTag).toList();
+      PetIndexes.intersect(postingsLists, id -> {
+         Pet pet = pets.get(id);
+         if(pet != null && hasAllTags(pet, tagIds)) petsWithTags.add(pet);
+      });
+      // intersect walks the smallest postings set
+      int scanned = Integer.MAX_VALUE;
+      for(ConcurrentLongSet postings : postingsLists) scanned = Math.min(scanned, postings.size());
+      metrics.scanned(Operation.FIND_BY_TAGS, scanned, petsWithTags.size());
+      metrics.timed(Operation.FIND_BY_TAGS, System.nanoTime() - start);
+      return petsWithTags;
+   }
+
+   /**
+    * Finds up to {@code limit} pets whose name starts with the prefix, ignoring case, walking the
+    * name index in name order so the first matches come back without looking at the others.
+    */
+   public List<Pet> findByName(String prefix, int limit) {
+      long start = System.nanoTime();
+      List<Pet> petsWithPrefix = new ArrayList<>(Math.min(limit, 64));
+      long[] scanned = new long[1];
+      indexes.forEachNameStartingWith(prefix, id -> {
+         scanned[0]++;
+         Pet pet = pets.get(id);
+         if(pet != null && pet.getName() != null && pet.getName().regionMatches(true, 0, prefix, 0, prefix.length())) petsWithPrefix.add(pet);
+         return petsWithPrefix.size() < limit;
+      });
+      metrics.scanned(Operation.FIND_BY_NAME, scanned[0], petsWithPrefix.size());
+      metrics.timed(Operation.FIND_BY_NAME, System.nanoTime() - start);
+      return petsWithPrefix;
+   }
+
+   public List<Pet> search(PetQuery query, int limit) {
+      return search(query, Long.MIN_VALUE, limit);
+   }
+
+   /**
+    * Finds the first {@code limit} pets by id after {@code afterId} that match the query, starting
+    * from the secondary indexes when the query has indexed conditions that narrow it down and
+    * scanning the store in parallel otherwise.
+    */
+   public List<Pet> search(PetQuery query, long afterId, int limit) {
+      long start = System.nanoTime();
+      PetQueryEngine.Result result = queryEngine.search(pets, indexes, query, afterId, limit);
+      metrics.scanned(Operation.SEARCH, result.getExamined(), result.getPets().size());
+      metrics.timed(Operation.SEARCH, System.nanoTime() - start);
+      return result.getPets();
+   }
+
+   public void addChangeListener(PetChangeListener listener) {
+      listeners.add(listener);
+   }
+
+   public void setMetrics(PetRepositoryMetrics metrics) {
+      this.metrics = metrics;
+   }
+
+   public void setQueryEngine(PetQueryEngine queryEngine) {
+      this.queryEngine = queryEngine;
+   }
+
+   public int size() {
+      return pets.size();
+   }
+
+   public int statusIndexSize(Status status) {
+      return indexes.size(status);
+   }
+
+   public int categoryIndexSize() {
+      return indexes.categoryCount();
+   }
+
+   public int tagIndexSize() {
+      return indexes.tagCount();
+   }
+
    public Long autoIncrement() {
-      return pets.values().stream().map(Pet::getId).max(Long::compare).orElse(0L) + 1;
+      return ids.next();
+   }
+
+   public long reserveIds(int count) {
+      return ids.nextBlock(count);
+   }
+
+   private Pet saveLogged(Pet pet, long[] logPosition) {
+      ids.advanceTo(pet.getId());
+      Pet[] stored = new Pet[1];
+      pets.compute(pet.getId(), (id, existing) -> stored[0] = persist(id, existing, pet, logPosition));
+      return stored[0];
+   }
+
+   private Pet modifyLogged(Long id, UnaryOperator<Pet> change, Long expectedVersion, long[] logPosition) {
+      Pet[] stored = new Pet[1];
+      pets.compute(id, (key, existing) -> {
+         if(existing == null) throw new ResourceNotFoundException("Pet with id " + id + " not found!");
+         if(expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+            throw new PreconditionFailedException("Pet with id " + id + " is at version " + existing.getVersion() + ", not " + expectedVersion);
+         }
+         return stored[0] = persist(key, existing, change.apply(existing).withId(id), logPosition);
+      });
+      return stored[0];
+   }
+
+   private void deleteLogged(Long id, long[] logPosition) {
+      pets.compute(id, (key, existing) -> {
+         if(existing != null) logPosition[0] = journal.appendDelete(key);
+         return unstore(key, existing);
+      });
+   }
+
+   private void restore(Pet pet) {
+      ids.advanceTo(pet.getId());
+      if(pet.getVersion() != null) versions.advanceTo(pet.getVersion());
+      pets.compute(pet.getId(), (id, existing) -> store(id, existing, pet));
+   }
+
+   // persist, store and unstore run inside the key's compute, which serializes writes to one pet;
+   // versions come from one sequence, so a deleted and recreated pet never reuses an old version
+   private Pet persist(long id, Pet existing, Pet pet, long[] logPosition) {
+      Pet versioned = pet.withVersion(versions.next());
+      logPosition[0] = journal.appendSave(versioned);
+      return store(id, existing, versioned);
+   }
+
+   private Pet store(long id, Pet existing, Pet pet) {
+      indexes.index(id, pet, existing);
+      if(existing == null) orderedIds.add(id);
+      for(PetChangeListener listener : listeners) listener.saved(pet);
+      return pet;
+   }
+
+   private Pet unstore(long id, Pet existing) {
+      if(existing != null) {
+         indexes.unindex(id, existing);
+         orderedIds.remove(id);
+         for(PetChangeListener listener : listeners) listener.deleted(id);
+      }
+      return null;
+   }
+
+   private static boolean hasAllTags(Pet pet, Collection<Long> tagIds) {
+      if(pet.getTags() == null) return false;
+      Set<Long> petTagIds = new HashSet<>();
+      for(Tag tag : pet.getTags()) if(tag != null) petTagIds.add(tag.getId());
+      return petTagIds.containsAll(tagIds);
    }
 
 }
@@ -0,0 +1,48 @@
+package com.project.repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Receives the timings of {@link PetRepository} operations and, for queries, how many candidate
+ * pets were examined against how many were returned. Calls happen on the caller's thread after
+ * every operation, so implementations must not allocate or block.
+ */
+public interface PetRepositoryMetrics {
+    PetRepositoryMetrics NONE = new PetRepositoryMetrics() {
+        @Override
+        public void timed(Operation operation, long elapsedNanos) {
+        }
+
+        @Override
+        public void scanned(Operation operation, long scanned, long returned) {
+        }
+    };
+
+    void timed(Operation operation, long elapsedNanos);
+    void scanned(Operation operation, long scanned, long returned);
+
+    @RequiredArgsConstructor
+    enum Operation {
+        FIND_ALL("findAll"),
+        FIND_PAGE("findPage"),
+        FIND_BY_ID("findById"),
+        SAVE("save"),
+        UPDATE("update"),
+        DELETE("delete"),
+        SAVE_ALL("saveAll"),
+        UPDATE_ALL("updateAll"),
+        DELETE_ALL("deleteAll"),
+        FIND_BY_STATUS("findByStatus"),
+        FIND_BY_CATEGORY("findByCategory"),
+        FIND_BY_TAGS("findByTags"),
+        FIND_BY_NAME("findByName"),
+        SEARCH("search");
+
+        private final String name;
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.project.repository.blob;
+
+import com.project.exception.InvalidDataException;
+import com.project.exception.StorageException;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed files: every blob is stored once under the SHA-256 of its bytes, fanned out
+ * into directories by the first two hex digits. Uploads stream through a fixed-size buffer into a
+ * temporary file while being hashed, so no whole file is ever held in memory; the temporary file
+ * is then renamed to its hash, or dropped when that blob already exists. Blobs never change once
+ * published, which is what lets readers serve them straight from the file.
+ */
+public class BlobStore {
+    private static final String TEMPORARY_DIRECTORY = "tmp";
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path directory;
+    private final Path temporaryDirectory;
+    private final long maxBlobBytes;
+
+    public BlobStore(Path directory, long maxBlobBytes) {
+        this.directory = directory;
+        this.maxBlobBytes = maxBlobBytes;
+        this.temporaryDirectory = directory.resolve(TEMPORARY_DIRECTORY);
+        try {
+            Files.createDirectories(temporaryDirectory);
+            // uploads cut short by a crash never got published
+            try(Stream<Path> leftovers = Files.list(temporaryDirectory)) {
+                leftovers.forEach(BlobStore::deleteQuietly);
+            }
+        } catch(IOException e) {
+            throw new StorageException("Failed to create blob directory " + directory, e);
+        }
+    }
+
+    /**
+     * Stores everything the stream has left, failing once it exceeds the maximum blob size.
+     */
+    public StoredBlob put(InputStream in) {
+        MessageDigest digest = sha256();
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(temporaryDirectory, "upload-", ".tmp");
+            long size = 0;
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                byte[] chunk = new byte[BUFFER_BYTES];
+                ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                int read;
+                while((read = in.read(chunk)) >= 0) {
+                    size += read;
+                    if(size > maxBlobBytes) throw new InvalidDataException("Blob is larger than " + maxBlobBytes + " bytes");
+                    digest.update(chunk, 0, read);
+                    buffer.clear().limit(read);
+                    while(buffer.hasRemaining()) channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = path(hash);
+            if(Files.exists(target)) return new StoredBlob(hash, size, false);
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch(FileAlreadyExistsException e) {
+                // a concurrent upload of the same bytes published it first
+                return new StoredBlob(hash, size, false);
+            }
+            temporary = null;
+            return new StoredBlob(hash, size, true);
+        } catch(IOException e) {
+            throw new StorageException("Failed to store blob", e);
+        } finally {
+            if(temporary != null) deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * @return the file holding the blob, if the hash is well-formed and stored
+     */
+    public Optional<Path> find(String hash) {
+        if(hash == null || !HASH.matcher(hash).matches()) return Optional.empty();
+        Path path = path(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private Path path(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch(IOException ignored) {
+            // left for the next cleanup of the temporary directory
+        }
+    }
+
+    @Value
+    public static class StoredBlob {
+        String hash;
+        long size;
+        boolean created;
+    }
+}
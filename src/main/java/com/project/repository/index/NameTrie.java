@@ -0,0 +1,295 @@
+package com.project.repository.index;
+
+import com.project.repository.store.ConcurrentLongSet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Radix trie from case-folded pet names to pet ids. Edges carry whole runs of characters, so a
+ * chain of single-child nodes takes one node, and every node counts the ids below it, so the
+ * number of names with a prefix is known without walking them.
+ * <p>
+ * Writers are serialized by the trie's lock; readers take no lock. A node's label never changes, and
+ * splitting or merging an edge builds the new nodes completely before swapping them into their
+ * parent's children array, so a reader always walks a consistent, if possibly stale, path.
+ */
+final class NameTrie {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final long[] NO_IDS = new long[0];
+    // ids of one name are kept in a copy-on-write array up to this many, then in a set
+    private static final int MAX_ARRAY_IDS = 32;
+
+    private final Node root = new Node("");
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    void add(String name, long id) {
+        writeLock.lock();
+        try {
+            insert(name, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void remove(String name, long id) {
+        writeLock.lock();
+        try {
+            delete(name, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void insert(String name, long id) {
+        Node[] path = new Node[name.length() + 1];
+        int depth = 0;
+        Node node = root;
+        path[0] = root;
+        String rest = name;
+        while(!rest.isEmpty()) {
+            int index = node.childIndex(rest.charAt(0));
+            if(index < 0) {
+                Node leaf = new Node(rest);
+                leaf.addId(id);
+                leaf.count = 1;
+                for(int i = 0; i <= depth; i++) path[i].count++;
+                node.insertChild(-index - 1, leaf);
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.label, rest);
+            if(common < child.label.length()) {
+                // the name ends or branches off inside the edge: put a node at the branching point
+                Node split = new Node(child.label.substring(0, common));
+                split.count = child.count;
+                split.children = new Node[]{child.withLabel(child.label.substring(common))};
+                node.replaceChild(index, split);
+                child = split;
+            }
+            node = child;
+            path[++depth] = node;
+            rest = rest.substring(common);
+        }
+        if(!node.addId(id)) return;
+        for(int i = 0; i <= depth; i++) path[i].count++;
+    }
+
+    private void delete(String name, long id) {
+        Node[] path = new Node[name.length() + 1];
+        int depth = 0;
+        Node node = root;
+        path[0] = root;
+        String rest = name;
+        while(!rest.isEmpty()) {
+            int index = node.childIndex(rest.charAt(0));
+            if(index < 0) return;
+            node = node.children[index];
+            if(!rest.startsWith(node.label)) return;
+            rest = rest.substring(node.label.length());
+            path[++depth] = node;
+        }
+        if(!node.removeId(id)) return;
+        for(int i = 0; i <= depth; i++) path[i].count--;
+        for(int i = depth; i > 0; i--) compact(path[i - 1], path[i]);
+    }
+
+    /**
+     * @return how many ids are stored under names starting with the prefix
+     */
+    int count(String prefix) {
+        Node node = find(prefix);
+        return node != null ? node.count : 0;
+    }
+
+    /**
+     * Visits the ids of the names starting with the prefix in name order, until the visitor
+     * returns false. Ids sharing a name come in no particular order.
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    boolean forEachWhile(String prefix, LongPredicate visitor) {
+        Node node = find(prefix);
+        return node == null || node.forEachWhile(visitor);
+    }
+
+    /**
+     * Visits the ids stored under exactly this name, not under longer ones, until the visitor
+     * returns false.
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    boolean forEachIdWhile(String name, LongPredicate visitor) {
+        Node node = root;
+        String rest = name;
+        while(!rest.isEmpty()) {
+            int index = node.childIndex(rest.charAt(0));
+            if(index < 0) return true;
+            node = node.children[index];
+            if(!rest.startsWith(node.label)) return true;
+            rest = rest.substring(node.label.length());
+        }
+        return node.forEachIdWhile(visitor);
+    }
+
+    /**
+     * Sets the bit of every character that follows the prefix in a stored name.
+     */
+    void collectNextChars(String prefix, BitSet next) {
+        Node node = root;
+        String rest = prefix;
+        while(!rest.isEmpty()) {
+            int index = node.childIndex(rest.charAt(0));
+            if(index < 0) return;
+            Node child = node.children[index];
+            if(rest.length() < child.label.length()) {
+                if(child.label.startsWith(rest)) next.set(child.label.charAt(rest.length()));
+                return;
+            }
+            if(!rest.startsWith(child.label)) return;
+            node = child;
+            rest = rest.substring(child.label.length());
+        }
+        for(Node child : node.children) next.set(child.label.charAt(0));
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        String rest = prefix;
+        while(!rest.isEmpty()) {
+            int index = node.childIndex(rest.charAt(0));
+            if(index < 0) return null;
+            Node child = node.children[index];
+            if(rest.length() <= child.label.length()) return child.label.startsWith(rest) ? child : null;
+            if(!rest.startsWith(child.label)) return null;
+            node = child;
+            rest = rest.substring(child.label.length());
+        }
+        return node;
+    }
+
+    // drops an empty leaf, or folds a node that no longer holds ids into its only child
+    private static void compact(Node parent, Node node) {
+        if(node.hasIds()) return;
+        Node[] children = node.children;
+        if(children.length == 0) parent.removeChild(parent.childIndex(node.label.charAt(0)));
+        else if(children.length == 1) parent.replaceChild(parent.childIndex(node.label.charAt(0)), children[0].withLabel(node.label + children[0].label));
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for(int i = 0; i < length; i++) if(a.charAt(i) != b.charAt(i)) return i;
+        return length;
+    }
+
+    private static final class Node {
+        final String label;
+        volatile Node[] children = NO_CHILDREN;
+        volatile long[] ids = NO_IDS;
+        // once a name has many ids they move here for good, and readers stop looking at ids
+        volatile ConcurrentLongSet manyIds;
+        volatile int count;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        // a copy under another label, sharing the children and ids it has now
+        Node withLabel(String newLabel) {
+            Node copy = new Node(newLabel);
+            copy.children = children;
+            copy.ids = ids;
+            copy.manyIds = manyIds;
+            copy.count = count;
+            return copy;
+        }
+
+        int childIndex(char first) {
+            Node[] current = children;
+            int low = 0;
+            int high = current.length - 1;
+            while(low <= high) {
+                int middle = (low + high) >>> 1;
+                char key = current[middle].label.charAt(0);
+                if(key < first) low = middle + 1;
+                else if(key > first) high = middle - 1;
+                else return middle;
+            }
+            return -low - 1;
+        }
+
+        void insertChild(int index, Node child) {
+            Node[] current = children;
+            Node[] updated = new Node[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            updated[index] = child;
+            System.arraycopy(current, index, updated, index + 1, current.length - index);
+            children = updated;
+        }
+
+        void replaceChild(int index, Node child) {
+            Node[] updated = children.clone();
+            updated[index] = child;
+            children = updated;
+        }
+
+        void removeChild(int index) {
+            Node[] current = children;
+            Node[] updated = new Node[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, updated.length - index);
+            children = updated;
+        }
+
+        boolean addId(long id) {
+            if(manyIds != null) return manyIds.add(id);
+            long[] current = ids;
+            for(long existing : current) if(existing == id) return false;
+            if(current.length < MAX_ARRAY_IDS) {
+                long[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = id;
+                ids = updated;
+                return true;
+            }
+            ConcurrentLongSet set = new ConcurrentLongSet(MAX_ARRAY_IDS * 4, 4);
+            for(long existing : current) set.add(existing);
+            set.add(id);
+            manyIds = set;
+            return true;
+        }
+
+        boolean removeId(long id) {
+            if(manyIds != null) return manyIds.remove(id);
+            long[] current = ids;
+            for(int i = 0; i < current.length; i++) {
+                if(current[i] != id) continue;
+                long[] updated = new long[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, updated.length - i);
+                ids = updated;
+                return true;
+            }
+            return false;
+        }
+
+        boolean hasIds() {
+            ConcurrentLongSet set = manyIds;
+            return set != null ? !set.isEmpty() : ids.length > 0;
+        }
+
+        boolean forEachIdWhile(LongPredicate visitor) {
+            ConcurrentLongSet set = manyIds;
+            if(set != null) return set.forEachWhile(visitor);
+            for(long id : ids) if(!visitor.test(id)) return false;
+            return true;
+        }
+
+        boolean forEachWhile(LongPredicate visitor) {
+            if(!forEachIdWhile(visitor)) return false;
+            for(Node child : children) if(!child.forEachWhile(visitor)) return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.project.repository.index;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.store.ConcurrentLongMap;
+import com.project.repository.store.ConcurrentLongSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Secondary indexes over the pet store: one postings set per {@link Status}, inverted
+ * indexes from {@link Category} id and {@link Tag} id to pet ids, and two indexes over the
+ * case-folded name: a radix trie for prefixes and trigram postings for substrings.
+ * <p>
+ * By default the indexes remember which keys each pet was indexed under, so a pet that was mutated
+ * in place is still unindexed correctly. Over a store that hands out copies, the pet being
+ * replaced is exactly the one that was indexed, so {@link #PetIndexes(LongFunction)} keeps nothing
+ * per pet and derives the old keys from that pet instead. Callers must serialize {@link #index}
+ * and {@link #unindex} per pet id; {@code PetRepository} does so by calling them inside the
+ * store's compute.
+ * Postings may briefly lag the store, so readers re-check the pet they resolve.
+ */
+public class PetIndexes {
+    private static final ConcurrentLongSet EMPTY = new ConcurrentLongSet(2, 1);
+    // the trie is sharded by a hash of the first two characters of the name, so names sharing an
+    // initial still spread over the shards and writers of different names rarely meet
+    private static final int NAME_SHARDS = 64;
+    private static final int TRIGRAM_LENGTH = 3;
+
+    private final Map<Status, ConcurrentLongSet> byStatus = new EnumMap<>(Status.class);
+    private final ConcurrentLongMap<ConcurrentLongSet> byCategory = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<ConcurrentLongSet> byTag = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<ConcurrentLongSet> byTrigram = new ConcurrentLongMap<>();
+    private final NameTrie[] byName = new NameTrie[NAME_SHARDS];
+    // null when the keys are derived from the replaced pets, which storedPets then resolves by id
+    private final ConcurrentLongMap<IndexedKeys> keysById;
+    private final LongFunction<Pet> storedPets;
+
+    public PetIndexes() {
+        this(new ConcurrentLongMap<>(), null);
+    }
+
+    /**
+     * Indexes over a store whose reads return copies: the previous keys come from the pet passed
+     * to {@link #index} and {@link #unindex}, and {@link #nameStartsWith} reads the name of the pet
+     * stored under the id.
+     */
+    public PetIndexes(LongFunction<Pet> storedPets) {
+        this(null, storedPets);
+    }
+
+    private PetIndexes(ConcurrentLongMap<IndexedKeys> keysById, LongFunction<Pet> storedPets) {
+        this.keysById = keysById;
+        this.storedPets = storedPets;
+        for(Status status : Status.values()) byStatus.put(status, new ConcurrentLongSet(1024, 64));
+        for(int i = 0; i < NAME_SHARDS; i++) byName[i] = new NameTrie();
+    }
+
+    /**
+     * @param previousPet the pet this one replaces, or null
+     */
+    public void index(long id, Pet pet, Pet previousPet) {
+        IndexedKeys current = IndexedKeys.of(pet);
+        IndexedKeys previous = keysById != null ? keysById.put(id, current) : previousPet != null ? IndexedKeys.of(previousPet) : null;
+        // add the new postings before dropping the old ones so the pet never disappears from a query
+        addPostings(id, current, previous);
+        if(previous != null) removePostings(id, previous, current);
+    }
+
+    public void unindex(long id, Pet previousPet) {
+        IndexedKeys previous = keysById != null ? keysById.remove(id) : IndexedKeys.of(previousPet);
+        if(previous != null) removePostings(id, previous, IndexedKeys.NONE);
+    }
+
+    public ConcurrentLongSet withStatus(Status status) {
+        return byStatus.get(status);
+    }
+
+    public ConcurrentLongSet inCategory(long categoryId) {
+        ConcurrentLongSet postings = byCategory.get(categoryId);
+        return postings != null ? postings : EMPTY;
+    }
+
+    public ConcurrentLongSet withTag(long tagId) {
+        ConcurrentLongSet postings = byTag.get(tagId);
+        return postings != null ? postings : EMPTY;
+    }
+
+    /**
+     * @return how many pets have a name starting with the prefix; the prefix must not be empty
+     */
+    public int countNamesStartingWith(String prefix) {
+        String folded = foldCase(prefix);
+        if(folded.length() > 1) return nameShard(folded).count(folded);
+        // names starting with a single character live in every shard
+        int count = 0;
+        for(NameTrie shard : byName) count += shard.count(folded);
+        return count;
+    }
+
+    /**
+     * Visits the ids of the pets whose name starts with the prefix, in case-insensitive name
+     * order, until the visitor returns false. The prefix must not be empty.
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    public boolean forEachNameStartingWith(String prefix, LongPredicate visitor) {
+        String folded = foldCase(prefix);
+        if(folded.length() > 1) return nameShard(folded).forEachWhile(folded, visitor);
+        // a single character: the name that is just that character comes first, then the names
+        // under each second character in order, each of which is in one shard
+        if(!nameShard(folded).forEachIdWhile(folded, visitor)) return false;
+        BitSet secondChars = new BitSet();
+        for(NameTrie shard : byName) shard.collectNextChars(folded, secondChars);
+        for(int c = secondChars.nextSetBit(0); c >= 0; c = secondChars.nextSetBit(c + 1)) {
+            String firstTwo = folded + (char) c;
+            if(!nameShard(firstTwo).forEachWhile(firstTwo, visitor)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the pet was indexed under a name starting with the prefix
+     */
+    public boolean nameStartsWith(long id, String prefix) {
+        if(keysById == null) {
+            Pet pet = storedPets.apply(id);
+            return pet != null && pet.getName() != null && pet.getName().regionMatches(true, 0, prefix, 0, prefix.length());
+        }
+        IndexedKeys keys = keysById.get(id);
+        return keys != null && keys.name != null && keys.name.startsWith(foldCase(prefix));
+    }
+
+    /**
+     * Postings of every trigram of the text; a pet whose name contains the text is in all of them.
+     *
+     * @return the postings sets, or null when the text is too short to have a trigram
+     */
+    public List<ConcurrentLongSet> nameTrigrams(String text) {
+        long[] trigrams = trigrams(foldCase(text));
+        if(trigrams.length == 0) return null;
+        List<ConcurrentLongSet> postingsLists = new ArrayList<>(trigrams.length);
+        for(long trigram : trigrams) {
+            ConcurrentLongSet postings = byTrigram.get(trigram);
+            postingsLists.add(postings != null ? postings : EMPTY);
+        }
+        return postingsLists;
+    }
+
+    /**
+     * Folds every character the way {@link String#regionMatches(boolean, int, String, int, int)}
+     * compares them when ignoring case, keeping the length of the string.
+     */
+    public static String foldCase(String text) {
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(fold(c) == c) continue;
+            char[] folded = text.toCharArray();
+            for(int j = i; j < folded.length; j++) folded[j] = fold(folded[j]);
+            return new String(folded);
+        }
+        return text;
+    }
+
+    /**
+     * Visits the ids present in every given postings set, walking the smallest set
+     * and probing the others.
+     */
+    public static void intersect(Collection<ConcurrentLongSet> postingsLists, LongConsumer consumer) {
+        if(postingsLists.isEmpty()) return;
+        List<ConcurrentLongSet> bySize = new ArrayList<>(postingsLists);
+        bySize.sort(Comparator.comparingInt(ConcurrentLongSet::size));
+        ConcurrentLongSet smallest = bySize.get(0);
+        List<ConcurrentLongSet> others = bySize.subList(1, bySize.size());
+        smallest.forEach(id -> {
+            for(ConcurrentLongSet postings : others) if(!postings.contains(id)) return;
+            consumer.accept(id);
+        });
+    }
+
+    public int size(Status status) {
+        return byStatus.get(status).size();
+    }
+
+    public int categoryCount() {
+        return byCategory.size();
+    }
+
+    public int tagCount() {
+        return byTag.size();
+    }
+
+    private void addPostings(long id, IndexedKeys keys, IndexedKeys previous) {
+        if(keys.status != null) byStatus.get(keys.status).add(id);
+        if(keys.categoryId != null) addPosting(byCategory, keys.categoryId, id);
+        for(long tagId : keys.tagIds) addPosting(byTag, tagId, id);
+        // renames are rare next to other updates, so an unchanged name skips the trie lock
+        if(keys.name == null || previous != null && keys.name.equals(previous.name)) return;
+        nameShard(keys.name).add(keys.name, id);
+        for(long trigram : keys.trigrams) addPosting(byTrigram, trigram, id);
+    }
+
+    private void removePostings(long id, IndexedKeys previous, IndexedKeys current) {
+        if(previous.status != null && previous.status != current.status) byStatus.get(previous.status).remove(id);
+        if(previous.categoryId != null && !previous.categoryId.equals(current.categoryId)) removePosting(byCategory, previous.categoryId, id);
+        for(long tagId : previous.tagIds) if(!current.hasTag(tagId)) removePosting(byTag, tagId, id);
+        if(previous.name != null && !previous.name.equals(current.name)) nameShard(previous.name).remove(previous.name, id);
+        for(long trigram : previous.trigrams) if(!current.hasTrigram(trigram)) removePosting(byTrigram, trigram, id);
+    }
+
+    private NameTrie nameShard(String foldedName) {
+        int hash = foldedName.charAt(0) * 31 + (foldedName.length() > 1 ? foldedName.charAt(1) : 0);
+        return byName[(hash ^ hash >>> 6) & (NAME_SHARDS - 1)];
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    // distinct trigrams, each packed as three 16-bit chars, sorted
+    private static long[] trigrams(String foldedText) {
+        if(foldedText.length() < TRIGRAM_LENGTH) return new long[0];
+        long[] trigrams = new long[foldedText.length() - TRIGRAM_LENGTH + 1];
+        for(int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (long) foldedText.charAt(i) << 32 | (long) foldedText.charAt(i + 1) << 16 | foldedText.charAt(i + 2);
+        }
+        return Arrays.stream(trigrams).distinct().sorted().toArray();
+    }
+
+    private static void addPosting(ConcurrentLongMap<ConcurrentLongSet> index, long key, long id) {
+        index.compute(key, (k, postings) -> {
+            if(postings == null) postings = new ConcurrentLongSet();
+            postings.add(id);
+            return postings;
+        });
+    }
+
+    private static void removePosting(ConcurrentLongMap<ConcurrentLongSet> index, long key, long id) {
+        index.compute(key, (k, postings) -> {
+            if(postings == null) return null;
+            postings.remove(id);
+            return postings.isEmpty() ? null : postings;
+        });
+    }
+
+    private static final class IndexedKeys {
+        static final IndexedKeys NONE = new IndexedKeys(null, null, new long[0], null, new long[0]);
+
+        final Status status;
+        final Long categoryId;
+        final long[] tagIds;
+        final String name;
+        final long[] trigrams;
+
+        IndexedKeys(Status status, Long categoryId, long[] tagIds, String name, long[] trigrams) {
+            this.status = status;
+            this.categoryId = categoryId;
+            this.tagIds = tagIds;
+            this.name = name;
+            this.trigrams = trigrams;
+        }
+
+        static IndexedKeys of(Pet pet) {
+            Long categoryId = pet.getCategory() != null ? pet.getCategory().getId() : null;
+            long[] tagIds = pet.getTags() == null ? new long[0] : pet.getTags().stream()
+                    .filter(Objects::nonNull).map(Tag::getId).filter(Objects::nonNull)
+                    .mapToLong(Long::longValue).distinct().sorted().toArray();
+            String name = pet.getName() == null || pet.getName().isEmpty() ? null : foldCase(pet.getName());
+            return new IndexedKeys(pet.getStatus(), categoryId, tagIds, name, name != null ? trigrams(name) : new long[0]);
+        }
+
+        boolean hasTag(long tagId) {
+            return Arrays.binarySearch(tagIds, tagId) >= 0;
+        }
+
+        boolean hasTrigram(long trigram) {
+            return Arrays.binarySearch(trigrams, trigram) >= 0;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.project.repository.persistence;
+
+import com.project.exception.StorageException;
+import com.project.model.Pet;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * {@link PetJournal} backed by a {@link WriteAheadLog} and periodic snapshots in one directory.
+ * A background thread group-commits the log every flush interval; with synchronous writes
+ * enabled, each writer waits for the flush that covers its record.
+ */
+@Slf4j
+public class FilePetJournal implements PetJournal {
+    private final Path directory;
+    private final Duration flushInterval;
+    private final Duration snapshotInterval;
+    private final boolean syncWrites;
+
+    private volatile WriteAheadLog writeAheadLog;
+    private SnapshotSource snapshotSource;
+    private ScheduledExecutorService scheduler;
+
+    public FilePetJournal(Path directory, Duration flushInterval, Duration snapshotInterval, boolean syncWrites) {
+        this.directory = directory;
+        this.flushInterval = flushInterval;
+        this.snapshotInterval = snapshotInterval;
+        this.syncWrites = syncWrites;
+    }
+
+    @Override
+    public synchronized boolean open(Consumer<Pet> onSave, LongConsumer onDelete, SnapshotSource source) {
+        if(writeAheadLog != null) throw new IllegalStateException("Journal is already open");
+        try {
+            Files.createDirectories(directory);
+        } catch(IOException e) {
+            throw new StorageException("Failed to create persistence directory " + directory, e);
+        }
+        Optional<Long> snapshotSegment = SnapshotFiles.readLatest(directory, onSave);
+        long fromSegment = snapshotSegment.orElse(0L);
+        WriteAheadLog.ReplayResult replay = WriteAheadLog.replay(directory, fromSegment, onSave, onDelete);
+        writeAheadLog = new WriteAheadLog(directory, replay.getLastSegment());
+        snapshotSource = source;
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "pet-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushNanos = Math.max(1, flushInterval.toNanos());
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushNanos, flushNanos, TimeUnit.NANOSECONDS);
+        if(!snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+            long snapshotNanos = snapshotInterval.toNanos();
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotNanos, snapshotNanos, TimeUnit.NANOSECONDS);
+        }
+        log.info("Recovered pet store from {} (snapshot: {}, log records replayed: {})", directory, snapshotSegment.isPresent(), replay.getRecords());
+        return snapshotSegment.isPresent() || replay.getRecords() > 0;
+    }
+
+    @Override
+    public long appendSave(Pet pet) {
+        return writeAheadLog.appendPut(pet);
+    }
+
+    @Override
+    public long appendDelete(long id) {
+        return writeAheadLog.appendDelete(id);
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if(syncWrites) writeAheadLog.awaitDurable(position);
+    }
+
+    @Override
+    public CompletableFuture<Void> whenDurable(long position) {
+        return syncWrites ? writeAheadLog.whenDurable(position) : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Rotates the log, writes a snapshot of the store and drops the segments it covers. The
+     * snapshot may also contain writes logged after the rotation; replaying them again is harmless
+     * because every record carries the full state of its pet.
+     */
+    @Override
+    public synchronized void snapshot() {
+        if(writeAheadLog == null) return;
+        long segment = writeAheadLog.rotate();
+        SnapshotFiles.write(directory, segment, snapshotSource);
+        SnapshotFiles.deleteBefore(directory, segment);
+        WriteAheadLog.deleteSegmentsBefore(directory, segment);
+    }
+
+    @Override
+    public synchronized void close() {
+        if(writeAheadLog == null) return;
+        scheduler.shutdownNow();
+        writeAheadLog.close();
+        writeAheadLog = null;
+    }
+
+    private void flushQuietly() {
+        WriteAheadLog current = writeAheadLog;
+        if(current == null) return;
+        try {
+            current.flush();
+        } catch(RuntimeException e) {
+            // the log stops itself on a failed flush, so this is reported once and writes fail from now on
+            log.error("Failed to flush the pet write-ahead log; it no longer accepts writes", e);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch(RuntimeException e) {
+            log.error("Failed to snapshot the pet store", e);
+        }
+    }
+}
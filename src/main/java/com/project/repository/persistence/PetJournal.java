@@ -0,0 +1,85 @@
+package com.project.repository.persistence;
+
+import com.project.model.Pet;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Durability hook of {@code PetRepository}. The repository appends every write while it holds the
+ * written key, so the journal sees the writes to one pet in the same order as the store, and
+ * waits for durability only after releasing it.
+ */
+public interface PetJournal extends AutoCloseable {
+
+    PetJournal NONE = new PetJournal() {
+        @Override
+        public boolean open(Consumer<Pet> onSave, LongConsumer onDelete, SnapshotSource source) {
+            return false;
+        }
+
+        @Override
+        public long appendSave(Pet pet) {
+            return 0;
+        }
+
+        @Override
+        public long appendDelete(long id) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+
+        @Override
+        public CompletableFuture<Void> whenDurable(long position) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void snapshot() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Replays the durable state through the callbacks and starts journaling.
+     *
+     * @return true if any durable state was found
+     */
+    boolean open(Consumer<Pet> onSave, LongConsumer onDelete, SnapshotSource source);
+
+    /**
+     * @return the log position to pass to {@link #awaitDurable(long)}
+     */
+    long appendSave(Pet pet);
+
+    long appendDelete(long id);
+
+    void awaitDurable(long position);
+
+    /**
+     * Like {@link #awaitDurable(long)}, but completes the future instead of blocking the caller.
+     */
+    CompletableFuture<Void> whenDurable(long position);
+
+    void snapshot();
+
+    @Override
+    void close();
+
+    @FunctionalInterface
+    interface SnapshotSource {
+        /**
+         * Hands the current store contents over in chunks. Every write whose journal append
+         * happened before the call must be visible in the chunks.
+         */
+        void forEachChunk(Consumer<List<Pet>> chunkConsumer);
+    }
+}
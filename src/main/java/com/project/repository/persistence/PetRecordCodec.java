@@ -0,0 +1,167 @@
+package com.project.repository.persistence;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary layout of a {@link Pet}. The id, status and version sit at fixed offsets so they
+ * can be read without decoding the rest of the record; everything after them is variable length:
+ * <pre>
+ * long id | byte status | long version | string name | category | list photoUrls | list tags
+ * </pre>
+ * A version of 0 stands for a pet that has not been stored yet.
+ * Strings are an int byte length (-1 for null) followed by UTF-8 bytes, lists an int count
+ * (-1 for null) followed by their elements, and nullable objects a presence byte.
+ */
+public final class PetRecordCodec {
+    public static final int ID_OFFSET = 0;
+    public static final int STATUS_OFFSET = 8;
+
+    private static final Status[] STATUSES = Status.values();
+    private static final byte NO_STATUS = -1;
+    private static final int NULL_LENGTH = -1;
+    private static final long NO_VERSION = 0;
+
+    private PetRecordCodec() {
+    }
+
+    public static byte[] encode(Pet pet) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(pet));
+        encode(pet, buffer);
+        return buffer.array();
+    }
+
+    public static void encode(Pet pet, ByteBuffer buffer) {
+        buffer.putLong(pet.getId());
+        buffer.put(pet.getStatus() == null ? NO_STATUS : (byte) pet.getStatus().ordinal());
+        buffer.putLong(pet.getVersion() == null ? NO_VERSION : pet.getVersion());
+        putString(buffer, pet.getName());
+        Category category = pet.getCategory();
+        buffer.put((byte) (category == null ? 0 : 1));
+        if(category != null) {
+            putNullableLong(buffer, category.getId());
+            putString(buffer, category.getName());
+        }
+        List<String> photoUrls = pet.getPhotoUrls();
+        buffer.putInt(photoUrls == null ? NULL_LENGTH : photoUrls.size());
+        if(photoUrls != null) photoUrls.forEach(photoUrl -> putString(buffer, photoUrl));
+        List<Tag> tags = pet.getTags();
+        buffer.putInt(tags == null ? NULL_LENGTH : tags.size());
+        if(tags != null) {
+            for(Tag tag : tags) {
+                buffer.put((byte) (tag == null ? 0 : 1));
+                if(tag == null) continue;
+                putNullableLong(buffer, tag.getId());
+                putString(buffer, tag.getName());
+            }
+        }
+    }
+
+    public static int encodedSize(Pet pet) {
+        int size = Long.BYTES + 1 + Long.BYTES + stringSize(pet.getName()) + 1;
+        if(pet.getCategory() != null) size += nullableLongSize(pet.getCategory().getId()) + stringSize(pet.getCategory().getName());
+        size += Integer.BYTES;
+        if(pet.getPhotoUrls() != null) for(String photoUrl : pet.getPhotoUrls()) size += stringSize(photoUrl);
+        size += Integer.BYTES;
+        if(pet.getTags() != null) {
+            for(Tag tag : pet.getTags()) {
+                size += 1;
+                if(tag != null) size += nullableLongSize(tag.getId()) + stringSize(tag.getName());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Decodes the record starting at the buffer's position and leaves the position after it.
+     */
+    public static Pet decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        Status status = toStatus(buffer.get());
+        long version = buffer.getLong();
+        String name = getString(buffer);
+        Category category = null;
+        if(buffer.get() != 0) category = new Category(getNullableLong(buffer), getString(buffer));
+        List<String> photoUrls = null;
+        int photoCount = buffer.getInt();
+        if(photoCount != NULL_LENGTH) {
+            photoUrls = new ArrayList<>(photoCount);
+            for(int i = 0; i < photoCount; i++) photoUrls.add(getString(buffer));
+        }
+        List<Tag> tags = null;
+        int tagCount = buffer.getInt();
+        if(tagCount != NULL_LENGTH) {
+            tags = new ArrayList<>(tagCount);
+            for(int i = 0; i < tagCount; i++) tags.add(buffer.get() == 0 ? null : new Tag(getNullableLong(buffer), getString(buffer)));
+        }
+        return Pet.builder().id(id).name(name).category(category).photoUrls(photoUrls).tags(tags).status(status).version(version == NO_VERSION ? null : version).build();
+    }
+
+    public static long readId(ByteBuffer buffer, int recordOffset) {
+        return buffer.getLong(recordOffset + ID_OFFSET);
+    }
+
+    public static Status readStatus(ByteBuffer buffer, int recordOffset) {
+        return toStatus(buffer.get(recordOffset + STATUS_OFFSET));
+    }
+
+    private static Status toStatus(byte ordinal) {
+        return ordinal == NO_STATUS ? null : STATUSES[ordinal];
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if(value == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if(length == NULL_LENGTH) return null;
+        if(length < 0 || length > buffer.remaining()) throw new IllegalArgumentException("Corrupt string length " + length);
+        String value;
+        if(buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static void putNullableLong(ByteBuffer buffer, Long value) {
+        buffer.put((byte) (value == null ? 0 : 1));
+        if(value != null) buffer.putLong(value);
+    }
+
+    private static Long getNullableLong(ByteBuffer buffer) {
+        return buffer.get() == 0 ? null : buffer.getLong();
+    }
+
+    private static int stringSize(String value) {
+        // exact UTF-8 length without encoding twice for the common ASCII case
+        if(value == null) return Integer.BYTES;
+        int size = value.length();
+        for(int i = 0; i < value.length(); i++) {
+            if(value.charAt(i) >= 0x80) return Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return Integer.BYTES + size;
+    }
+
+    private static int nullableLongSize(Long value) {
+        return value == null ? 1 : 1 + Long.BYTES;
+    }
+}
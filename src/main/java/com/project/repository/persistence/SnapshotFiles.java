@@ -0,0 +1,167 @@
+package com.project.repository.persistence;
+
+import com.project.exception.StorageException;
+import com.project.model.Pet;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Full copies of the store. A snapshot named after segment N holds every write logged before
+ * segment N, so recovery loads it and replays the log from segment N on. Snapshots are written
+ * to a temporary file, forced, and only then renamed into place, so a crash while writing one
+ * leaves the previous snapshot in charge.
+ * <pre>
+ * int magic | (int length | int CRC32C | pet record)* | int -1 | long record count
+ * </pre>
+ */
+final class SnapshotFiles {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x50455453;
+    private static final int END_OF_RECORDS = -1;
+    private static final int BUFFER_BYTES = 1024 * 1024;
+
+    private SnapshotFiles() {
+    }
+
+    static void write(Path directory, long segment, PetJournal.SnapshotSource source) {
+        Path temporary = directory.resolve(fileName(segment) + TEMPORARY_SUFFIX);
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SnapshotWriter writer = new SnapshotWriter(channel);
+            source.forEachChunk(writer::write);
+            writer.finish();
+            channel.force(true);
+        } catch(IOException e) {
+            throw new StorageException("Failed to write snapshot " + temporary, e);
+        }
+        try {
+            Files.move(temporary, directory.resolve(fileName(segment)), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            throw new StorageException("Failed to publish snapshot " + temporary, e);
+        }
+    }
+
+    /**
+     * Loads the newest snapshot, if any.
+     *
+     * @return the segment to replay the log from, empty if there is no snapshot
+     */
+    static Optional<Long> readLatest(Path directory, Consumer<Pet> onPet) {
+        List<Long> segments = snapshotSegments(directory);
+        if(segments.isEmpty()) return Optional.empty();
+        long segment = segments.get(segments.size() - 1);
+        Path path = directory.resolve(fileName(segment));
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if(in.readInt() != MAGIC) throw new StorageException("Snapshot " + path + " has an invalid header");
+            CRC32C crc = new CRC32C();
+            long records = 0;
+            for(int length = in.readInt(); length != END_OF_RECORDS; length = in.readInt()) {
+                int expectedChecksum = in.readInt();
+                byte[] record = new byte[length];
+                in.readFully(record);
+                crc.reset();
+                crc.update(record);
+                if((int) crc.getValue() != expectedChecksum) throw new StorageException("Snapshot " + path + " is corrupt");
+                onPet.accept(PetRecordCodec.decode(ByteBuffer.wrap(record)));
+                records++;
+            }
+            if(in.readLong() != records) throw new StorageException("Snapshot " + path + " is incomplete");
+        } catch(IOException e) {
+            throw new StorageException("Failed to read snapshot " + path, e);
+        }
+        return Optional.of(segment);
+    }
+
+    static void deleteBefore(Path directory, long segment) {
+        try(Stream<Path> files = Files.list(directory)) {
+            for(Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                if(name.startsWith(PREFIX) && name.endsWith(SUFFIX + TEMPORARY_SUFFIX)) Files.deleteIfExists(path);
+            }
+            for(long older : snapshotSegments(directory)) {
+                if(older < segment) Files.deleteIfExists(directory.resolve(fileName(older)));
+            }
+        } catch(IOException e) {
+            throw new StorageException("Failed to delete old snapshots in " + directory, e);
+        }
+    }
+
+    private static List<Long> snapshotSegments(Path directory) {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch(IOException e) {
+            throw new StorageException("Failed to list snapshots in " + directory, e);
+        }
+    }
+
+    private static String fileName(long segment) {
+        return String.format("%s%020d%s", PREFIX, segment, SUFFIX);
+    }
+
+    private static final class SnapshotWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final CRC32C crc = new CRC32C();
+        private long records;
+
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+            buffer.putInt(MAGIC);
+        }
+
+        void write(List<Pet> pets) {
+            try {
+                for(Pet pet : pets) {
+                    byte[] record = PetRecordCodec.encode(pet);
+                    crc.reset();
+                    crc.update(record);
+                    ensureRoom(2 * Integer.BYTES);
+                    buffer.putInt(record.length).putInt((int) crc.getValue());
+                    for(int offset = 0; offset < record.length; ) {
+                        ensureRoom(1);
+                        int chunk = Math.min(buffer.remaining(), record.length - offset);
+                        buffer.put(record, offset, chunk);
+                        offset += chunk;
+                    }
+                    records++;
+                }
+            } catch(IOException e) {
+                throw new StorageException("Failed to write snapshot", e);
+            }
+        }
+
+        void finish() throws IOException {
+            ensureRoom(Integer.BYTES + Long.BYTES);
+            buffer.putInt(END_OF_RECORDS).putLong(records);
+            drain();
+        }
+
+        private void ensureRoom(int bytes) throws IOException {
+            if(buffer.remaining() < bytes) drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.project.repository.persistence;
+
+import com.project.exception.StorageException;
+import com.project.model.Pet;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of pet writes split into numbered segment files. Each record is framed as
+ * <pre>
+ * int payload length | int CRC32C of type and payload | byte type | payload
+ * </pre>
+ * Appends only copy the record into an in-memory buffer; {@link #flush()} writes the buffer to
+ * the segment and forces it to disk, so one fsync commits every record appended since the last
+ * flush. Positions returned by the appends are logical byte offsets that keep growing across
+ * segments and can be compared with {@link #durablePosition()}.
+ * <p>
+ * A failed write or sync stops the log for good: after it nothing says which buffered records
+ * reached the disk, so the log closes, further appends fail, and writers waiting for durability
+ * get the failure instead of waiting for a flush that will never succeed.
+ * <p>
+ * Writers wait for durability either by blocking in {@link #awaitDurable} or through the future of
+ * {@link #whenDurable}, which the flush that covers the position completes on its own thread.
+ */
+@Slf4j
+public class WriteAheadLog implements AutoCloseable {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + 1;
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024 * 1024;
+    private static final int BUFFER_BYTES = 1024 * 1024;
+
+    private final Path directory;
+    // explicit locks rather than monitors, so virtual threads blocked on them unmount from their carrier
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock durabilityLock = new ReentrantLock();
+    private final Condition durable = durabilityLock.newCondition();
+    // guarded by the durability lock, ordered by position
+    private final PriorityQueue<DurabilityWaiter> durabilityWaiters = new PriorityQueue<>(Comparator.comparingLong(DurabilityWaiter::getPosition));
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32C checksum = new CRC32C();
+    private final SegmentSync sync;
+
+    private FileChannel channel;
+    private long segment;
+    private long appendedPosition;
+    private long writtenPosition;
+    private volatile long durablePosition;
+    private volatile boolean closed;
+    private volatile StorageException failure;
+
+    /**
+     * Opens the given segment for appending, creating it if needed.
+     */
+    public WriteAheadLog(Path directory, long segment) {
+        this(directory, segment, channel -> channel.force(false));
+    }
+
+    WriteAheadLog(Path directory, long segment, SegmentSync sync) {
+        this.directory = directory;
+        this.segment = segment;
+        this.sync = sync;
+        this.channel = openSegment(segment);
+    }
+
+    public long appendPut(Pet pet) {
+        ByteBuffer payload = ByteBuffer.allocate(PetRecordCodec.encodedSize(pet));
+        PetRecordCodec.encode(pet, payload);
+        return append(PUT, payload.flip());
+    }
+
+    public long appendDelete(long id) {
+        return append(DELETE, ByteBuffer.allocate(Long.BYTES).putLong(id).flip());
+    }
+
+    private long append(byte type, ByteBuffer payload) {
+        int length = payload.remaining();
+        if(length > MAX_PAYLOAD_BYTES) throw new StorageException("Record of " + length + " bytes is too large for the log");
+        int frameBytes = HEADER_BYTES + length;
+        appendLock.lock();
+        try {
+            if(closed) throw closedException();
+            checksum.reset();
+            checksum.update(type);
+            checksum.update(payload.duplicate());
+            try {
+                if(buffer.remaining() < frameBytes) drainBuffer();
+                if(buffer.remaining() < frameBytes) {
+                    ByteBuffer frame = ByteBuffer.allocate(frameBytes);
+                    putFrame(frame, type, payload);
+                    writeFully(frame.flip());
+                    writtenPosition += frameBytes;
+                } else {
+                    putFrame(buffer, type, payload);
+                }
+            } catch(IOException e) {
+                throw fail("Failed to append to the write-ahead log", e);
+            }
+            appendedPosition += frameBytes;
+            return appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Writes every buffered record to the current segment and forces it to disk.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            FileChannel segmentChannel;
+            long target;
+            appendLock.lock();
+            try {
+                if(closed) return;
+                try {
+                    drainBuffer();
+                } catch(IOException e) {
+                    throw fail("Failed to write the write-ahead log", e);
+                }
+                segmentChannel = channel;
+                target = writtenPosition;
+            } finally {
+                appendLock.unlock();
+            }
+            if(target <= durablePosition) return;
+            try {
+                sync.force(segmentChannel);
+            } catch(IOException e) {
+                appendLock.lock();
+                try {
+                    throw fail("Failed to sync the write-ahead log", e);
+                } finally {
+                    appendLock.unlock();
+                }
+            }
+            markDurable(target);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Makes everything appended so far durable and starts a new segment.
+     *
+     * @return the number of the new segment; later appends go to it or to a newer one
+     */
+    public long rotate() {
+        flushLock.lock();
+        try {
+            long target;
+            appendLock.lock();
+            try {
+                if(closed) throw closedException();
+                try {
+                    drainBuffer();
+                    sync.force(channel);
+                    channel.close();
+                } catch(IOException e) {
+                    throw fail("Failed to close write-ahead log segment " + segment, e);
+                }
+                channel = openSegment(++segment);
+                target = writtenPosition;
+            } finally {
+                appendLock.unlock();
+            }
+            markDurable(target);
+            return segment;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void awaitDurable(long position) {
+        if(durablePosition >= position) return;
+        durabilityLock.lock();
+        try {
+            while(durablePosition < position) {
+                if(failure != null) throw new StorageException("Write-ahead log failed before the record became durable", failure);
+                if(closed) throw new StorageException("Write-ahead log closed before the record became durable");
+                try {
+                    durable.await();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StorageException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+        } finally {
+            durabilityLock.unlock();
+        }
+    }
+
+    /**
+     * Like {@link #awaitDurable}, but returns at once: the future completes when the flush covering
+     * the position is done, on the flushing thread, so whatever depends on it must be quick or hand
+     * the work over to another thread.
+     */
+    public CompletableFuture<Void> whenDurable(long position) {
+        if(durablePosition >= position) return CompletableFuture.completedFuture(null);
+        durabilityLock.lock();
+        try {
+            if(durablePosition >= position) return CompletableFuture.completedFuture(null);
+            if(failure != null) return CompletableFuture.failedFuture(new StorageException("Write-ahead log failed before the record became durable", failure));
+            if(closed) return CompletableFuture.failedFuture(new StorageException("Write-ahead log closed before the record became durable"));
+            DurabilityWaiter waiter = new DurabilityWaiter(position, new CompletableFuture<>());
+            durabilityWaiters.add(waiter);
+            return waiter.getFuture();
+        } finally {
+            durabilityLock.unlock();
+        }
+    }
+
+    public long durablePosition() {
+        return durablePosition;
+    }
+
+    @Override
+    public void close() {
+        flushLock.lock();
+        try {
+            long target;
+            appendLock.lock();
+            try {
+                if(closed) return;
+                try {
+                    drainBuffer();
+                    sync.force(channel);
+                    channel.close();
+                } catch(IOException e) {
+                    throw fail("Failed to close the write-ahead log", e);
+                } finally {
+                    closed = true;
+                }
+                target = writtenPosition;
+            } finally {
+                appendLock.unlock();
+            }
+            markDurable(target);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Replays every segment numbered {@code fromSegment} or higher, in order. A record that fails
+     * its length or checksum check ends its segment; at the end of the last segment that is a write
+     * torn by a crash, so the segment is truncated there and appends can resume cleanly.
+     */
+    public static ReplayResult replay(Path directory, long fromSegment, Consumer<Pet> onPut, LongConsumer onDelete) {
+        List<Long> segments = segmentNumbers(directory).stream().filter(number -> number >= fromSegment).toList();
+        long records = 0;
+        for(int i = 0; i < segments.size(); i++) {
+            records += replaySegment(segmentPath(directory, segments.get(i)), i == segments.size() - 1, onPut, onDelete);
+        }
+        return new ReplayResult(segments.isEmpty() ? fromSegment : segments.get(segments.size() - 1), records);
+    }
+
+    public static void deleteSegmentsBefore(Path directory, long segment) {
+        for(long number : segmentNumbers(directory)) {
+            if(number >= segment) continue;
+            try {
+                Files.deleteIfExists(segmentPath(directory, number));
+            } catch(IOException e) {
+                throw new StorageException("Failed to delete write-ahead log segment " + number, e);
+            }
+        }
+    }
+
+    static List<Long> segmentNumbers(Path directory) {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch(IOException e) {
+            throw new StorageException("Failed to list write-ahead log segments in " + directory, e);
+        }
+    }
+
+    static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static long replaySegment(Path path, boolean lastSegment, Consumer<Pet> onPut, LongConsumer onDelete) {
+        long validBytes = 0;
+        long records = 0;
+        try {
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+                CRC32C crc = new CRC32C();
+                while(true) {
+                    int length;
+                    int expectedChecksum;
+                    byte type;
+                    byte[] payload;
+                    try {
+                        length = in.readInt();
+                        expectedChecksum = in.readInt();
+                        if(length < 0 || length > MAX_PAYLOAD_BYTES) break;
+                        type = in.readByte();
+                        payload = new byte[length];
+                        in.readFully(payload);
+                    } catch(EOFException e) {
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(type);
+                    crc.update(payload);
+                    if((int) crc.getValue() != expectedChecksum) break;
+                    if(type == PUT) onPut.accept(PetRecordCodec.decode(ByteBuffer.wrap(payload)));
+                    else if(type == DELETE) onDelete.accept(ByteBuffer.wrap(payload).getLong());
+                    else break;
+                    validBytes += HEADER_BYTES + length;
+                    records++;
+                }
+            }
+            long size = Files.size(path);
+            if(validBytes < size) {
+                if(lastSegment) {
+                    log.warn("Discarding {} bytes of torn records at the end of {}", size - validBytes, path);
+                    try(FileChannel truncated = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        truncated.truncate(validBytes);
+                        truncated.force(true);
+                    }
+                } else {
+                    log.warn("Skipping {} unreadable bytes at the end of {}", size - validBytes, path);
+                }
+            }
+            return records;
+        } catch(IOException e) {
+            throw new StorageException("Failed to replay write-ahead log segment " + path, e);
+        }
+    }
+
+    private void putFrame(ByteBuffer destination, byte type, ByteBuffer payload) {
+        destination.putInt(payload.remaining());
+        destination.putInt((int) checksum.getValue());
+        destination.put(type);
+        destination.put(payload.duplicate());
+    }
+
+    private void drainBuffer() throws IOException {
+        if(buffer.position() == 0) return;
+        buffer.flip();
+        int bytes = buffer.remaining();
+        writeFully(buffer);
+        buffer.clear();
+        writtenPosition += bytes;
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while(source.hasRemaining()) channel.write(source);
+    }
+
+    // called with the append lock held, so no append is halfway through the buffer or the channel
+    private StorageException fail(String message, IOException cause) {
+        StorageException exception = new StorageException(message, cause);
+        try {
+            channel.close();
+        } catch(IOException e) {
+            exception.addSuppressed(e);
+        }
+        List<DurabilityWaiter> failed;
+        durabilityLock.lock();
+        try {
+            if(failure == null) failure = exception;
+            closed = true;
+            durable.signalAll();
+            failed = new ArrayList<>(durabilityWaiters);
+            durabilityWaiters.clear();
+        } finally {
+            durabilityLock.unlock();
+        }
+        StorageException waiterFailure = new StorageException("Write-ahead log failed before the record became durable", failure);
+        for(DurabilityWaiter waiter : failed) waiter.getFuture().completeExceptionally(waiterFailure);
+        return exception;
+    }
+
+    private StorageException closedException() {
+        StorageException cause = failure;
+        return cause != null ? new StorageException("Write-ahead log stopped after a failure", cause) : new StorageException("Write-ahead log is closed");
+    }
+
+    private void markDurable(long position) {
+        List<DurabilityWaiter> completed = new ArrayList<>();
+        List<DurabilityWaiter> abandoned = new ArrayList<>();
+        durabilityLock.lock();
+        try {
+            if(position > durablePosition) durablePosition = position;
+            durable.signalAll();
+            while(!durabilityWaiters.isEmpty() && durabilityWaiters.peek().getPosition() <= durablePosition) completed.add(durabilityWaiters.poll());
+            if(closed) {
+                abandoned.addAll(durabilityWaiters);
+                durabilityWaiters.clear();
+            }
+        } finally {
+            durabilityLock.unlock();
+        }
+        // completed outside the lock, since the futures run their dependents right here
+        for(DurabilityWaiter waiter : completed) waiter.getFuture().complete(null);
+        for(DurabilityWaiter waiter : abandoned) waiter.getFuture().completeExceptionally(new StorageException("Write-ahead log closed before the record became durable"));
+    }
+
+    private FileChannel openSegment(long number) {
+        try {
+            FileChannel segmentChannel = FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            segmentChannel.position(segmentChannel.size());
+            return segmentChannel;
+        } catch(IOException e) {
+            throw new StorageException("Failed to open write-ahead log segment " + number, e);
+        }
+    }
+
+    // how a segment is forced to disk; tests swap it to inject failures
+    interface SegmentSync {
+        void force(FileChannel channel) throws IOException;
+    }
+
+    @Value
+    private static class DurabilityWaiter {
+        long position;
+        CompletableFuture<Void> future;
+    }
+
+    @Value
+    public static class ReplayResult {
+        long lastSegment;
+        long records;
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.repository.query;
+
+import com.project.repository.store.ConcurrentLongSet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Ids that can match a query, as read from the secondary indexes. They are a superset of the
+ * matches: postings may lag the store, and other conditions of the query are not applied yet.
+ */
+public abstract class Candidates {
+
+    /**
+     * @return an upper bound on the number of ids
+     */
+    public abstract long estimatedSize();
+
+    public abstract boolean contains(long id);
+
+    /**
+     * Visits every id once, until the visitor returns false.
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    public abstract boolean forEachWhile(LongPredicate visitor);
+
+    public static Candidates of(ConcurrentLongSet postings) {
+        return new Candidates() {
+            @Override
+            public long estimatedSize() {
+                return postings.size();
+            }
+
+            @Override
+            public boolean contains(long id) {
+                return postings.contains(id);
+            }
+
+            @Override
+            public boolean forEachWhile(LongPredicate visitor) {
+                return postings.forEachWhile(visitor);
+            }
+        };
+    }
+
+    /**
+     * Ids present in every part; iteration walks the smallest part and probes the others.
+     */
+    public static Candidates intersection(List<Candidates> parts) {
+        if(parts.size() == 1) return parts.get(0);
+        List<Candidates> bySize = new ArrayList<>(parts);
+        bySize.sort(Comparator.comparingLong(Candidates::estimatedSize));
+        Candidates smallest = bySize.get(0);
+        List<Candidates> others = bySize.subList(1, bySize.size());
+        return new Candidates() {
+            @Override
+            public long estimatedSize() {
+                return smallest.estimatedSize();
+            }
+
+            @Override
+            public boolean contains(long id) {
+                for(Candidates part : bySize) if(!part.contains(id)) return false;
+                return true;
+            }
+
+            @Override
+            public boolean forEachWhile(LongPredicate visitor) {
+                return smallest.forEachWhile(id -> {
+                    for(Candidates part : others) if(!part.contains(id)) return true;
+                    return visitor.test(id);
+                });
+            }
+        };
+    }
+
+    /**
+     * Ids present in any part; an id in several parts is only visited for the first of them.
+     */
+    public static Candidates union(List<Candidates> parts) {
+        if(parts.size() == 1) return parts.get(0);
+        return new Candidates() {
+            @Override
+            public long estimatedSize() {
+                long size = 0;
+                for(Candidates part : parts) size += part.estimatedSize();
+                return size;
+            }
+
+            @Override
+            public boolean contains(long id) {
+                for(Candidates part : parts) if(part.contains(id)) return true;
+                return false;
+            }
+
+            @Override
+            public boolean forEachWhile(LongPredicate visitor) {
+                for(int i = 0; i < parts.size(); i++) {
+                    List<Candidates> earlier = parts.subList(0, i);
+                    boolean completed = parts.get(i).forEachWhile(id -> {
+                        for(Candidates part : earlier) if(part.contains(id)) return true;
+                        return visitor.test(id);
+                    });
+                    if(!completed) return false;
+                }
+                return true;
+            }
+        };
+    }
+}
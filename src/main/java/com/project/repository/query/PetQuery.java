@@ -0,0 +1,214 @@
+package com.project.repository.query;
+
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.index.PetIndexes;
+import com.project.repository.store.ConcurrentLongSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Condition on pets that {@link PetQueryEngine} evaluates. Conditions backed by a secondary
+ * index also describe the ids that can match them, so the engine can start from those instead of
+ * scanning the store; every candidate is still checked with {@link #matches}, because postings may
+ * briefly lag the store.
+ */
+@FunctionalInterface
+public interface PetQuery {
+
+    boolean matches(Pet pet);
+
+    /**
+     * @return a superset of the ids of matching pets, or null when only a scan can find them
+     */
+    default Candidates candidates(PetIndexes indexes) {
+        return null;
+    }
+
+    /**
+     * Case-insensitive name prefix, answered from the name trie.
+     */
+    static PetQuery namePrefix(String prefix) {
+        return new PetQuery() {
+            @Override
+            public boolean matches(Pet pet) {
+                return pet.getName() != null && pet.getName().regionMatches(true, 0, prefix, 0, prefix.length());
+            }
+
+            @Override
+            public Candidates candidates(PetIndexes indexes) {
+                if(prefix.isEmpty()) return null;
+                return new Candidates() {
+                    @Override
+                    public long estimatedSize() {
+                        return indexes.countNamesStartingWith(prefix);
+                    }
+
+                    @Override
+                    public boolean contains(long id) {
+                        return indexes.nameStartsWith(id, prefix);
+                    }
+
+                    @Override
+                    public boolean forEachWhile(LongPredicate visitor) {
+                        return indexes.forEachNameStartingWith(prefix, visitor);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Case-insensitive name substring, answered from the trigram postings when it is at least
+     * three characters long.
+     */
+    static PetQuery nameContains(String text) {
+        return new PetQuery() {
+            @Override
+            public boolean matches(Pet pet) {
+                String name = pet.getName();
+                if(name == null) return false;
+                for(int start = 0; start <= name.length() - text.length(); start++) {
+                    if(name.regionMatches(true, start, text, 0, text.length())) return true;
+                }
+                return false;
+            }
+
+            @Override
+            public Candidates candidates(PetIndexes indexes) {
+                List<ConcurrentLongSet> postingsLists = indexes.nameTrigrams(text);
+                if(postingsLists == null) return null;
+                List<Candidates> parts = new ArrayList<>(postingsLists.size());
+                for(ConcurrentLongSet postings : postingsLists) parts.add(Candidates.of(postings));
+                return Candidates.intersection(parts);
+            }
+        };
+    }
+
+    static PetQuery category(long categoryId) {
+        return new PetQuery() {
+            @Override
+            public boolean matches(Pet pet) {
+                return pet.getCategory() != null && Objects.equals(pet.getCategory().getId(), categoryId);
+            }
+
+            @Override
+            public Candidates candidates(PetIndexes indexes) {
+                return Candidates.of(indexes.inCategory(categoryId));
+            }
+        };
+    }
+
+    /**
+     * Pets carrying every one of the tag ids.
+     */
+    static PetQuery allTags(Collection<Long> tagIds) {
+        Set<Long> required = Set.copyOf(tagIds);
+        return new PetQuery() {
+            @Override
+            public boolean matches(Pet pet) {
+                if(pet.getTags() == null) return false;
+                int found = 0;
+                for(Long tagId : required) {
+                    for(Tag tag : pet.getTags()) {
+                        if(tag != null && tagId.equals(tag.getId())) {
+                            found++;
+                            break;
+                        }
+                    }
+                }
+                return found == required.size();
+            }
+
+            @Override
+            public Candidates candidates(PetIndexes indexes) {
+                List<Candidates> postings = new ArrayList<>(required.size());
+                for(Long tagId : required) postings.add(Candidates.of(indexes.withTag(tagId)));
+                return Candidates.intersection(postings);
+            }
+        };
+    }
+
+    static PetQuery status(Set<Status> statuses) {
+        Set<Status> wanted = Set.copyOf(statuses);
+        return new PetQuery() {
+            @Override
+            public boolean matches(Pet pet) {
+                return pet.getStatus() != null && wanted.contains(pet.getStatus());
+            }
+
+            @Override
+            public Candidates candidates(PetIndexes indexes) {
+                List<Candidates> postings = new ArrayList<>(wanted.size());
+                for(Status status : wanted) postings.add(Candidates.of(indexes.withStatus(status)));
+                return Candidates.union(postings);
+            }
+        };
+    }
+
+    /**
+     * Pets with between {@code min} and {@code max} photo URLs, both inclusive.
+     */
+    static PetQuery photoCount(int min, int max) {
+        return pet -> {
+            int count = pet.getPhotoUrls() == null ? 0 : pet.getPhotoUrls().size();
+            return count >= min && count <= max;
+        };
+    }
+
+    /**
+     * Matches when every condition does; indexed conditions narrow the candidates to the ids
+     * present in all of their postings.
+     */
+    static PetQuery and(List<PetQuery> conditions) {
+        List<PetQuery> all = List.copyOf(conditions);
+        return new PetQuery() {
+            @Override
+            public boolean matches(Pet pet) {
+                for(PetQuery condition : all) if(!condition.matches(pet)) return false;
+                return true;
+            }
+
+            @Override
+            public Candidates candidates(PetIndexes indexes) {
+                List<Candidates> indexed = new ArrayList<>();
+                for(PetQuery condition : all) {
+                    Candidates candidates = condition.candidates(indexes);
+                    if(candidates != null) indexed.add(candidates);
+                }
+                return indexed.isEmpty() ? null : Candidates.intersection(indexed);
+            }
+        };
+    }
+
+    /**
+     * Matches when any condition does; only indexed when every condition is.
+     */
+    static PetQuery or(List<PetQuery> conditions) {
+        List<PetQuery> any = List.copyOf(conditions);
+        return new PetQuery() {
+            @Override
+            public boolean matches(Pet pet) {
+                for(PetQuery condition : any) if(condition.matches(pet)) return true;
+                return false;
+            }
+
+            @Override
+            public Candidates candidates(PetIndexes indexes) {
+                List<Candidates> indexed = new ArrayList<>(any.size());
+                for(PetQuery condition : any) {
+                    Candidates candidates = condition.candidates(indexes);
+                    if(candidates == null) return null;
+                    indexed.add(candidates);
+                }
+                return indexed.isEmpty() ? null : Candidates.union(indexed);
+            }
+        };
+    }
+}
@@ -0,0 +1,162 @@
+package com.project.repository.query;
+
+import com.project.model.Pet;
+import com.project.repository.index.PetIndexes;
+import com.project.repository.store.PetStore;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates {@link PetQuery} searches. When the query's indexed conditions leave few enough
+ * candidates, they are resolved and checked one by one. Otherwise the store's spliterator is split
+ * into chunks of whole segments that a fork-join pool scans in parallel. Either way the result is
+ * the {@code limit} matches with the lowest ids above the cursor, ordered by id: each chunk keeps
+ * its lowest matches and the chunks are merged, so the same query returns the same pets however
+ * the work was split, and the next page starts after the last id returned.
+ */
+public class PetQueryEngine implements AutoCloseable {
+    // below this many pets a chunk is scanned rather than split further
+    static final int CHUNK_SIZE = 4096;
+    private static final Comparator<Pet> BY_ID = Comparator.comparing(Pet::getId);
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Scans on the common fork-join pool.
+     */
+    public PetQueryEngine() {
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Scans on a dedicated pool of {@code parallelism} workers, shut down by {@link #close()}.
+     */
+    public PetQueryEngine(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    public Result search(PetStore pets, PetIndexes indexes, PetQuery query, long afterId, int limit) {
+        if(limit <= 0) return new Result(List.of(), 0, false);
+        Candidates candidates = query.candidates(indexes);
+        // resolving a candidate costs about as much as checking a pet in a scan, but a scan is
+        // spread over the pool, so the index only wins while it cuts the work by more than that
+        boolean indexed = candidates != null && candidates.estimatedSize() <= Math.max(CHUNK_SIZE, pets.size() / pool.getParallelism());
+        Scan scan = new Scan(query, afterId, limit);
+        List<Pet> matches;
+        if(indexed) {
+            matches = scan.candidates(pets, candidates);
+        } else if(pets.size() <= CHUNK_SIZE) {
+            matches = scan.chunk(pets.spliterator());
+        } else {
+            matches = pool.invoke(new ScanTask(pets.spliterator(), scan));
+        }
+        matches.sort(BY_ID);
+        if(matches.size() > limit) matches = new ArrayList<>(matches.subList(0, limit));
+        return new Result(matches, scan.examined.sum(), indexed);
+    }
+
+    @Override
+    public void close() {
+        if(pool != ForkJoinPool.commonPool()) pool.shutdown();
+    }
+
+    @Value
+    public static class Result {
+        List<Pet> pets;
+        /**
+         * Pets checked against the query.
+         */
+        long examined;
+        /**
+         * Whether the search started from index candidates instead of scanning the store.
+         */
+        boolean indexed;
+    }
+
+    private static final class Scan {
+        private final PetQuery query;
+        private final long afterId;
+        private final int limit;
+        private final LongAdder examined = new LongAdder();
+
+        Scan(PetQuery query, long afterId, int limit) {
+            this.query = query;
+            this.afterId = afterId;
+            this.limit = limit;
+        }
+
+        // candidates come in no id order, so all of them are checked
+        List<Pet> candidates(PetStore pets, Candidates candidates) {
+            PriorityQueue<Pet> lowest = new PriorityQueue<>(BY_ID.reversed());
+            long[] checked = new long[1];
+            candidates.forEachWhile(id -> {
+                if(id <= afterId) return true;
+                Pet pet = pets.get(id);
+                if(pet == null) return true;
+                checked[0]++;
+                if(query.matches(pet)) keepLowest(lowest, pet);
+                return true;
+            });
+            examined.add(checked[0]);
+            return new ArrayList<>(lowest);
+        }
+
+        List<Pet> chunk(Spliterator<Pet> chunk) {
+            PriorityQueue<Pet> lowest = new PriorityQueue<>(BY_ID.reversed());
+            long[] checked = new long[1];
+            chunk.forEachRemaining(pet -> {
+                if(pet.getId() <= afterId) return;
+                checked[0]++;
+                if(query.matches(pet)) keepLowest(lowest, pet);
+            });
+            examined.add(checked[0]);
+            return new ArrayList<>(lowest);
+        }
+
+        // the queue's head is the highest id kept, so a lower match replaces it once the queue is full
+        private void keepLowest(PriorityQueue<Pet> lowest, Pet pet) {
+            if(lowest.size() < limit) {
+                lowest.add(pet);
+            } else if(pet.getId() < lowest.peek().getId()) {
+                lowest.poll();
+                lowest.add(pet);
+            }
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<List<Pet>> {
+        private final Spliterator<Pet> spliterator;
+        private final Scan scan;
+
+        ScanTask(Spliterator<Pet> spliterator, Scan scan) {
+            this.spliterator = spliterator;
+            this.scan = scan;
+        }
+
+        @Override
+        protected List<Pet> compute() {
+            List<ScanTask> forked = new ArrayList<>();
+            Spliterator<Pet> prefix;
+            while(spliterator.estimateSize() > CHUNK_SIZE && (prefix = spliterator.trySplit()) != null) {
+                ScanTask task = new ScanTask(prefix, scan);
+                task.fork();
+                forked.add(task);
+            }
+            List<Pet> matches = scan.chunk(spliterator);
+            for(ScanTask task : forked) matches.addAll(task.join());
+            return matches;
+        }
+    }
+}
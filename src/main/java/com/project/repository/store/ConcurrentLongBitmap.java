@@ -0,0 +1,101 @@
+package com.project.repository.store;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongPredicate;
+
+/**
+ * {@link OrderedLongSet} kept as a bitmap split into pages of 4096 values, so a dense run of
+ * values, like sequentially assigned pet ids, costs about a bit each instead of a skip list node.
+ * A page lives in a skip list under its page number while it has a value; isolated values cost a
+ * page each.
+ * <p>
+ * Readers never lock. Writers lock the page they change, so a page dropped by the removal of its
+ * last value is never written to again.
+ */
+public class ConcurrentLongBitmap implements OrderedLongSet {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_WORDS = (1 << PAGE_SHIFT) / Long.SIZE;
+
+    private final ConcurrentNavigableMap<Long, Page> pages = new ConcurrentSkipListMap<>();
+
+    @Override
+    public boolean add(long value) {
+        long pageNumber = value >> PAGE_SHIFT;
+        while(true) {
+            Page page = pages.computeIfAbsent(pageNumber, number -> new Page());
+            synchronized(page) {
+                if(page.dropped) continue;
+                return page.set(offset(value));
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(long value) {
+        long pageNumber = value >> PAGE_SHIFT;
+        Page page = pages.get(pageNumber);
+        if(page == null) return false;
+        synchronized(page) {
+            if(page.dropped || !page.clear(offset(value))) return false;
+            if(page.count == 0) {
+                page.dropped = true;
+                pages.remove(pageNumber, page);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public boolean forEachAfter(long after, LongPredicate visitor) {
+        if(after == Long.MAX_VALUE) return true;
+        long first = after + 1;
+        for(Map.Entry<Long, Page> entry : pages.tailMap(first >> PAGE_SHIFT, true).entrySet()) {
+            long base = entry.getKey() << PAGE_SHIFT;
+            int from = entry.getKey() == first >> PAGE_SHIFT ? offset(first) : 0;
+            if(!entry.getValue().forEachFrom(from, base, visitor)) return false;
+        }
+        return true;
+    }
+
+    private static int offset(long value) {
+        return (int) (value & ((1 << PAGE_SHIFT) - 1));
+    }
+
+    private static final class Page {
+        private final AtomicLongArray words = new AtomicLongArray(PAGE_WORDS);
+        // guarded by the page's monitor
+        private int count;
+        private boolean dropped;
+
+        boolean set(int offset) {
+            long word = words.get(offset >>> 6);
+            if((word & 1L << offset) != 0) return false;
+            words.set(offset >>> 6, word | 1L << offset);
+            count++;
+            return true;
+        }
+
+        boolean clear(int offset) {
+            long word = words.get(offset >>> 6);
+            if((word & 1L << offset) == 0) return false;
+            words.set(offset >>> 6, word & ~(1L << offset));
+            count--;
+            return true;
+        }
+
+        boolean forEachFrom(int from, long base, LongPredicate visitor) {
+            for(int index = from >>> 6; index < PAGE_WORDS; index++) {
+                long word = words.get(index);
+                if(index == from >>> 6) word &= -1L << from;
+                while(word != 0) {
+                    if(!visitor.test(base + ((long) index << 6) + Long.numberOfTrailingZeros(word))) return false;
+                    word &= word - 1;
+                }
+            }
+            return true;
+        }
+    }
+}
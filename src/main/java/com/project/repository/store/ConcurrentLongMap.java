@@ -0,0 +1,307 @@
+package com.project.repository.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Hash map keyed by primitive longs, split into independently locked segments.
+ * Reads never lock: they walk a volatile bucket chain of the owning segment.
+ * Writes lock only the segment the key hashes to, so writers on different
+ * segments never contend with each other.
+ *
+ * @param <V> value type, null values are not allowed
+ */
+public class ConcurrentLongMap<V> {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final int MAX_SEGMENTS = 1 << 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+
+    public ConcurrentLongMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap(int initialCapacity, int concurrencyLevel) {
+        if(initialCapacity < 0 || concurrencyLevel <= 0) throw new IllegalArgumentException("Invalid map sizing");
+        int segmentCount = Integer.highestOneBit(Math.min(Math.max(concurrencyLevel, 1), MAX_SEGMENTS) * 2 - 1);
+        int segmentCapacity = Math.max(2, Integer.highestOneBit(Math.max(1, initialCapacity / segmentCount) * 2 - 1));
+        segments = new Segment[segmentCount];
+        for(int i = 0; i < segmentCount; i++) segments[i] = new Segment<>(segmentCapacity);
+        segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        segmentMask = segmentCount - 1;
+    }
+
+    public V get(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, (int) hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V put(long key, V value) {
+        if(value == null) throw new NullPointerException("Null values are not supported");
+        long hash = hash(key);
+        return segmentFor(hash).put(key, (int) hash, value, false);
+    }
+
+    public V putIfAbsent(long key, V value) {
+        if(value == null) throw new NullPointerException("Null values are not supported");
+        long hash = hash(key);
+        return segmentFor(hash).put(key, (int) hash, value, true);
+    }
+
+    public V remove(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).compute(key, (int) hash, (k, v) -> null);
+    }
+
+    /**
+     * Atomically replaces the value mapped to the key with the result of the remapping function.
+     * The function runs while the key's segment is locked, so it must be short and must never
+     * write to this map. Returning null removes the mapping.
+     *
+     * @return the previous value, or null if the key was absent
+     */
+    public V compute(long key, Remapping<V> remapping) {
+        long hash = hash(key);
+        return segmentFor(hash).compute(key, (int) hash, remapping);
+    }
+
+    public int size() {
+        long size = 0;
+        for(Segment<V> segment : segments) size += segment.count;
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        for(Segment<V> segment : segments) if(segment.count != 0) return false;
+        return true;
+    }
+
+    public void clear() {
+        for(Segment<V> segment : segments) segment.clear();
+    }
+
+    /**
+     * Visits every mapping without locking. Iteration is weakly consistent: it reflects every write
+     * that completed before it started and may or may not reflect writes made while it runs.
+     */
+    public void forEach(EntryConsumer<V> consumer) {
+        for(Segment<V> segment : segments) segment.forEach(consumer);
+    }
+
+    /**
+     * Like {@link #forEach}, but stops as soon as the visitor returns false.
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    public boolean forEachWhile(EntryPredicate<V> visitor) {
+        for(Segment<V> segment : segments) if(!segment.forEachWhile(visitor)) return false;
+        return true;
+    }
+
+    /**
+     * Copies the values of one segment at a time while holding its lock and hands each copy to the
+     * consumer after releasing it. Unlike {@link #forEach}, every value whose compute finished, or
+     * was in progress when its segment was reached, is included.
+     */
+    public void forEachSegment(Consumer<List<V>> consumer) {
+        for(Segment<V> segment : segments) consumer.accept(segment.copyValues());
+    }
+
+    /**
+     * Weakly consistent, lock-free spliterator over the values, like {@link #forEach}; it splits
+     * along segments for parallel traversal.
+     */
+    public Spliterator<V> spliterator() {
+        return new SegmentSpliterator<>(new SegmentSpliterator.Segments<>() {
+            @Override
+            public void forEach(int segment, Consumer<? super V> action) {
+                segments[segment].forEach((key, value) -> action.accept(value));
+            }
+
+            @Override
+            public long size(int segment) {
+                return segments[segment].count;
+            }
+        }, 0, segments.length);
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> segmentShift) & segmentMask];
+    }
+
+    private static long hash(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    @FunctionalInterface
+    public interface Remapping<V> {
+        V apply(long key, V value);
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    @FunctionalInterface
+    public interface EntryPredicate<V> {
+        boolean test(long key, V value);
+    }
+
+    private static final class Node<V> {
+        final long key;
+        final int hash;
+        volatile V value;
+        volatile Node<V> next;
+
+        Node(long key, int hash, V value, Node<V> next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class Segment<V> extends ReentrantLock {
+        private volatile AtomicReferenceArray<Node<V>> table;
+        private volatile int count;
+        private int threshold;
+
+        Segment(int capacity) {
+            table = new AtomicReferenceArray<>(capacity);
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        V get(long key, int hash) {
+            AtomicReferenceArray<Node<V>> tab = table;
+            for(Node<V> node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next) {
+                if(node.key == key) return node.value;
+            }
+            return null;
+        }
+
+        V put(long key, int hash, V value, boolean onlyIfAbsent) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                for(Node<V> node = tab.get(index); node != null; node = node.next) {
+                    if(node.key == key) {
+                        V previous = node.value;
+                        if(!onlyIfAbsent) node.value = value;
+                        return previous;
+                    }
+                }
+                insert(tab, index, key, hash, value);
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        V compute(long key, int hash, Remapping<V> remapping) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<V> previousNode = null;
+                for(Node<V> node = tab.get(index); node != null; previousNode = node, node = node.next) {
+                    if(node.key == key) {
+                        V previous = node.value;
+                        V updated = remapping.apply(key, previous);
+                        if(updated != null) {
+                            node.value = updated;
+                        } else {
+                            if(previousNode == null) tab.set(index, node.next);
+                            else previousNode.next = node.next;
+                            count--;
+                        }
+                        return previous;
+                    }
+                }
+                V created = remapping.apply(key, null);
+                if(created != null) insert(tab, index, key, hash, created);
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        void clear() {
+            lock();
+            try {
+                table = new AtomicReferenceArray<>(table.length());
+                count = 0;
+            } finally {
+                unlock();
+            }
+        }
+
+        void forEach(EntryConsumer<V> consumer) {
+            AtomicReferenceArray<Node<V>> tab = table;
+            for(int i = 0; i < tab.length(); i++) {
+                for(Node<V> node = tab.get(i); node != null; node = node.next) {
+                    V value = node.value;
+                    if(value != null) consumer.accept(node.key, value);
+                }
+            }
+        }
+
+        boolean forEachWhile(EntryPredicate<V> visitor) {
+            AtomicReferenceArray<Node<V>> tab = table;
+            for(int i = 0; i < tab.length(); i++) {
+                for(Node<V> node = tab.get(i); node != null; node = node.next) {
+                    V value = node.value;
+                    if(value != null && !visitor.test(node.key, value)) return false;
+                }
+            }
+            return true;
+        }
+
+        List<V> copyValues() {
+            lock();
+            try {
+                List<V> values = new ArrayList<>(count);
+                forEach((key, value) -> values.add(value));
+                return values;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void insert(AtomicReferenceArray<Node<V>> tab, int index, long key, int hash, V value) {
+            tab.set(index, new Node<>(key, hash, value, tab.get(index)));
+            if(++count > threshold) resize(tab);
+        }
+
+        // Readers may still be walking the old chains, so nodes are copied rather than relinked.
+        private void resize(AtomicReferenceArray<Node<V>> oldTable) {
+            int capacity = oldTable.length() << 1;
+            if(capacity <= 0) return;
+            AtomicReferenceArray<Node<V>> newTable = new AtomicReferenceArray<>(capacity);
+            for(int i = 0; i < oldTable.length(); i++) {
+                for(Node<V> node = oldTable.get(i); node != null; node = node.next) {
+                    int index = node.hash & (capacity - 1);
+                    newTable.set(index, new Node<>(node.key, node.hash, node.value, newTable.get(index)));
+                }
+            }
+            threshold = (int) (capacity * LOAD_FACTOR);
+            table = newTable;
+        }
+    }
+}
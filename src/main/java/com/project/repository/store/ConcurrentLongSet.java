@@ -0,0 +1,50 @@
+package com.project.repository.store;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Concurrent set of primitive longs backed by a {@link ConcurrentLongMap}, used for index postings.
+ */
+public class ConcurrentLongSet {
+    private final ConcurrentLongMap<Boolean> elements;
+
+    public ConcurrentLongSet() {
+        this(16, 4);
+    }
+
+    public ConcurrentLongSet(int initialCapacity, int concurrencyLevel) {
+        elements = new ConcurrentLongMap<>(initialCapacity, concurrencyLevel);
+    }
+
+    public boolean add(long value) {
+        return elements.putIfAbsent(value, Boolean.TRUE) == null;
+    }
+
+    public boolean remove(long value) {
+        return elements.remove(value) != null;
+    }
+
+    public boolean contains(long value) {
+        return elements.containsKey(value);
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    public boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
+    public void forEach(LongConsumer consumer) {
+        elements.forEach((value, present) -> consumer.accept(value));
+    }
+
+    /**
+     * @return false if the visitor stopped the iteration by returning false
+     */
+    public boolean forEachWhile(LongPredicate visitor) {
+        return elements.forEachWhile((value, present) -> visitor.test(value));
+    }
+}
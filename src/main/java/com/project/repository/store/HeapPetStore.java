@@ -0,0 +1,51 @@
+package com.project.repository.store;
+
+import com.project.model.Pet;
+import com.project.model.Status;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * {@link PetStore} keeping the pet objects on the heap in a {@link ConcurrentLongMap}.
+ */
+public class HeapPetStore implements PetStore {
+    private final ConcurrentLongMap<Pet> pets = new ConcurrentLongMap<>();
+
+    @Override
+    public Pet get(long id) {
+        return pets.get(id);
+    }
+
+    @Override
+    public Status statusOf(long id) {
+        Pet pet = pets.get(id);
+        return pet != null ? pet.getStatus() : null;
+    }
+
+    @Override
+    public Pet compute(long id, ConcurrentLongMap.Remapping<Pet> remapping) {
+        return pets.compute(id, remapping);
+    }
+
+    @Override
+    public int size() {
+        return pets.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Pet> action) {
+        pets.forEach((id, pet) -> action.accept(pet));
+    }
+
+    @Override
+    public Spliterator<Pet> spliterator() {
+        return pets.spliterator();
+    }
+
+    @Override
+    public void forEachChunk(Consumer<List<Pet>> chunkConsumer) {
+        pets.forEachSegment(chunkConsumer);
+    }
+}
@@ -0,0 +1,37 @@
+package com.project.repository.store;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic, thread-safe id generator. Ids handed out by {@link #next()} and
+ * {@link #nextBlock(int)} are never reused, and explicit ids reported through
+ * {@link #advanceTo(long)} are never generated afterwards.
+ */
+public class IdSequence {
+    private final AtomicLong last = new AtomicLong();
+
+    public long next() {
+        return last.incrementAndGet();
+    }
+
+    /**
+     * Reserves {@code size} consecutive ids in one atomic step.
+     *
+     * @return the first id of the reserved block
+     */
+    public long nextBlock(int size) {
+        if(size <= 0) throw new IllegalArgumentException("Block size must be positive");
+        return last.getAndAdd(size) + 1;
+    }
+
+    public void advanceTo(long id) {
+        long current;
+        while(id > (current = last.get())) {
+            if(last.compareAndSet(current, id)) return;
+        }
+    }
+
+    public long current() {
+        return last.get();
+    }
+}
@@ -0,0 +1,390 @@
+package com.project.repository.store;
+
+import com.project.exception.StorageException;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.repository.persistence.PetRecordCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link PetStore} that keeps pets out of the heap: each pet is a {@link PetRecordCodec} record
+ * appended to a memory-mapped file, and an {@link OffHeapLongIndex} maps pet ids to record offsets.
+ * A pet object only exists while a caller holds the copy decoded for it, and {@link #statusOf}
+ * reads a single byte of the record. The {@code PetRepository} on top keeps its id order in a
+ * {@link ConcurrentLongBitmap} and its indexes without per-pet keys, but the search postings stay
+ * on the heap, so this saves most of a repository's heap, not all of it.
+ * <p>
+ * The file is mapped in fixed-size chunks, and a record never spans two of them. Records are
+ * never overwritten, so readers need no locks beyond the index probe; replaced and deleted records
+ * stay behind as garbage. The file is working storage only: it is recreated on every start, and
+ * durability comes from the {@code PetJournal}.
+ * <p>
+ * Once garbage makes up the compaction threshold's share of the file, and at least a chunk of it,
+ * a background thread copies the live records into a new file, one store segment at a time while
+ * that segment's writes wait. Each segment reads and writes through the file generation it was
+ * last copied to. A reader that picked up the old generation keeps reading intact records from
+ * its mapping, which stays valid until the last reader drops it, so the old file can be deleted
+ * as soon as every segment has moved.
+ */
+@Slf4j
+public class MappedPetStore implements PetStore {
+    private static final int LENGTH_BYTES = Integer.BYTES;
+    private static final int HEADER_BYTES = Long.BYTES;
+    private static final int SEGMENTS = 64;
+
+    private final Path file;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final double compactionThreshold;
+    private final ReentrantLock[] writeLocks = new ReentrantLock[SEGMENTS];
+    private final AtomicReferenceArray<Generation> generations = new AtomicReferenceArray<>(SEGMENTS);
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final AtomicLong compactions = new AtomicLong();
+    private long nextGeneration;
+
+    public MappedPetStore(Path file, long chunkBytes, int expectedPets) {
+        this(file, chunkBytes, expectedPets, 0.5);
+    }
+
+    public MappedPetStore(Path file, long chunkBytes, int expectedPets, double compactionThreshold) {
+        if(Long.bitCount(chunkBytes) != 1 || chunkBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Chunk size must be a power of two below 2GB");
+        if(!(compactionThreshold > 0)) throw new IllegalArgumentException("Compaction threshold must be positive");
+        this.file = file;
+        chunkShift = Long.numberOfTrailingZeros(chunkBytes);
+        chunkMask = chunkBytes - 1;
+        this.compactionThreshold = compactionThreshold;
+        for(int i = 0; i < SEGMENTS; i++) writeLocks[i] = new ReentrantLock();
+        try {
+            if(file.getParent() != null) Files.createDirectories(file.getParent());
+        } catch(IOException e) {
+            throw new StorageException("Failed to create the directory of mapped pet store " + file, e);
+        }
+        deleteGenerationFiles();
+        Generation first = new Generation(file, expectedPets);
+        for(int i = 0; i < SEGMENTS; i++) generations.set(i, first);
+    }
+
+    @Override
+    public Pet get(long id) {
+        Generation generation = generations.get(segmentOf(id));
+        long offset = generation.offsets.get(id);
+        return offset == OffHeapLongIndex.ABSENT ? null : generation.read(offset);
+    }
+
+    @Override
+    public Status statusOf(long id) {
+        Generation generation = generations.get(segmentOf(id));
+        long offset = generation.offsets.get(id);
+        if(offset == OffHeapLongIndex.ABSENT) return null;
+        return PetRecordCodec.readStatus(generation.chunks[(int) (offset >>> chunkShift)], (int) (offset & chunkMask) + LENGTH_BYTES);
+    }
+
+    @Override
+    public Pet compute(long id, ConcurrentLongMap.Remapping<Pet> remapping) {
+        int segment = segmentOf(id);
+        Generation generation;
+        Pet previous;
+        writeLocks[segment].lock();
+        try {
+            generation = generations.get(segment);
+            long previousOffset = generation.offsets.get(id);
+            previous = previousOffset == OffHeapLongIndex.ABSENT ? null : generation.read(previousOffset);
+            Pet updated = remapping.apply(id, previous);
+            if(updated == null) {
+                if(previous != null) generation.offsets.remove(id);
+            } else {
+                generation.offsets.put(id, generation.append(updated));
+            }
+            if(previous != null) generation.garbageBytes.addAndGet(generation.frameBytes(previousOffset));
+        } finally {
+            writeLocks[segment].unlock();
+        }
+        if(generation.needsCompaction() && compactionScheduled.compareAndSet(false, true)) {
+            Thread compactor = new Thread(this::compactScheduled, "pet-store-compaction");
+            compactor.setDaemon(true);
+            compactor.start();
+        }
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        long size = 0;
+        for(int segment = 0; segment < SEGMENTS; segment++) size += generations.get(segment).offsets.segmentSize(segment);
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void forEach(Consumer<Pet> action) {
+        for(int segment = 0; segment < SEGMENTS; segment++) {
+            for(Pet pet : copySegment(segment)) action.accept(pet);
+        }
+    }
+
+    @Override
+    public Spliterator<Pet> spliterator() {
+        return new SegmentSpliterator<>(new SegmentSpliterator.Segments<>() {
+            @Override
+            public void forEach(int segment, Consumer<? super Pet> action) {
+                copySegment(segment).forEach(action);
+            }
+
+            @Override
+            public long size(int segment) {
+                return generations.get(segment).offsets.segmentSize(segment);
+            }
+        }, 0, SEGMENTS);
+    }
+
+    @Override
+    public void forEachChunk(Consumer<List<Pet>> chunkConsumer) {
+        for(int segment = 0; segment < SEGMENTS; segment++) chunkConsumer.accept(copySegment(segment));
+    }
+
+    /**
+     * Copies the live records into a new file and deletes the old one. Writes to a segment wait
+     * while its records are copied; reads never wait.
+     */
+    public void compact() {
+        compactionLock.lock();
+        try {
+            Set<Generation> retired = liveGenerations();
+            Generation target = new Generation(generationFile(++nextGeneration), size());
+            for(int segment = 0; segment < SEGMENTS; segment++) {
+                writeLocks[segment].lock();
+                try {
+                    Generation source = generations.get(segment);
+                    source.offsets.forEachInSegment(segment, (id, offset) -> target.offsets.put(id, target.copy(source, offset)));
+                    generations.set(segment, target);
+                } finally {
+                    writeLocks[segment].unlock();
+                }
+            }
+            retired.forEach(Generation::delete);
+            compactions.incrementAndGet();
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    public long fileBytes() {
+        long bytes = 0;
+        for(Generation generation : liveGenerations()) bytes += generation.tail.get();
+        return bytes;
+    }
+
+    public long garbageBytes() {
+        long bytes = 0;
+        for(Generation generation : liveGenerations()) bytes += generation.garbageBytes.get();
+        return bytes;
+    }
+
+    public long indexBytes() {
+        long bytes = 0;
+        for(Generation generation : liveGenerations()) bytes += generation.offsets.offHeapBytes();
+        return bytes;
+    }
+
+    public long compactions() {
+        return compactions.get();
+    }
+
+    @Override
+    public boolean offHeap() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        compactionLock.lock();
+        try {
+            liveGenerations().forEach(Generation::close);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    private void compactScheduled() {
+        try {
+            compact();
+        } catch(RuntimeException e) {
+            log.error("Failed to compact the mapped pet store " + file, e);
+        } finally {
+            compactionScheduled.set(false);
+        }
+    }
+
+    private Set<Generation> liveGenerations() {
+        Set<Generation> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(int segment = 0; segment < SEGMENTS; segment++) live.add(generations.get(segment));
+        return live;
+    }
+
+    private List<Pet> copySegment(int segment) {
+        List<Pet> pets = new ArrayList<>();
+        writeLocks[segment].lock();
+        try {
+            Generation generation = generations.get(segment);
+            generation.offsets.forEachInSegment(segment, (id, offset) -> pets.add(generation.read(offset)));
+        } finally {
+            writeLocks[segment].unlock();
+        }
+        return pets;
+    }
+
+    // every generation's index hashes alike, so the first one's tells the segment of an id
+    private int segmentOf(long id) {
+        return generations.get(0).offsets.segmentOf(id);
+    }
+
+    private Path generationFile(long generation) {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    // compacted files left behind by an earlier run
+    private void deleteGenerationFiles() {
+        Path directory = file.toAbsolutePath().getParent();
+        try(DirectoryStream<Path> stale = Files.newDirectoryStream(directory, file.getFileName() + ".*")) {
+            for(Path path : stale) {
+                String suffix = path.getFileName().toString().substring(file.getFileName().toString().length() + 1);
+                if(!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) Files.deleteIfExists(path);
+            }
+        } catch(IOException e) {
+            throw new StorageException("Failed to delete old files of mapped pet store " + file, e);
+        }
+    }
+
+    /**
+     * One file with its id index. Only the segments pointing at a generation write to it, under
+     * their write locks; everything it ever held stays readable while a reader can reach it.
+     */
+    private final class Generation {
+        private final Path path;
+        private final FileChannel channel;
+        private final OffHeapLongIndex offsets;
+        private final ReentrantLock mapLock = new ReentrantLock();
+        private final AtomicLong tail = new AtomicLong(HEADER_BYTES);
+        private final AtomicLong garbageBytes = new AtomicLong();
+        private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+        Generation(Path path, int expectedPets) {
+            this.path = path;
+            offsets = new OffHeapLongIndex(expectedPets, SEGMENTS);
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch(IOException e) {
+                throw new StorageException("Failed to open mapped pet store " + path, e);
+            }
+            chunkFor(0);
+        }
+
+        Pet read(long offset) {
+            ByteBuffer chunk = chunks[(int) (offset >>> chunkShift)];
+            int position = (int) (offset & chunkMask);
+            return PetRecordCodec.decode(chunk.slice(position + LENGTH_BYTES, chunk.getInt(position)));
+        }
+
+        long append(Pet pet) {
+            int recordBytes = PetRecordCodec.encodedSize(pet);
+            int frameBytes = LENGTH_BYTES + recordBytes;
+            if(frameBytes > chunkMask + 1) throw new StorageException("Pet " + pet.getId() + " is too large for the mapped store");
+            long offset = reserve(frameBytes);
+            ByteBuffer chunk = chunkFor((int) (offset >>> chunkShift));
+            int position = (int) (offset & chunkMask);
+            chunk.putInt(position, recordBytes);
+            PetRecordCodec.encode(pet, chunk.slice(position + LENGTH_BYTES, recordBytes));
+            return offset;
+        }
+
+        // copies a record frame as it is, without decoding the pet
+        long copy(Generation source, long sourceOffset) {
+            int frameBytes = source.frameBytes(sourceOffset);
+            long offset = reserve(frameBytes);
+            chunkFor((int) (offset >>> chunkShift)).put((int) (offset & chunkMask),
+                    source.chunks[(int) (sourceOffset >>> chunkShift)], (int) (sourceOffset & chunkMask), frameBytes);
+            return offset;
+        }
+
+        int frameBytes(long offset) {
+            return LENGTH_BYTES + chunks[(int) (offset >>> chunkShift)].getInt((int) (offset & chunkMask));
+        }
+
+        boolean needsCompaction() {
+            long garbage = garbageBytes.get();
+            return garbage > chunkMask && garbage >= tail.get() * compactionThreshold;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch(IOException e) {
+                throw new StorageException("Failed to close mapped pet store " + path, e);
+            }
+        }
+
+        // readers that still hold the mapping keep reading it; the disk space is freed when they let go
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch(IOException e) {
+                log.warn("Failed to delete compacted pet store file {}", path, e);
+            }
+        }
+
+        private long reserve(int frameBytes) {
+            while(true) {
+                long position = tail.get();
+                long chunkEnd = (position | chunkMask) + 1;
+                long start = position + frameBytes <= chunkEnd ? position : chunkEnd;
+                if(tail.compareAndSet(position, start + frameBytes)) {
+                    if(start != position) garbageBytes.addAndGet(start - position);
+                    return start;
+                }
+            }
+        }
+
+        private ByteBuffer chunkFor(int chunk) {
+            MappedByteBuffer[] mapped = chunks;
+            if(chunk < mapped.length) return mapped[chunk];
+            mapLock.lock();
+            try {
+                mapped = chunks;
+                if(chunk >= mapped.length) {
+                    MappedByteBuffer[] grown = Arrays.copyOf(mapped, chunk + 1);
+                    for(int i = mapped.length; i <= chunk; i++) {
+                        grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << chunkShift, chunkMask + 1);
+                    }
+                    chunks = mapped = grown;
+                }
+                return mapped[chunk];
+            } catch(IOException e) {
+                throw new StorageException("Failed to map chunk " + chunk + " of " + path, e);
+            } finally {
+                mapLock.unlock();
+            }
+        }
+    }
+}
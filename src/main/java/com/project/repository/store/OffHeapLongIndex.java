@@ -0,0 +1,221 @@
+package com.project.repository.store;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Segmented open-addressing hash table from long keys to positive long values, kept in direct
+ * buffers so it adds nothing to the heap per entry. Each slot is 16 bytes: the key followed by the
+ * value, where 0 marks an empty slot and -1 a deleted one.
+ * <p>
+ * Readers probe under an optimistic {@link StampedLock} stamp and only fall back to a read lock
+ * when a writer got in the way. Writers lock their segment exclusively.
+ */
+class OffHeapLongIndex {
+    static final long ABSENT = 0;
+
+    private static final long TOMBSTONE = -1;
+    private static final int ENTRY_BYTES = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    OffHeapLongIndex(int expectedEntries, int segmentCount) {
+        if(Integer.bitCount(segmentCount) != 1) throw new IllegalArgumentException("Segment count must be a power of two");
+        segments = new Segment[segmentCount];
+        int segmentCapacity = Math.max(16, Integer.highestOneBit((int) (expectedEntries / segmentCount / LOAD_FACTOR) * 2 - 1));
+        for(int i = 0; i < segmentCount; i++) segments[i] = new Segment(segmentCapacity);
+        segmentMask = segmentCount - 1;
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    int segmentOf(long key) {
+        return (int) (hash(key) >>> 40) & segmentMask;
+    }
+
+    long get(long key) {
+        return segments[segmentOf(key)].get(key, hash(key));
+    }
+
+    /**
+     * @return the previous value, or {@link #ABSENT}
+     */
+    long put(long key, long value) {
+        if(value <= 0) throw new IllegalArgumentException("Index values must be positive");
+        return segments[segmentOf(key)].put(key, hash(key), value);
+    }
+
+    long remove(long key) {
+        return segments[segmentOf(key)].remove(key, hash(key));
+    }
+
+    long size() {
+        long size = 0;
+        for(Segment segment : segments) size += segment.size;
+        return size;
+    }
+
+    long segmentSize(int segment) {
+        return segments[segment].size;
+    }
+
+    /**
+     * Visits the entries of one segment. The caller must keep writers out of the segment.
+     */
+    void forEachInSegment(int segment, EntryVisitor visitor) {
+        segments[segment].forEach(visitor);
+    }
+
+    long offHeapBytes() {
+        long bytes = 0;
+        for(Segment segment : segments) bytes += segment.table.capacity();
+        return bytes;
+    }
+
+    private static long hash(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(long key, long value);
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private volatile ByteBuffer table;
+        private int capacity;
+        private int used;
+        private volatile int size;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.table = ByteBuffer.allocateDirect(capacity * ENTRY_BYTES);
+        }
+
+        long get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            long value = probe(table, key, hash);
+            if(lock.validate(stamp)) return value;
+            stamp = lock.readLock();
+            try {
+                return probe(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long put(long key, long hash, long value) {
+            long stamp = lock.writeLock();
+            try {
+                ByteBuffer tab = table;
+                int mask = capacity - 1;
+                int freeSlot = -1;
+                for(int i = 0, slot = (int) hash & mask; i < capacity; i++, slot = (slot + 1) & mask) {
+                    long slotValue = tab.getLong(slot * ENTRY_BYTES + 8);
+                    if(slotValue == ABSENT) {
+                        if(freeSlot < 0) {
+                            if(used + 1 > capacity * LOAD_FACTOR) {
+                                resize();
+                                return putNew(key, hash, value);
+                            }
+                            freeSlot = slot;
+                            used++;
+                        }
+                        break;
+                    }
+                    if(slotValue == TOMBSTONE) {
+                        if(freeSlot < 0) freeSlot = slot;
+                    } else if(tab.getLong(slot * ENTRY_BYTES) == key) {
+                        tab.putLong(slot * ENTRY_BYTES + 8, value);
+                        return slotValue;
+                    }
+                }
+                tab.putLong(freeSlot * ENTRY_BYTES, key);
+                tab.putLong(freeSlot * ENTRY_BYTES + 8, value);
+                size++;
+                return ABSENT;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        long remove(long key, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                ByteBuffer tab = table;
+                int mask = capacity - 1;
+                for(int i = 0, slot = (int) hash & mask; i < capacity; i++, slot = (slot + 1) & mask) {
+                    long slotValue = tab.getLong(slot * ENTRY_BYTES + 8);
+                    if(slotValue == ABSENT) return ABSENT;
+                    if(slotValue != TOMBSTONE && tab.getLong(slot * ENTRY_BYTES) == key) {
+                        tab.putLong(slot * ENTRY_BYTES + 8, TOMBSTONE);
+                        size--;
+                        return slotValue;
+                    }
+                }
+                return ABSENT;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEach(EntryVisitor visitor) {
+            ByteBuffer tab = table;
+            for(int slot = 0; slot < capacity; slot++) {
+                long value = tab.getLong(slot * ENTRY_BYTES + 8);
+                if(value > 0) visitor.visit(tab.getLong(slot * ENTRY_BYTES), value);
+            }
+        }
+
+        private long probe(ByteBuffer tab, long key, long hash) {
+            int slots = tab.capacity() / ENTRY_BYTES;
+            int mask = slots - 1;
+            for(int i = 0, slot = (int) hash & mask; i < slots; i++, slot = (slot + 1) & mask) {
+                long slotValue = tab.getLong(slot * ENTRY_BYTES + 8);
+                if(slotValue == ABSENT) return ABSENT;
+                if(slotValue != TOMBSTONE && tab.getLong(slot * ENTRY_BYTES) == key) return slotValue;
+            }
+            return ABSENT;
+        }
+
+        // called with the write lock held; drops tombstones while rehashing
+        private void resize() {
+            ByteBuffer oldTable = table;
+            int oldCapacity = capacity;
+            int newCapacity = size + 1 > oldCapacity * LOAD_FACTOR / 2 ? oldCapacity << 1 : oldCapacity;
+            ByteBuffer newTable = ByteBuffer.allocateDirect(newCapacity * ENTRY_BYTES);
+            int mask = newCapacity - 1;
+            for(int slot = 0; slot < oldCapacity; slot++) {
+                long value = oldTable.getLong(slot * ENTRY_BYTES + 8);
+                if(value <= 0) continue;
+                long key = oldTable.getLong(slot * ENTRY_BYTES);
+                int target = (int) hash(key) & mask;
+                while(newTable.getLong(target * ENTRY_BYTES + 8) != ABSENT) target = (target + 1) & mask;
+                newTable.putLong(target * ENTRY_BYTES, key);
+                newTable.putLong(target * ENTRY_BYTES + 8, value);
+            }
+            capacity = newCapacity;
+            used = size;
+            table = newTable;
+        }
+
+        private long putNew(long key, long hash, long value) {
+            ByteBuffer tab = table;
+            int mask = capacity - 1;
+            int slot = (int) hash & mask;
+            while(tab.getLong(slot * ENTRY_BYTES + 8) != ABSENT) slot = (slot + 1) & mask;
+            tab.putLong(slot * ENTRY_BYTES, key);
+            tab.putLong(slot * ENTRY_BYTES + 8, value);
+            used++;
+            size++;
+            return ABSENT;
+        }
+    }
+}
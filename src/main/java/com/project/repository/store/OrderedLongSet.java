@@ -0,0 +1,48 @@
+package com.project.repository.store;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongPredicate;
+
+/**
+ * Concurrent set of primitive longs that is walked in ascending order, used for the id order
+ * behind paging.
+ */
+public interface OrderedLongSet {
+
+    boolean add(long value);
+
+    boolean remove(long value);
+
+    /**
+     * Visits the values above {@code after} in ascending order until the visitor returns false.
+     * Iteration is weakly consistent.
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    boolean forEachAfter(long after, LongPredicate visitor);
+
+    /**
+     * Skip list of boxed longs, which costs a few dozen bytes per value however the values spread.
+     */
+    static OrderedLongSet skipList() {
+        NavigableSet<Long> values = new ConcurrentSkipListSet<>();
+        return new OrderedLongSet() {
+            @Override
+            public boolean add(long value) {
+                return values.add(value);
+            }
+
+            @Override
+            public boolean remove(long value) {
+                return values.remove(value);
+            }
+
+            @Override
+            public boolean forEachAfter(long after, LongPredicate visitor) {
+                for(Long value : values.tailSet(after, false)) if(!visitor.test(value)) return false;
+                return true;
+            }
+        };
+    }
+}
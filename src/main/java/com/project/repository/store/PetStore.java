@@ -0,0 +1,61 @@
+package com.project.repository.store;
+
+import com.project.model.Pet;
+import com.project.model.Status;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Primary id to pet storage behind {@code PetRepository}. Reads never block; writes to one id
+ * are serialized through {@link #compute}.
+ */
+public interface PetStore extends AutoCloseable {
+
+    Pet get(long id);
+
+    /**
+     * Status of the stored pet without materializing the rest of it.
+     */
+    Status statusOf(long id);
+
+    /**
+     * Atomically replaces the pet stored under the id with the result of the remapping function,
+     * which runs while writes to that id are locked out. Returning null removes the pet.
+     *
+     * @return the previous pet, or null if there was none
+     */
+    Pet compute(long id, ConcurrentLongMap.Remapping<Pet> remapping);
+
+    int size();
+
+    /**
+     * Weakly consistent iteration over every stored pet.
+     */
+    void forEach(Consumer<Pet> action);
+
+    /**
+     * Weakly consistent traversal for parallel scans; it splits along the store's segments.
+     */
+    Spliterator<Pet> spliterator();
+
+    /**
+     * Hands the store over in chunks, each copied while its part of the store is locked, so the
+     * chunks include every write whose compute finished or was in progress when it was reached.
+     */
+    void forEachChunk(Consumer<List<Pet>> chunkConsumer);
+
+    /**
+     * Whether the store keeps the pets off the heap and hands out a fresh copy on every read. The
+     * repository then keeps its per-pet bookkeeping compact as well, and may rely on the pet a
+     * compute replaces being exactly the one that was stored.
+     */
+    default boolean offHeap() {
+        return false;
+    }
+
+    @Override
+    default void close() {
+    }
+}
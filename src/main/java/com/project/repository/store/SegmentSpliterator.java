@@ -0,0 +1,74 @@
+package com.project.repository.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over a store made of independently locked segments. It splits along segment
+ * boundaries, so parallel scans hand whole segments to each worker, and element-wise traversal
+ * buffers one segment at a time.
+ *
+ * @param <T> element type
+ */
+final class SegmentSpliterator<T> implements Spliterator<T> {
+    private final Segments<T> segments;
+    private final int end;
+    private int next;
+    private List<T> buffer;
+    private int bufferIndex;
+
+    SegmentSpliterator(Segments<T> segments, int from, int to) {
+        this.segments = segments;
+        this.next = from;
+        this.end = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while(buffer == null || bufferIndex == buffer.size()) {
+            if(next == end) return false;
+            List<T> segment = new ArrayList<>((int) segments.size(next));
+            segments.forEach(next++, segment::add);
+            buffer = segment;
+            bufferIndex = 0;
+        }
+        action.accept(buffer.get(bufferIndex++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        if(buffer != null) {
+            while(bufferIndex < buffer.size()) action.accept(buffer.get(bufferIndex++));
+        }
+        while(next < end) segments.forEach(next++, action);
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if(end - next < 2) return null;
+        int middle = (next + end) >>> 1;
+        Spliterator<T> prefix = new SegmentSpliterator<>(segments, next, middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        long size = buffer == null ? 0 : buffer.size() - bufferIndex;
+        for(int segment = next; segment < end; segment++) size += segments.size(segment);
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | CONCURRENT;
+    }
+
+    interface Segments<T> {
+        void forEach(int segment, Consumer<? super T> action);
+        long size(int segment);
+    }
+}
@@ -0,0 +1,13 @@
+package com.project.service;
+
+import com.project.model.PetChangeBatch;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+public interface PetChangeFeedService {
+
+    CompletableFuture<PetChangeBatch> poll(Long after, Duration wait);
+    ResponseBodyEmitter stream(Long after);
+}
@@ -0,0 +1,13 @@
+package com.project.service;
+
+import com.project.model.StoredImage;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface PetImageService {
+
+    StoredImage addImage(Long petId, InputStream content, String urlPrefix);
+    Optional<Path> findImage(String hash);
+}
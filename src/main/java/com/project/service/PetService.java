@@ -1,15 +1,39 @@
 package com.project.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.project.model.BatchItemResult;
 import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.repository.query.PetQuery;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 public interface PetService {
 
     List<Pet> findAll();
-    Pet findById(Long id);
+    List<Pet> findPage(Long afterId, int limit);
+    void forEach(Consumer<Pet> action);
+    Optional<Pet> findById(Long id);
     Pet save(Pet pet);
-    Pet updateById(Pet pet, Long id);
+    CompletableFuture<Pet> saveAsync(Pet pet);
+    Pet updateById(Pet pet, Long id, Long expectedVersion);
+    CompletableFuture<Pet> updateByIdAsync(Pet pet, Long id, Long expectedVersion);
+    Pet modifyById(Long id, UnaryOperator<Pet> change, Long expectedVersion);
+    Pet patchById(Long id, JsonNode mergePatch, Long expectedVersion);
     void deleteById(Long id);
-    List<Pet> getPetsByStatus(String statusValue);
+    CompletableFuture<Void> deleteByIdAsync(Long id);
+    List<BatchItemResult> saveAll(List<Pet> pets);
+    List<BatchItemResult> updateAll(List<Pet> pets);
+    List<BatchItemResult> deleteAll(List<Long> ids);
+    List<Pet> getPetsByStatus(Set<Status> statuses);
+    List<Pet> findByCategory(Long categoryId);
+    List<Pet> findByTags(Collection<Long> tagIds);
+    List<Pet> findByName(String prefix, int limit);
+    List<Pet> search(PetQuery query, Long afterId, int limit);
 }
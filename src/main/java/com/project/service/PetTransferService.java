@@ -0,0 +1,15 @@
+package com.project.service;
+
+import com.project.model.ImportSummary;
+import com.project.model.TransferProgress;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface PetTransferService {
+
+    ImportSummary importPets(InputStream in);
+    long exportPets(OutputStream out);
+    List<TransferProgress> activeTransfers();
+}
@@ -0,0 +1,296 @@
+package com.project.service.impl;
+
+import com.project.cache.PetJsonCache;
+import com.project.config.PetStoreProperties;
+import com.project.model.Pet;
+import com.project.model.PetChange;
+import com.project.model.PetChangeBatch;
+import com.project.repository.PetChangeLog;
+import com.project.repository.PetRepository;
+import com.project.service.PetChangeFeedService;
+import com.project.exception.ServiceUnavailableException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets clients follow the store through {@link PetChangeLog} instead of re-reading every pet:
+ * a client passes the sequence of the last change it saw and gets the changes after it, as one
+ * long-polled batch or as a stream of server-sent events. A client without a sequence, or one the
+ * log no longer covers, gets every pet followed by the changes after the snapshot. Changes that
+ * are already part of the snapshot may be delivered again, so clients apply them by pet id.
+ * <p>
+ * Event stream format: {@code saved} and {@code deleted} events carry the change sequence as
+ * their id and the pet JSON or {@code {"id":...}} as data; a snapshot is framed by a
+ * {@code snapshot} event, one {@code pet} event per pet and a {@code snapshot-end} event that
+ * carries the sequence the snapshot includes. Streams end after {@code petstore.changes.max-wait}
+ * and clients reconnect with {@code Last-Event-ID}.
+ * <p>
+ * Neither kind of request holds a request thread while it waits. Long polls are futures that one
+ * dispatcher thread completes when the change log moves past their sequence. Event streams block
+ * on the change log and on slow clients, so each runs on a thread of the feed's own pool, capped at
+ * {@code petstore.changes.max-streams}; the shared async executor and Tomcat's workers stay free.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PetChangeFeedServiceImpl implements PetChangeFeedService {
+    static final int MAX_BATCH_SIZE = 1000;
+    private static final long HEARTBEAT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int RECONNECT_DELAY_MILLIS = 1000;
+    // the servlet container ends a stream that outlives max-wait by this much
+    private static final Duration STREAM_TIMEOUT_MARGIN = Duration.ofSeconds(5);
+    // sends a stream's frames once this many bytes are pending, so a snapshot is not held whole
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+    // bounds how late the dispatcher notices a poll whose change was published out of order
+    private static final long DISPATCH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final PetChangeLog petChangeLog;
+    private final PetRepository petRepository;
+    private final PetJsonCache petJsonCache;
+    private final PetStoreProperties properties;
+
+    private final BlockingQueue<PendingPoll> newPolls = new LinkedBlockingQueue<>();
+    private final ExecutorService streams = Executors.newCachedThreadPool(daemonThreads("pet-change-stream-"));
+    private Semaphore streamPermits;
+    private Thread dispatcher;
+
+    @PostConstruct
+    void start() {
+        streamPermits = new Semaphore(properties.getChanges().getMaxStreams());
+        dispatcher = daemonThreads("pet-change-feed-").newThread(this::dispatchPolls);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        dispatcher.interrupt();
+        streams.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<PetChangeBatch> poll(Long after, Duration wait) {
+        List<PetChange> changes = after != null ? petChangeLog.read(after, MAX_BATCH_SIZE) : null;
+        if(changes == null) return CompletableFuture.completedFuture(snapshot());
+        Duration timeout = min(wait, properties.getChanges().getMaxWait());
+        if(!changes.isEmpty() || timeout.isZero() || timeout.isNegative()) return CompletableFuture.completedFuture(batch(after, changes));
+        PendingPoll poll = new PendingPoll(after, new CompletableFuture<PetChangeBatch>()
+                .completeOnTimeout(batch(after, List.of()), timeout.toNanos(), TimeUnit.NANOSECONDS));
+        newPolls.add(poll);
+        // the change may have been published before the dispatcher saw the poll
+        tryComplete(poll);
+        return poll.result;
+    }
+
+    @Override
+    public ResponseBodyEmitter stream(Long after) {
+        if(!streamPermits.tryAcquire()) throw new ServiceUnavailableException("Too many open change streams, retry later");
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(properties.getChanges().getMaxWait().plus(STREAM_TIMEOUT_MARGIN).toMillis());
+        try {
+            streams.execute(() -> {
+                try(OutputStream out = new EmitterOutputStream(emitter)) {
+                    stream(after, out);
+                    out.flush();
+                    emitter.complete();
+                } catch(IOException | RuntimeException e) {
+                    // mostly a client that went away; the emitter tells the container to end the request
+                    log.debug("Change stream ended early", e);
+                    emitter.completeWithError(e);
+                } finally {
+                    streamPermits.release();
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            streamPermits.release();
+            throw new ServiceUnavailableException("The change feed is shutting down");
+        }
+        return emitter;
+    }
+
+    // one thread completes every waiting long poll, so a poll holds no thread while it waits
+    private void dispatchPolls() {
+        List<PendingPoll> waiting = new ArrayList<>();
+        try {
+            while(true) {
+                if(waiting.isEmpty()) waiting.add(newPolls.take());
+                newPolls.drainTo(waiting);
+                long after = Long.MAX_VALUE;
+                for(PendingPoll poll : waiting) after = Math.min(after, poll.after);
+                petChangeLog.await(after, DISPATCH_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+                waiting.removeIf(this::tryComplete);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // true once the poll has its result, from here, from its timeout or from another caller
+    private boolean tryComplete(PendingPoll poll) {
+        if(poll.result.isDone()) return true;
+        List<PetChange> changes = petChangeLog.read(poll.after, MAX_BATCH_SIZE);
+        if(changes == null) completeWithSnapshot(poll);
+        else if(!changes.isEmpty()) poll.result.complete(batch(poll.after, changes));
+        else return false;
+        return true;
+    }
+
+    // a snapshot copies every pet, so it is built on the feed's own threads, not the dispatcher or a shared pool
+    private void completeWithSnapshot(PendingPoll poll) {
+        try {
+            poll.result.completeAsync(this::snapshot, streams);
+        } catch(RejectedExecutionException e) {
+            poll.result.completeExceptionally(new ServiceUnavailableException("The change feed is shutting down"));
+        }
+    }
+
+    private static PetChangeBatch batch(long after, List<PetChange> changes) {
+        long sequence = changes.isEmpty() ? after : changes.get(changes.size() - 1).getSequence();
+        return PetChangeBatch.builder().sequence(sequence).snapshot(false).changes(changes).build();
+    }
+
+    private PetChangeBatch snapshot() {
+        long sequence = petChangeLog.lastSequence();
+        List<Pet> pets = new ArrayList<>(petRepository.size());
+        petRepository.forEachChunk(pets::addAll);
+        return PetChangeBatch.builder().sequence(sequence).snapshot(true).changes(List.of()).pets(pets).build();
+    }
+
+    private void stream(Long after, OutputStream out) throws IOException {
+        long deadline = System.nanoTime() + properties.getChanges().getMaxWait().toNanos();
+        write(out, "retry: " + RECONNECT_DELAY_MILLIS + "\n\n");
+        out.flush();
+        Long cursor = after;
+        while(deadline - System.nanoTime() > 0 && !Thread.currentThread().isInterrupted()) {
+            List<PetChange> changes = cursor != null ? petChangeLog.read(cursor, MAX_BATCH_SIZE) : null;
+            if(changes == null) {
+                cursor = writeSnapshot(out);
+            } else if(!changes.isEmpty()) {
+                for(PetChange change : changes) writeChange(out, change);
+                cursor = changes.get(changes.size() - 1).getSequence();
+            } else if(!await(cursor, Math.min(HEARTBEAT_INTERVAL_NANOS, deadline - System.nanoTime()))) {
+                // comment lines keep proxies from closing an idle stream and surface clients that left
+                write(out, ": keep-alive\n\n");
+            }
+            out.flush();
+        }
+    }
+
+    private long writeSnapshot(OutputStream out) throws IOException {
+        long sequence = petChangeLog.lastSequence();
+        write(out, "event: snapshot\ndata: {\"sequence\":" + sequence + "}\n\n");
+        try {
+            petRepository.forEachChunk(chunk -> {
+                try {
+                    for(Pet pet : chunk) writeEvent(out, "pet", petJsonCache.json(pet));
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+        write(out, "id: " + sequence + "\nevent: snapshot-end\ndata: {\"sequence\":" + sequence + "}\n\n");
+        return sequence;
+    }
+
+    private void writeChange(OutputStream out, PetChange change) throws IOException {
+        write(out, "id: " + change.getSequence() + "\n");
+        if(change.getType() == PetChange.Type.SAVED) writeEvent(out, "saved", petJsonCache.json(change.getPet()));
+        else write(out, "event: deleted\ndata: {\"id\":" + change.getPetId() + "}\n\n");
+    }
+
+    // Jackson escapes line breaks inside strings, so the JSON always fits on one data line
+    private static void writeEvent(OutputStream out, String event, byte[] json) throws IOException {
+        write(out, "event: " + event + "\ndata: ");
+        out.write(json);
+        write(out, "\n\n");
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean await(long after, long timeoutNanos) {
+        if(timeoutNanos <= 0) return false;
+        try {
+            return petChangeLog.await(after, timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class PendingPoll {
+        final long after;
+        final CompletableFuture<PetChangeBatch> result;
+
+        PendingPoll(long after, CompletableFuture<PetChangeBatch> result) {
+            this.after = after;
+            this.result = result;
+        }
+    }
+
+    // collects the frames written between flushes and hands them to the emitter in one send
+    private static final class EmitterOutputStream extends OutputStream {
+        private final ResponseBodyEmitter emitter;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+        EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) {
+            pending.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            pending.write(bytes, offset, length);
+            if(pending.size() >= STREAM_BUFFER_BYTES) flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if(pending.size() == 0) return;
+            emitter.send(pending.toByteArray(), MediaType.TEXT_EVENT_STREAM);
+            pending.reset();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.project.service.impl;
+
+import com.project.exception.ResourceNotFoundException;
+import com.project.model.Pet;
+import com.project.model.StoredImage;
+import com.project.repository.blob.BlobStore;
+import com.project.service.PetImageService;
+import com.project.service.PetService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stores uploaded images in the {@link BlobStore} and links them from the pet's photo URLs. The
+ * same bytes uploaded twice, for one pet or several, are stored once and keep one URL.
+ */
+@Service
+@RequiredArgsConstructor
+public class PetImageServiceImpl implements PetImageService {
+    private final PetService petService;
+    private final BlobStore blobStore;
+
+    @Override
+    public StoredImage addImage(Long petId, InputStream content, String urlPrefix) {
+        Pet existing = findPet(petId);
+        BlobStore.StoredBlob blob = blobStore.put(content);
+        String url = urlPrefix + blob.getHash();
+        // the url is added on top of whatever version is stored when the write happens, so concurrent updates are kept
+        if(!hasPhoto(existing, url)) petService.modifyById(petId, pet -> hasPhoto(pet, url) ? pet : pet.withPhotoUrls(withPhoto(pet.getPhotoUrls(), url)), null);
+        return StoredImage.builder()
+                .petId(petId)
+                .hash(blob.getHash())
+                .size(blob.getSize())
+                .url(url)
+                .duplicate(!blob.isCreated())
+                .build();
+    }
+
+    @Override
+    public Optional<Path> findImage(String hash) {
+        return blobStore.find(hash);
+    }
+
+    private static boolean hasPhoto(Pet pet, String url) {
+        return pet.getPhotoUrls() != null && pet.getPhotoUrls().contains(url);
+    }
+
+    private static List<String> withPhoto(List<String> photoUrls, String url) {
+        List<String> withPhoto = photoUrls == null ? new ArrayList<>() : new ArrayList<>(photoUrls);
+        withPhoto.add(url);
+        return withPhoto;
+    }
+
+    private Pet findPet(Long petId) {
+        return petService.findById(petId).orElseThrow(() -> new ResourceNotFoundException("Pet with id " + petId + " not found!"));
+    }
+}
@@ -1,17 +1,48 @@
 package com.project.service.impl;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.exception.InvalidDataException;
+import com.project.exception.PreconditionFailedException;
+import com.project.exception.ResourceNotFoundException;
+import com.project.model.BatchItemResult;
+import com.project.model.Category;
 import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
 import com.project.repository.PetRepository;
+import com.project.repository.query.PetQuery;
 import com.project.service.PetService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 @Service
 @RequiredArgsConstructor
 public class PetServiceImpl implements PetService {
+    private static final TypeReference<List<String>> PHOTO_URLS = new TypeReference<>() {};
+    private static final TypeReference<List<Tag>> TAGS = new TypeReference<>() {};
+
     private final PetRepository petRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
 
     @Override
     public List<Pet> findAll() {
@@ -19,19 +50,72 @@ public class PetServiceImpl implements PetService {
     }
 
     @Override
-    public Pet findById(Long id) {
+    public List<Pet> findPage(Long afterId, int limit) {
+        return petRepository.findPage(afterId == null ? Long.MIN_VALUE : afterId, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<Pet> action) {
+        petRepository.forEach(action);
+    }
+
+    @Override
+    public Optional<Pet> findById(Long id) {
         return petRepository.findById(id);
     }
 
     @Override
     public Pet save(Pet pet) {
-        if(pet.getId() == null) pet.setId(petRepository.autoIncrement());
-        return petRepository.save(pet);
+        return petRepository.save(pet.getId() == null ? pet.withId(petRepository.autoIncrement()) : pet);
+    }
+
+    @Override
+    public CompletableFuture<Pet> saveAsync(Pet pet) {
+        return petRepository.saveAsync(pet.getId() == null ? pet.withId(petRepository.autoIncrement()) : pet);
+    }
+
+    @Override
+    public Pet updateById(Pet pet, Long id, Long expectedVersion) {
+        return petRepository.updateById(pet, id, expectedVersion);
+    }
+
+    @Override
+    public CompletableFuture<Pet> updateByIdAsync(Pet pet, Long id, Long expectedVersion) {
+        return petRepository.updateByIdAsync(pet, id, expectedVersion);
     }
 
     @Override
-    public Pet updateById(Pet pet, Long id) {
-        return petRepository.updateById(pet, id);
+    public Pet modifyById(Long id, UnaryOperator<Pet> change, Long expectedVersion) {
+        return petRepository.modifyById(id, change, expectedVersion);
+    }
+
+    /**
+     * Applies a JSON merge patch (RFC 7396): fields present in the patch replace the stored ones,
+     * null removes them, and the category is merged field by field. Only the fields named in the
+     * patch are rebuilt; the rest of the new snapshot shares the stored values.
+     * <p>
+     * The patched pet is built and validated from a snapshot, outside the pet's write lock, and
+     * only stored while the pet is still at that snapshot's version. When another write got there
+     * first, the patch is applied again to the newer snapshot, unless the caller asked for a
+     * specific version, in which case the precondition has failed.
+     */
+    @Override
+    public Pet patchById(Long id, JsonNode mergePatch, Long expectedVersion) {
+        if(!mergePatch.isObject()) throw new InvalidDataException("Merge patch must be a JSON object");
+        while(true) {
+            Pet existing = petRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Pet with id " + id + " not found!"));
+            if(expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+                throw new PreconditionFailedException("Pet with id " + id + " is at version " + existing.getVersion() + ", not " + expectedVersion);
+            }
+            Pet patched = applyMergePatch(existing, mergePatch);
+            Set<ConstraintViolation<Pet>> violations = validator.validate(patched);
+            if(!violations.isEmpty()) throw new InvalidDataException("Patched pet is invalid: " + describe(violations));
+            try {
+                return petRepository.updateById(patched, id, existing.getVersion());
+            } catch(PreconditionFailedException e) {
+                if(expectedVersion != null) throw e;
+            }
+        }
     }
 
     @Override
@@ -40,7 +124,155 @@ public class PetServiceImpl implements PetService {
     }
 
     @Override
-    public List<Pet> getPetsByStatus(String statusValue) {
-        return petRepository.getPetsByStatus(statusValue);
+    public CompletableFuture<Void> deleteByIdAsync(Long id) {
+        return petRepository.deleteByIdAsync(id);
+    }
+
+    @Override
+    public List<BatchItemResult> saveAll(List<Pet> pets) {
+        BatchItemResult[] results = new BatchItemResult[pets.size()];
+        List<Pet> validPets = validateAll(pets, results, false);
+        List<Pet> stored = petRepository.saveAll(validPets);
+        for(int i = 0, valid = 0; i < pets.size(); i++) {
+            if(results[i] == null) results[i] = result(i, stored.get(valid++).getId(), HttpStatus.CREATED, null);
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResult> updateAll(List<Pet> pets) {
+        BatchItemResult[] results = new BatchItemResult[pets.size()];
+        List<Pet> validPets = validateAll(pets, results, true);
+        boolean[] updated = petRepository.updateAll(validPets);
+        for(int i = 0, valid = 0; i < pets.size(); i++) {
+            if(results[i] != null) continue;
+            Long id = pets.get(i).getId();
+            results[i] = updated[valid++] ? result(i, id, HttpStatus.OK, null) : result(i, id, HttpStatus.NOT_FOUND, "Pet with id " + id + " not found!");
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResult> deleteAll(List<Long> ids) {
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        List<Long> validIds = new ArrayList<>(ids.size());
+        for(int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if(id == null || id < 0) results[i] = result(i, id, HttpStatus.BAD_REQUEST, "Id " + id + " is invalid");
+            else validIds.add(id);
+        }
+        boolean[] deleted = petRepository.deleteAll(validIds);
+        for(int i = 0, valid = 0; i < ids.size(); i++) {
+            if(results[i] != null) continue;
+            Long id = ids.get(i);
+            results[i] = deleted[valid++] ? result(i, id, HttpStatus.NO_CONTENT, null) : result(i, id, HttpStatus.NOT_FOUND, "Pet with id " + id + " not found!");
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<Pet> getPetsByStatus(Set<Status> statuses) {
+        return petRepository.getPetsByStatus(statuses);
+    }
+
+    @Override
+    public List<Pet> findByCategory(Long categoryId) {
+        return petRepository.findByCategory(categoryId);
+    }
+
+    @Override
+    public List<Pet> findByTags(Collection<Long> tagIds) {
+        return petRepository.findByTags(tagIds);
+    }
+
+    @Override
+    public List<Pet> findByName(String prefix, int limit) {
+        return petRepository.findByName(prefix, limit);
+    }
+
+    @Override
+    public List<Pet> search(PetQuery query, Long afterId, int limit) {
+        return petRepository.search(query, afterId == null ? Long.MIN_VALUE : afterId, limit);
+    }
+
+    // fills in a 400 result for every invalid pet and returns the valid ones in order
+    private List<Pet> validateAll(List<Pet> pets, BatchItemResult[] results, boolean idRequired) {
+        List<Pet> validPets = new ArrayList<>(pets.size());
+        for(int i = 0; i < pets.size(); i++) {
+            Pet pet = pets.get(i);
+            if(pet == null) {
+                results[i] = result(i, null, HttpStatus.BAD_REQUEST, "Pet is missing");
+                continue;
+            }
+            Set<ConstraintViolation<Pet>> violations = validator.validate(pet);
+            if(!violations.isEmpty()) {
+                results[i] = result(i, pet.getId(), HttpStatus.BAD_REQUEST, describe(violations));
+            } else if(idRequired ? pet.getId() == null || pet.getId() < 0 : pet.getId() != null && pet.getId() < 0) {
+                results[i] = result(i, pet.getId(), HttpStatus.BAD_REQUEST, "Id " + pet.getId() + " is invalid");
+            } else {
+                validPets.add(pet);
+            }
+        }
+        return validPets;
+    }
+
+    private Pet applyMergePatch(Pet pet, JsonNode patch) {
+        Pet.PetBuilder patched = pet.toBuilder();
+        for(Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch(field.getKey()) {
+                case "id":
+                    if(!value.isNull() && value.asLong() != pet.getId()) throw new InvalidDataException("Merge patch cannot change the id of pet " + pet.getId());
+                    break;
+                case "name":
+                    patched.name(value.isNull() ? null : value.asText());
+                    break;
+                case "status":
+                    Status status = value.isNull() ? null : Status.getStatusFromValue(value.asText());
+                    if(!value.isNull() && status == null) throw new InvalidDataException("Invalid status value");
+                    patched.status(status);
+                    break;
+                case "category":
+                    patched.category(value.isNull() ? null : mergeCategory(pet.getCategory(), value));
+                    break;
+                case "photoUrls":
+                    patched.photoUrls(value.isNull() ? null : convert(value, PHOTO_URLS));
+                    break;
+                case "tags":
+                    patched.tags(value.isNull() ? null : convert(value, TAGS));
+                    break;
+                default:
+                    // unknown fields are ignored, as in every other request body
+            }
+        }
+        return patched.build();
+    }
+
+    private Category mergeCategory(Category category, JsonNode patch) {
+        if(!patch.isObject()) throw new InvalidDataException("Category must be a JSON object");
+        Long id = category == null ? null : category.getId();
+        String name = category == null ? null : category.getName();
+        if(patch.has("id")) id = patch.get("id").isNull() ? null : convert(patch.get("id"), new TypeReference<Long>() {});
+        if(patch.has("name")) name = patch.get("name").isNull() ? null : patch.get("name").asText();
+        return new Category(id, name);
+    }
+
+    private <T> T convert(JsonNode value, TypeReference<T> type) {
+        try {
+            return objectMapper.readerFor(type).readValue(value);
+        } catch(IllegalArgumentException | IOException e) {
+            throw new InvalidDataException("Merge patch value " + value + " is invalid");
+        }
+    }
+
+    private static String describe(Set<ConstraintViolation<Pet>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted().collect(Collectors.joining(", "));
+    }
+
+    private static BatchItemResult result(int index, Long id, HttpStatus status, String message) {
+        return BatchItemResult.builder().index(index).id(id).code(status.value()).message(message).build();
     }
 }
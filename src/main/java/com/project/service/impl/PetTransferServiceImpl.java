@@ -0,0 +1,207 @@
+package com.project.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.project.model.BatchItemResult;
+import com.project.model.ImportSummary;
+import com.project.model.Pet;
+import com.project.model.TransferProgress;
+import com.project.service.PetService;
+import com.project.service.PetTransferService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves pets in and out of the store as NDJSON without ever holding the whole document. Imports
+ * parse one pet at a time and write them in batches through {@link PetService#saveAll}; the next
+ * bytes are only read once a batch is stored (and journaled), so a client sending faster than the
+ * store can keep up is held back by TCP flow control. Exports stream pets straight into the
+ * response. Running transfers publish their record and byte counts through {@link #activeTransfers()}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PetTransferServiceImpl implements PetTransferService {
+    static final int IMPORT_BATCH_SIZE = 1000;
+    static final int MAX_REPORTED_ERRORS = 100;
+    private static final long PROGRESS_LOG_INTERVAL = 100_000;
+
+    private final PetService petService;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong transferIds = new AtomicLong();
+    private final Map<Long, Transfer> transfers = new ConcurrentHashMap<>();
+
+    @Override
+    public ImportSummary importPets(InputStream in) {
+        Transfer transfer = start("import");
+        CountingInputStream counted = new CountingInputStream(in, transfer);
+        ObjectReader reader = objectMapper.readerFor(Pet.class);
+        List<Pet> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        List<BatchItemResult> errors = new ArrayList<>();
+        long read = 0;
+        long failed = 0;
+        String error = null;
+        try(JsonParser parser = objectMapper.getFactory().createParser(counted)) {
+            while(true) {
+                try {
+                    if(parser.nextToken() == null) break;
+                    batch.add(reader.readValue(parser));
+                } catch(JsonProcessingException e) {
+                    error = "Record " + read + " is not a valid pet: " + e.getOriginalMessage();
+                    break;
+                }
+                read++;
+                if(batch.size() == IMPORT_BATCH_SIZE) failed += store(batch, read - batch.size(), errors);
+                transfer.records.set(read);
+                if(read % PROGRESS_LOG_INTERVAL == 0) log.info("Import {}: {} pets read, {} bytes", transfer.id, read, transfer.bytes.get());
+            }
+            if(!batch.isEmpty()) failed += store(batch, read - batch.size(), errors);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            transfers.remove(transfer.id);
+        }
+        log.info("Import {} finished: {} pets read, {} failed, {} bytes", transfer.id, read, failed, transfer.bytes.get());
+        return ImportSummary.builder()
+                .read(read)
+                .imported(read - failed)
+                .failed(failed)
+                .bytes(transfer.bytes.get())
+                .errors(errors)
+                .error(error)
+                .build();
+    }
+
+    @Override
+    public long exportPets(OutputStream out) {
+        Transfer transfer = start("export");
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try(JsonGenerator generator = objectMapper.getFactory().createGenerator(new CountingOutputStream(out, transfer))) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            petService.forEach(pet -> {
+                try {
+                    writer.writeValue(generator, pet);
+                    generator.writeRaw('\n');
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                long records = transfer.records.incrementAndGet();
+                if(records % PROGRESS_LOG_INTERVAL == 0) log.info("Export {}: {} pets written", transfer.id, records);
+            });
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            transfers.remove(transfer.id);
+        }
+        log.info("Export {} finished: {} pets, {} bytes", transfer.id, transfer.records.get(), transfer.bytes.get());
+        return transfer.records.get();
+    }
+
+    @Override
+    public List<TransferProgress> activeTransfers() {
+        return transfers.values().stream()
+                .map(transfer -> TransferProgress.builder()
+                        .id(transfer.id)
+                        .type(transfer.type)
+                        .records(transfer.records.get())
+                        .bytes(transfer.bytes.get())
+                        .startedAt(transfer.startedAt)
+                        .build())
+                .toList();
+    }
+
+    // stores the batch, keeps the first failures with their position in the stream and returns how many failed
+    private long store(List<Pet> batch, long firstIndex, List<BatchItemResult> errors) {
+        long failed = 0;
+        for(BatchItemResult result : petService.saveAll(batch)) {
+            if(result.getCode() == HttpStatus.CREATED.value()) continue;
+            failed++;
+            if(errors.size() < MAX_REPORTED_ERRORS) {
+                result.setIndex((int) Math.min(firstIndex + result.getIndex(), Integer.MAX_VALUE));
+                errors.add(result);
+            }
+        }
+        batch.clear();
+        return failed;
+    }
+
+    private Transfer start(String type) {
+        Transfer transfer = new Transfer(transferIds.incrementAndGet(), type, Instant.now());
+        transfers.put(transfer.id, transfer);
+        return transfer;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Transfer {
+        private final long id;
+        private final String type;
+        private final Instant startedAt;
+        private final AtomicLong records = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Transfer transfer;
+
+        CountingInputStream(InputStream in, Transfer transfer) {
+            super(in);
+            this.transfer = transfer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0) transfer.bytes.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if(count > 0) transfer.bytes.addAndGet(count);
+            return count;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final Transfer transfer;
+
+        CountingOutputStream(OutputStream out, Transfer transfer) {
+            super(out);
+            this.transfer = transfer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            transfer.bytes.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            transfer.bytes.addAndGet(length);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.project.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Condenses a JMH JSON report into one entry per benchmark and parameter set (average time and
+ * allocated bytes per operation) and compares it with the checked-in baseline. Average times are
+ * noisy on shared machines, so a slowdown only counts when it exceeds the threshold and the error
+ * intervals of both runs are disjoint; allocation per operation is close to deterministic and
+ * catches most accidental regressions on its own.
+ * <p>
+ * Usage: {@code BaselineComparison <jmh-result.json> <baseline.json> <summary.json> <threshold> [update]}.
+ * With {@code update} the summary replaces the baseline instead of being compared with it.
+ */
+public final class BaselineComparison {
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    // allocation changes below this many bytes per operation are treated as noise
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 4) throw new IllegalArgumentException("Usage: BaselineComparison <jmh-result.json> <baseline.json> <summary.json> <threshold> [update]");
+        Path resultFile = Path.of(args[0]);
+        Path baselineFile = Path.of(args[1]);
+        Path summaryFile = Path.of(args[2]);
+        double threshold = Double.parseDouble(args[3]);
+        boolean update = args.length > 4 && Boolean.parseBoolean(args[4]);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode summary = summarize(objectMapper, objectMapper.readTree(resultFile.toFile()));
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(summaryFile.toFile(), summary);
+        if(update) {
+            Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(baselineFile.toFile(), summary);
+            System.out.println("Baseline " + baselineFile + " updated with " + summary.size() + " results");
+            return;
+        }
+        if(!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; run with update to create one");
+            return;
+        }
+        int regressions = compare(summary, objectMapper.readTree(baselineFile.toFile()), threshold);
+        if(regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + Math.round(threshold * 100) + "%");
+            System.exit(1);
+        }
+    }
+
+    static ObjectNode summarize(ObjectMapper objectMapper, JsonNode results) {
+        Map<String, ObjectNode> entries = new TreeMap<>();
+        for(JsonNode result : results) {
+            ObjectNode entry = objectMapper.createObjectNode();
+            JsonNode primary = result.path("primaryMetric");
+            entry.put("score", primary.path("score").asDouble());
+            entry.put("error", primary.path("scoreError").asDouble());
+            entry.put("unit", primary.path("scoreUnit").asText());
+            entry.put("threads", result.path("threads").asInt());
+            Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+            while(metrics.hasNext()) {
+                Map.Entry<String, JsonNode> metric = metrics.next();
+                if(metric.getKey().endsWith(ALLOCATION_METRIC)) entry.put("allocatedBytesPerOp", metric.getValue().path("score").asDouble());
+            }
+            entries.put(key(result), entry);
+        }
+        ObjectNode summary = objectMapper.createObjectNode();
+        entries.forEach(summary::set);
+        return summary;
+    }
+
+    static int compare(JsonNode summary, JsonNode baseline, double threshold) {
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %8s %12s %12s%n", "benchmark", "baseline", "current", "change", "base B/op", "cur B/op");
+        Iterator<Map.Entry<String, JsonNode>> entries = summary.fields();
+        while(entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            JsonNode current = entry.getValue();
+            JsonNode previous = baseline.get(entry.getKey());
+            if(previous == null) {
+                System.out.printf("%-80s %14s %14.1f %8s%n", entry.getKey(), "new", current.path("score").asDouble(), "");
+                continue;
+            }
+            double change = current.path("score").asDouble() / previous.path("score").asDouble() - 1;
+            double previousAllocation = previous.path("allocatedBytesPerOp").asDouble();
+            double currentAllocation = current.path("allocatedBytesPerOp").asDouble();
+            // slower only counts when the confidence intervals of the two runs do not overlap either
+            boolean slower = change > threshold
+                    && current.path("score").asDouble() - current.path("error").asDouble() > previous.path("score").asDouble() + previous.path("error").asDouble();
+            boolean allocatesMore = currentAllocation - previousAllocation > Math.max(ALLOCATION_SLACK_BYTES, previousAllocation * threshold);
+            if(slower || allocatesMore) regressions++;
+            System.out.printf("%-80s %14.1f %14.1f %+7.0f%% %12.0f %12.0f%s%n", entry.getKey(), previous.path("score").asDouble(), current.path("score").asDouble(),
+                    change * 100, previousAllocation, currentAllocation, slower || allocatesMore ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+
+    private static String key(JsonNode result) {
+        String benchmark = result.path("benchmark").asText();
+        String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+        Map<String, String> params = new TreeMap<>();
+        result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+        if(params.isEmpty()) return name;
+        StringBuilder key = new StringBuilder(name).append('[');
+        params.forEach((param, value) -> key.append(param).append('=').append(value).append(','));
+        key.setCharAt(key.length() - 1, ']');
+        return key.toString();
+    }
+}
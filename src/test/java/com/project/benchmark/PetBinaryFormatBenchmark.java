@@ -0,0 +1,83 @@
+package com.project.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a findByStatus-sized list of pets in each payload format the API
+ * negotiates. The encoded size of every format is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class PetBinaryFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"1", "100"})
+    public int petCount;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<Pet> pets;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory(format)).build();
+        writer = objectMapper.writer();
+        reader = objectMapper.readerFor(new TypeReference<List<Pet>>() {});
+        pets = new ArrayList<>(petCount);
+        for(long id = 1; id <= petCount; id++) {
+            pets.add(Pet.builder().id(id).name("pet" + id)
+                    .category(new Category(id % 5, "category" + id % 5))
+                    .photoUrls(List.of("https://example.com/" + id + "-1.png", "https://example.com/" + id + "-2.png"))
+                    .tags(List.of(new Tag(id % 20, "tag" + id % 20), new Tag(id % 7 + 20, "tag" + (id % 7 + 20))))
+                    .status(Status.values()[(int) (id % 3)])
+                    .build());
+        }
+        encoded = writer.writeValueAsBytes(pets);
+        System.out.printf("%n%s, %d pets: %d bytes%n", format, petCount, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(pets);
+    }
+
+    @Benchmark
+    public List<Pet> decode() throws IOException {
+        return reader.readValue(encoded);
+    }
+
+    private static JsonFactory factory(String format) {
+        switch(format) {
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.project.benchmark;
+
+import com.project.model.Pet;
+import com.project.repository.index.PetIndexes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autocomplete lookups against the name indexes, the way a storefront sends one per keystroke:
+ * the first ten ids for a one, two and four character prefix, and the trigram postings for a
+ * substring. The indexes alone are built, without a store, so millions of names fit in the heap;
+ * the 10M case needs a larger one, e.g.
+ * {@code mvn test -Pjmh -Djmh.include=PetNameIndexBenchmark "-Djmh.args=-p pets=10000000 -jvmArgs -Xmx12g"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class PetNameIndexBenchmark {
+    private static final String[] SYLLABLES = {"ba", "be", "bo", "da", "di", "fu", "ka", "ki", "lu", "ma",
+            "mi", "na", "no", "pa", "pi", "ra", "re", "ro", "sa", "so", "ta", "ti", "to", "vi", "zu"};
+
+    @Param({"1000000"})
+    public int pets;
+
+    private PetIndexes indexes;
+
+    @Setup
+    public void setUp() {
+        indexes = new PetIndexes();
+        SplittableRandom random = new SplittableRandom(11);
+        for(long id = 1; id <= pets; id++) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for(int i = 0; i < syllables; i++) name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            if(random.nextInt(4) == 0) name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            indexes.index(id, Pet.builder().id(id).name(name.toString()).build(), null);
+        }
+    }
+
+    @Benchmark
+    public long oneCharacterPrefix() {
+        return topTen("m");
+    }
+
+    @Benchmark
+    public long twoCharacterPrefix() {
+        return topTen("Ma");
+    }
+
+    @Benchmark
+    public long fourCharacterPrefix() {
+        return topTen("maki");
+    }
+
+    @Benchmark
+    public int prefixCount() {
+        return indexes.countNamesStartingWith("maki");
+    }
+
+    @Benchmark
+    public int substringPostings() {
+        int smallest = Integer.MAX_VALUE;
+        for(var postings : indexes.nameTrigrams("kiro")) smallest = Math.min(smallest, postings.size());
+        return smallest;
+    }
+
+    private long topTen(String prefix) {
+        long[] sum = new long[2];
+        indexes.forEachNameStartingWith(prefix, id -> {
+            sum[0] += id;
+            return ++sum[1] < 10;
+        });
+        return sum[0];
+    }
+}
@@ -0,0 +1,102 @@
+package com.project.benchmark;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.PetRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository hot paths over stores of different sizes and status distributions. The contended
+ * variants run the same operation from four threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class PetRepositoryBenchmark {
+    private static final int BATCH_SIZE = 10_000;
+    private static final Set<Status> QUERIED_STATUSES = EnumSet.of(Status.PENDING, Status.SOLD);
+
+    @Param({"1000", "100000"})
+    public int storeSize;
+
+    /**
+     * even: a third of the pets in each status; skewed: 90% available, 5% pending, 5% sold.
+     */
+    @Param({"even", "skewed"})
+    public String statusMix;
+
+    private PetRepository repository;
+
+    @Setup
+    public void setUp() {
+        repository = new PetRepository();
+        List<Pet> batch = new ArrayList<>(BATCH_SIZE);
+        for(long id = 1; id <= storeSize; id++) {
+            batch.add(Pet.builder().id(id).name("pet" + id)
+                    .category(new Category(id % 10, "category" + id % 10))
+                    .photoUrls(List.of("https://example.com/" + id + ".png"))
+                    .tags(List.of(new Tag(id % 20, "tag" + id % 20)))
+                    .status(status(id))
+                    .build());
+            if(batch.size() == BATCH_SIZE) {
+                repository.saveAll(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if(!batch.isEmpty()) repository.saveAll(batch);
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        long next(int storeSize) {
+            return random.nextLong(storeSize) + 1;
+        }
+    }
+
+    @Benchmark
+    public Pet findById(Ids ids) {
+        return repository.findById(ids.next(storeSize)).orElse(null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Pet findByIdContended(Ids ids) {
+        return repository.findById(ids.next(storeSize)).orElse(null);
+    }
+
+    @Benchmark
+    public List<Pet> getPetsByStatus() {
+        return repository.getPetsByStatus(QUERIED_STATUSES);
+    }
+
+    @Benchmark
+    public Long autoIncrement() {
+        return repository.autoIncrement();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long autoIncrementContended() {
+        return repository.autoIncrement();
+    }
+
+    private Status status(long id) {
+        if(statusMix.equals("even")) return Status.values()[(int) (id % 3)];
+        int bucket = (int) (id % 20);
+        return bucket == 0 ? Status.PENDING : bucket == 1 ? Status.SOLD : Status.AVAILABLE;
+    }
+}
@@ -0,0 +1,85 @@
+package com.project.benchmark;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.PetRepository;
+import com.project.repository.query.PetQuery;
+import com.project.repository.query.PetQueryEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches over a 200k pet store with scan pools of different sizes. fullScan matches nothing, so
+ * it visits every pet and shows how the scan scales with workers; the scaling is bounded by the
+ * cores of the machine, so compare runs with {@code -p parallelism=...} up to its core count.
+ * limitedScan still visits every pet but keeps only the lowest ids of its many matches in each
+ * chunk, and indexed is answered from the category and status postings without scanning.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class PetSearchBenchmark {
+    private static final int STORE_SIZE = 200_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private PetRepository repository;
+    private PetQueryEngine engine;
+    private PetQuery noMatch;
+    private PetQuery frequentMatch;
+    private PetQuery indexedMatch;
+
+    @Setup
+    public void setUp() {
+        engine = new PetQueryEngine(parallelism);
+        repository = new PetRepository();
+        repository.setQueryEngine(engine);
+        List<Pet> batch = new ArrayList<>(BATCH_SIZE);
+        for(long id = 1; id <= STORE_SIZE; id++) {
+            batch.add(Pet.builder().id(id).name("pet" + id)
+                    .category(new Category(id % 100, "category" + id % 100))
+                    .photoUrls(List.of("https://example.com/" + id + ".png"))
+                    .tags(List.of(new Tag(id % 20, "tag" + id % 20)))
+                    .status(Status.values()[(int) (id % 3)])
+                    .build());
+            if(batch.size() == BATCH_SIZE) {
+                repository.saveAll(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        noMatch = PetQuery.and(List.of(PetQuery.nameContains("cat"), PetQuery.photoCount(1, 1)));
+        frequentMatch = PetQuery.nameContains("7");
+        indexedMatch = PetQuery.and(List.of(PetQuery.category(42), PetQuery.status(EnumSet.of(Status.SOLD))));
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public List<Pet> fullScan() {
+        return repository.search(noMatch, 100);
+    }
+
+    @Benchmark
+    public List<Pet> limitedScan() {
+        return repository.search(frequentMatch, 100);
+    }
+
+    @Benchmark
+    public List<Pet> indexed() {
+        return repository.search(indexedMatch, 100);
+    }
+}
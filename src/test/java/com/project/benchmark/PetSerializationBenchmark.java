@@ -0,0 +1,68 @@
+package com.project.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding and decoding of a pet, configured like the application's object mapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class PetSerializationBenchmark {
+
+    @Param({"0", "3", "20"})
+    public int tagCount;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Pet pet;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(Pet.class);
+        reader = objectMapper.readerFor(Pet.class);
+        List<Tag> tags = new ArrayList<>();
+        for(long id = 1; id <= tagCount; id++) tags.add(new Tag(id, "tag" + id));
+        pet = Pet.builder().id(42L).name("doggie")
+                .category(new Category(1L, "dogs"))
+                .photoUrls(List.of("https://example.com/42-1.png", "https://example.com/42-2.png"))
+                .tags(tags)
+                .status(Status.AVAILABLE)
+                .build();
+        json = writer.writeValueAsBytes(pet);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(pet);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] encodeContended() throws IOException {
+        return writer.writeValueAsBytes(pet);
+    }
+
+    @Benchmark
+    public Pet decode() throws IOException {
+        return reader.readValue(json);
+    }
+}
@@ -0,0 +1,103 @@
+package com.project.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.PetRepository;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares encoding a pet, and a 100-pet list, with plain Jackson against the cached bytes.
+ */
+@org.junit.jupiter.api.Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetJsonCacheBenchmarkTest {
+    private static final int LIST_SIZE = 100;
+
+    private ObjectMapper objectMapper;
+    private PetJsonCache cache;
+    private Pet pet;
+    private List<Pet> pets;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        cache = new PetJsonCache(objectMapper, 64L << 20);
+        PetRepository repository = new PetRepository();
+        List<Pet> newPets = new ArrayList<>();
+        for(long id = 1; id <= LIST_SIZE; id++) {
+            newPets.add(Pet.builder().id(id).name("pet" + id)
+                    .category(new Category(id % 5, "category" + id % 5))
+                    .photoUrls(List.of("https://example.com/" + id + "-1.png", "https://example.com/" + id + "-2.png"))
+                    .tags(List.of(new Tag(1L, "friendly"), new Tag(2L, "vaccinated"), new Tag(id, "tag" + id)))
+                    .status(Status.AVAILABLE)
+                    .build());
+        }
+        repository.saveAll(newPets);
+        pets = repository.findAll();
+        pet = pets.get(0);
+        out = new ByteArrayOutputStream(64 * 1024);
+    }
+
+    @Benchmark
+    public byte[] jacksonPet() throws IOException {
+        return objectMapper.writeValueAsBytes(pet);
+    }
+
+    @Benchmark
+    public byte[] cachedPet() {
+        return cache.json(pet);
+    }
+
+    @Benchmark
+    public void jacksonList(Blackhole blackhole) throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, pets);
+        blackhole.consume(out);
+    }
+
+    @Benchmark
+    public void cachedList(Blackhole blackhole) throws IOException {
+        out.reset();
+        cache.writeArray(pets, out);
+        blackhole.consume(out);
+    }
+
+    @Test
+    void cachedBytesBeatJackson() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder().include(getClass().getName() + "\\.").build()).run();
+        Map<String, Double> nanos = results.stream().collect(Collectors.toMap(
+                result -> result.getParams().getBenchmark().replaceFirst(".*\\.", ""),
+                result -> result.getPrimaryResult().getScore()));
+        System.out.printf("pet: jackson=%.0fns cached=%.0fns, %d-pet list: jackson=%.0fns cached=%.0fns%n",
+                nanos.get("jacksonPet"), nanos.get("cachedPet"), LIST_SIZE, nanos.get("jacksonList"), nanos.get("cachedList"));
+        assertTrue(nanos.get("cachedPet") < nanos.get("jacksonPet"));
+        assertTrue(nanos.get("cachedList") < nanos.get("jacksonList"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.project.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.PetRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PetJsonCacheTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final PetRepository repository = new PetRepository();
+    private final PetJsonCache cache = new PetJsonCache(objectMapper, 1 << 20);
+
+    PetJsonCacheTest() {
+        repository.addChangeListener(cache);
+    }
+
+    @Test
+    void servesCachedBytesUntilThePetChanges() throws IOException {
+        repository.save(pet(1L, "dog"));
+        Pet stored = repository.findById(1L).orElseThrow();
+        byte[] first = cache.json(stored);
+        assertArrayEquals(objectMapper.writeValueAsBytes(stored), first);
+        assertSame(first, cache.json(repository.findById(1L).orElseThrow()));
+        assertEquals(1, cache.statistics().getHits());
+
+        repository.updateById(pet(null, "dog renamed"), 1L);
+        assertEquals(0, cache.statistics().getEntries());
+        assertArrayEquals(objectMapper.writeValueAsBytes(repository.findById(1L).orElseThrow()), cache.json(repository.findById(1L).orElseThrow()));
+        // a reader still holding the old version must not see the new bytes, nor replace them for good
+        assertArrayEquals(first, cache.json(stored));
+        assertEquals(3, cache.statistics().getMisses());
+        // the counters the metrics read need no maintenance pass
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    void joinedFragmentsMatchJacksonsArray() throws IOException {
+        repository.saveAll(List.of(pet(1L, "dog"), pet(2L, "cat"), pet(3L, "parrot")));
+        List<Pet> pets = repository.findAll();
+        cache.json(pets.get(1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeArray(pets, out);
+        assertEquals(objectMapper.writeValueAsString(pets), out.toString());
+
+        out.reset();
+        cache.writeArray(List.of(), out);
+        assertEquals("[]", out.toString());
+    }
+
+    @Test
+    void staysWithinItsSizeBound() {
+        PetJsonCache small = new PetJsonCache(objectMapper, 4096);
+        for(long id = 1; id <= 1000; id++) {
+            repository.save(pet(id, "pet" + id));
+            small.json(repository.findById(id).orElseThrow());
+        }
+        small.json(repository.findById(1000L).orElseThrow());
+        assertTrue(small.statistics().getWeightBytes() <= 4096);
+        assertTrue(small.statistics().getEvictions() > 0);
+    }
+
+    private static Pet pet(Long id, String name) {
+        return Pet.builder().id(id).name(name)
+                .category(new Category(1L, "dogs"))
+                .photoUrls(List.of("url"))
+                .tags(List.of(new Tag(1L, "tag1")))
+                .status(Status.AVAILABLE)
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.project.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionConfigTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(ExecutionConfig.class)
+            .withPropertyValues("petstore.execution.mode=virtual");
+
+    @Test
+    void virtualModeWiresTheExecutorOnJava21AndExplainsItselfBefore() {
+        contextRunner.run(context -> {
+            if(Runtime.version().feature() >= 21) {
+                assertNull(context.getStartupFailure());
+                assertNotNull(context.getBean(TomcatProtocolHandlerCustomizer.class));
+                ExecutorService executor = context.getBean(ExecutorService.class);
+                context.close();
+                assertTrue(executor.isShutdown(), "the virtual thread executor outlived the context");
+            } else {
+                Throwable cause = context.getStartupFailure();
+                while(cause != null && !(cause instanceof IllegalStateException)) cause = cause.getCause();
+                assertNotNull(cause, String.valueOf(context.getStartupFailure()));
+                assertEquals(ExecutionConfig.JAVA_21_REQUIRED + Runtime.version().feature(), cause.getMessage());
+            }
+        });
+    }
+
+    @Test
+    void platformModeLeavesTheWorkerPoolAlone() {
+        new ApplicationContextRunner().withUserConfiguration(ExecutionConfig.class)
+                .withPropertyValues("petstore.execution.mode=platform")
+                .run(context -> assertTrue(context.getBeansOfType(ExecutorService.class).isEmpty()));
+    }
+}
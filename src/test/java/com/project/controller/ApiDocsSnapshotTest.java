@@ -0,0 +1,112 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Keeps the build-time copies that {@link ApiDocsController} serves in step with what springfox
+ * generates from the controllers. After changing the API, record them again with
+ * {@code mvn test -Dtest=ApiDocsSnapshotTest -Dapidocs.update=true}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ApiDocsSnapshotTest {
+    private static final Path DIRECTORY = Path.of("src", "main", "resources", ApiDocsController.DIRECTORY);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @Test
+    void staticApiDocsMatchTheScannedOnes() throws Exception {
+        boolean update = Boolean.getBoolean("apidocs.update");
+        Map<String, Set<String>> ambiguous = ambiguousOperations();
+        for(Map.Entry<String, String> document : ApiDocsController.DOCUMENTS.entrySet()) {
+            JsonNode generated = objectMapper.readTree(mockMvc.perform(get(document.getKey()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray());
+            // the host is taken from the request; without it swagger-ui uses the one serving the page
+            if(generated instanceof ObjectNode) ((ObjectNode) generated).remove("host");
+            Path file = DIRECTORY.resolve(document.getValue());
+            if(update) {
+                // keep the recorded variant of an ambiguous operation, so recording again does not flip it
+                if(Files.exists(file)) copyOperations(objectMapper.readTree(file.toFile()), generated, ambiguous);
+                Files.createDirectories(DIRECTORY);
+                Files.write(file, objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(generated));
+                continue;
+            }
+            assertTrue(Files.exists(file), file + " is missing, record it with -Dapidocs.update=true");
+            assertEquals(withoutOperations(generated, ambiguous), withoutOperations(objectMapper.readTree(file.toFile()), ambiguous),
+                    file + " is out of date, record it again with -Dapidocs.update=true");
+        }
+    }
+
+    /**
+     * Handlers that share a path and method, told apart by what they consume or produce. Swagger 2.0
+     * has room for one of them, and which one springfox documents depends on the order it finds
+     * the handlers in, so those operations are left out of the comparison.
+     */
+    private Map<String, Set<String>> ambiguousOperations() {
+        Map<String, Integer> handlers = new HashMap<>();
+        for(RequestMappingInfo mapping : handlerMapping.getHandlerMethods().keySet()) {
+            if(mapping.getPatternsCondition() == null) continue;
+            for(String pattern : mapping.getPatternsCondition().getPatterns()) {
+                for(RequestMethod method : mapping.getMethodsCondition().getMethods()) handlers.merge(pattern + " " + method, 1, Integer::sum);
+            }
+        }
+        Map<String, Set<String>> ambiguous = new HashMap<>();
+        handlers.forEach((operation, count) -> {
+            if(count < 2) return;
+            String[] parts = operation.split(" ");
+            ambiguous.computeIfAbsent(parts[0], path -> new HashSet<>()).add(parts[1].toLowerCase());
+        });
+        return ambiguous;
+    }
+
+    private static void copyOperations(JsonNode from, JsonNode to, Map<String, Set<String>> operations) {
+        operations.forEach((path, methods) -> {
+            JsonNode source = from.path("paths").path(path);
+            JsonNode target = to.path("paths").path(path);
+            if(!(target instanceof ObjectNode)) return;
+            for(String method : methods) {
+                if(source.has(method)) ((ObjectNode) target).set(method, source.get(method));
+            }
+        });
+    }
+
+    private static JsonNode withoutOperations(JsonNode document, Map<String, Set<String>> operations) {
+        operations.forEach((path, methods) -> {
+            JsonNode node = document.path("paths").path(path);
+            if(node instanceof ObjectNode) ((ObjectNode) node).remove(methods);
+        });
+        return document;
+    }
+}
@@ -0,0 +1,46 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("fast-startup")
+class FastStartupProfileTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Test
+    void servesRecordedApiDocsWithoutSpringfoxAndKeepsRepositoryHooksEager() throws Exception {
+        assertEquals(0, context.getBeanNamesForType(Docket.class).length);
+        for(String hook : new String[]{"petRepository", "petRepositoryMetrics", "petQueryEngine", "petChangeLog", "petJsonCache"}) {
+            assertTrue(context.getBeanFactory().containsSingleton(hook), hook + " was not created at startup");
+        }
+        assertFalse(context.getBeanFactory().containsSingleton("petTransferServiceImpl"), "other beans should wait for first use");
+
+        byte[] apiDocs = mockMvc.perform(get("/v2/api-docs")).andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+        assertEquals(objectMapper.readTree(Path.of("src/main/resources/api-docs/swagger.json").toFile()), objectMapper.readTree(apiDocs));
+        mockMvc.perform(get("/swagger-resources/configuration/ui")).andExpect(status().isOk());
+        mockMvc.perform(get("/pet/1")).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,75 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockPart;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ImageControllerTest {
+    @TempDir
+    static Path images;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void imageDirectory(DynamicPropertyRegistry registry) {
+        registry.add("petstore.images.directory", images::toString);
+    }
+
+    @Test
+    void uploadedImagesAreLinkedFromThePetAndServedByRange() throws Exception {
+        byte[] image = new byte[10_000];
+        new Random(3).nextBytes(image);
+
+        JsonNode stored = objectMapper.readTree(mockMvc.perform(multipart("/pet/{petId}/uploadImage", 1).part(new MockPart("file", "dog.bin", image)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray());
+        String hash = stored.get("hash").asText();
+        JsonNode duplicate = objectMapper.readTree(mockMvc.perform(multipart("/pet/{petId}/uploadImage", 2).part(new MockPart("file", "dog.bin", image)))
+                .andReturn().getResponse().getContentAsByteArray());
+        assertTrue(duplicate.get("duplicate").asBoolean());
+        assertEquals(stored.get("url"), duplicate.get("url"));
+
+        JsonNode pet = objectMapper.readTree(mockMvc.perform(get("/pet/{petId}", 1)).andReturn().getResponse().getContentAsByteArray());
+        assertTrue(pet.get("photoUrls").toString().contains(hash));
+
+        mockMvc.perform(get("/image/{hash}", hash))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "\""))
+                .andExpect(content().bytes(image));
+        mockMvc.perform(get("/image/{hash}", hash).header(HttpHeaders.RANGE, "bytes=100-199"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-199/10000"))
+                .andExpect(content().bytes(Arrays.copyOfRange(image, 100, 200)));
+        mockMvc.perform(get("/image/{hash}", hash).header(HttpHeaders.RANGE, "bytes=20000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+        mockMvc.perform(get("/image/{hash}", "0".repeat(64)))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,111 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PetBinaryFormatTest {
+    private static final MediaType SMILE = MediaType.parseMediaType(PetController.APPLICATION_SMILE_VALUE);
+
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void petsAreReadAndWrittenInTheNegotiatedFormat() throws Exception {
+        Pet pet = Pet.builder().name("rex").category(new Category(7L, "hounds")).photoUrls(List.of("a", "b"))
+                .tags(List.of(new Tag(1L, "good"))).status(Status.PENDING).build();
+
+        byte[] created = mockMvc.perform(post("/pet").contentType(MediaType.APPLICATION_CBOR).accept(SMILE).content(cbor.writeValueAsBytes(pet)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        Pet stored = smile.readValue(created, Pet.class);
+        assertEquals(pet.withId(stored.getId()), stored);
+
+        byte[] byId = mockMvc.perform(get("/pet/{petId}", stored.getId()).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(stored, cbor.readValue(byId, Pet.class));
+
+        byte[] json = mockMvc.perform(get("/pet/findByCategory").param("categoryId", "7"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] binary = mockMvc.perform(get("/pet/findByCategory").param("categoryId", "7").header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-jackson-smile"))
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(List.of(stored), smile.readValue(binary, new TypeReference<List<Pet>>() {}));
+        assertTrue(binary.length < json.length, binary.length + " Smile bytes, " + json.length + " JSON bytes");
+
+        mockMvc.perform(get("/pet/findByCategory").param("categoryId", "7").header(HttpHeaders.ACCEPT, "application/cbor;q=0, */*"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void eachFormatOfAVersionHasItsOwnETag() throws Exception {
+        Pet pet = Pet.builder().name("rex").photoUrls(List.of("a")).status(Status.AVAILABLE).build();
+        Pet stored = cbor.readValue(mockMvc.perform(post("/pet").contentType(MediaType.APPLICATION_CBOR).accept(MediaType.APPLICATION_CBOR).content(cbor.writeValueAsBytes(pet)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray(), Pet.class);
+        long id = stored.getId();
+        String json = mockMvc.perform(get("/pet/{petId}", id)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String version = json.substring(1, json.length() - 1);
+        String cborTag = "\"" + version + "-cbor\"";
+        String smileTag = "\"" + version + "-smile\"";
+
+        mockMvc.perform(get("/pet/{petId}", id).accept(MediaType.APPLICATION_CBOR)).andExpect(header().string(HttpHeaders.ETAG, cborTag));
+        mockMvc.perform(get("/pet/{petId}", id).accept(SMILE)).andExpect(header().string(HttpHeaders.ETAG, smileTag));
+
+        // a cached JSON body does not stand in for the CBOR one
+        mockMvc.perform(get("/pet/{petId}", id).accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/pet/{petId}", id).accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, json + ", " + smileTag + ", " + cborTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, cborTag));
+        mockMvc.perform(get("/pet/{petId}", id).header(HttpHeaders.IF_NONE_MATCH, cborTag + ", " + json))
+                .andExpect(status().isNotModified());
+
+        // If-Match takes the ETag of any format, since all of them name the same version
+        String updated = mockMvc.perform(put("/pet/{petId}", id).contentType(MediaType.APPLICATION_CBOR).accept(SMILE).header(HttpHeaders.IF_MATCH, cborTag)
+                        .content(cbor.writeValueAsBytes(stored.withName("max"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(updated.endsWith("-smile\""), updated);
+        mockMvc.perform(put("/pet/{petId}", id).contentType(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_MATCH, smileTag)
+                        .content(cbor.writeValueAsBytes(stored.withName("bob"))))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/pet/{petId}", id).contentType(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_MATCH, updated)
+                        .content(cbor.writeValueAsBytes(stored.withName("bob"))))
+                .andExpect(status().isOk());
+    }
+}
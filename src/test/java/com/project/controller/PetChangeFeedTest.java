@@ -0,0 +1,121 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "petstore.changes.max-wait=3s")
+@AutoConfigureMockMvc
+class PetChangeFeedTest {
+    // Boot's shared async executor has 8 core threads and an unbounded queue
+    private static final int SUBSCRIBERS = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void clientsFollowChangesFromASnapshot() throws Exception {
+        JsonNode snapshot = poll("/pet/changes?wait=0");
+        assertTrue(snapshot.get("snapshot").asBoolean());
+        assertTrue(snapshot.get("pets").size() >= 3);
+        long sequence = snapshot.get("sequence").asLong();
+
+        long id = objectMapper.readTree(mockMvc.perform(post("/pet").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"rex\",\"photoUrls\":[\"a\"],\"status\":\"available\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray()).get("id").asLong();
+        mockMvc.perform(delete("/pet/{petId}", id)).andExpect(status().isNoContent());
+
+        JsonNode changes = poll("/pet/changes?wait=0&after=" + sequence);
+        assertFalse(changes.get("snapshot").asBoolean());
+        assertEquals("saved", changes.get("changes").get(0).get("type").asText());
+        assertEquals("rex", changes.get("changes").get(0).get("pet").get("name").asText());
+        assertEquals("deleted", changes.get("changes").get(1).get("type").asText());
+        assertEquals(id, changes.get("changes").get(1).get("petId").asLong());
+        assertEquals(sequence + 2, changes.get("sequence").asLong());
+
+        JsonNode idle = poll("/pet/changes?wait=0&after=" + (sequence + 2));
+        assertEquals(0, idle.get("changes").size());
+        assertTrue(poll("/pet/changes?wait=0&after=1").get("snapshot").asBoolean(), "a cursor the log never held gets a snapshot");
+
+        MvcResult stream = mockMvc.perform(get("/pet/changes").accept(MediaType.TEXT_EVENT_STREAM).header("Last-Event-ID", sequence))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String events = mockMvc.perform(asyncDispatch(stream)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertTrue(events.contains("id: " + (sequence + 1) + "\nevent: saved\ndata: {\"id\":" + id + ","), events);
+        assertTrue(events.contains("id: " + (sequence + 2) + "\nevent: deleted\ndata: {\"id\":" + id + "}\n\n"), events);
+        assertFalse(events.contains("event: snapshot"), events);
+    }
+
+    @Test
+    void moreSubscribersThanTheSharedAsyncPoolHasThreadsAllGetTheNextChange() throws Exception {
+        long sequence = poll("/pet/changes?wait=0").get("sequence").asLong();
+        List<MvcResult> streams = new ArrayList<>();
+        List<MvcResult> polls = new ArrayList<>();
+        for(int i = 0; i < SUBSCRIBERS; i++) {
+            streams.add(mockMvc.perform(get("/pet/changes?after=" + sequence).accept(MediaType.TEXT_EVENT_STREAM))
+                    .andExpect(request().asyncStarted())
+                    .andReturn());
+            polls.add(mockMvc.perform(get("/pet/changes?wait=20&after=" + sequence).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(request().asyncStarted())
+                    .andReturn());
+        }
+        for(MvcResult poll : polls) assertFalse(isDone(poll), "a poll without changes waits");
+
+        long started = System.nanoTime();
+        mockMvc.perform(post("/pet").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"fido\",\"photoUrls\":[\"a\"],\"status\":\"available\"}"))
+                .andExpect(status().isCreated());
+        // streams end after max-wait; had any of them queued behind the others, it could not see the change before then
+        for(MvcResult stream : streams) {
+            while(!stream.getResponse().getContentAsString().contains("id: " + (sequence + 1) + "\nevent: saved\n")) {
+                assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2), "a stream did not get the change while the first streams were open");
+                Thread.sleep(10);
+            }
+        }
+        for(MvcResult poll : polls) {
+            JsonNode batch = objectMapper.readTree(mockMvc.perform(asyncDispatch(poll)).andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray());
+            assertEquals("fido", batch.get("changes").get(0).get("pet").get("name").asText());
+        }
+        for(MvcResult stream : streams) mockMvc.perform(asyncDispatch(stream)).andExpect(status().isOk());
+    }
+
+    private JsonNode poll(String uri) throws Exception {
+        MvcResult result = mockMvc.perform(get(uri).accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return objectMapper.readTree(mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray());
+    }
+
+    private static boolean isDone(MvcResult result) {
+        try {
+            result.getAsyncResult(0);
+            return true;
+        } catch(IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.exception.ResourceNotFoundException;
+import com.project.model.ApiResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PetControllerErrorTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private GlobalExceptionHandler exceptionHandler;
+
+    @Test
+    void missingPetGetsTheSameApiResponseShapeAsHandledErrors() throws Exception {
+        mockMvc.perform(get("/pet/{petId}", 424242))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"code\":404,\"type\":\"Not Found\",\"message\":\"Pet not found\"}", true));
+
+        mockMvc.perform(post("/pet/{petId}", 424242).contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value(404))
+                .andExpect(jsonPath("$.type").value("Not Found"))
+                .andExpect(jsonPath("$.message").value("Pet with id 424242 not found!"));
+    }
+
+    @Test
+    void prebuiltNotFoundBodyIsTheOneTheExceptionHandlerWrites() throws Exception {
+        byte[] prebuilt = mockMvc.perform(get("/pet/{petId}", 424242))
+                .andExpect(status().isNotFound())
+                .andReturn().getResponse().getContentAsByteArray();
+        ApiResponse handled = exceptionHandler.handleResourceNotFoundException(new ResourceNotFoundException(PetController.PET_NOT_FOUND_MESSAGE)).getBody();
+        assertArrayEquals(objectMapper.writeValueAsBytes(handled), prebuilt);
+    }
+
+    @Test
+    void invalidInputIsReportedAsApiResponse() throws Exception {
+        mockMvc.perform(get("/pet/findByStatus").param("status", "lost"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.type").value("Bad Request"))
+                .andExpect(jsonPath("$.message").value("Invalid status value"));
+
+        String created = mockMvc.perform(post("/pet").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"rex\",\"photoUrls\":[\"a\"]}"))
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(post("/pet/{petId}", id).param("status", "lost").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid status value"));
+        mockMvc.perform(post("/pet/{petId}", id).param("status", "sold").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/pet/{petId}", id)).andExpect(jsonPath("$.status").value("sold"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PetPatchTest {
+    private static final MediaType MERGE_PATCH = MediaType.parseMediaType("application/merge-patch+json");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void mergePatchChangesOnlyTheGivenFields() throws Exception {
+        JsonNode created = objectMapper.readTree(mockMvc.perform(post("/pet").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"rex\",\"category\":{\"id\":1,\"name\":\"dogs\"},\"photoUrls\":[\"a\"],\"tags\":[{\"id\":1,\"name\":\"good\"}],\"status\":\"available\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray());
+        long id = created.get("id").asLong();
+
+        String eTag = mockMvc.perform(patch("/pet/{petId}", id).contentType(MERGE_PATCH)
+                        .content("{\"status\":\"sold\",\"category\":{\"name\":\"big dogs\"},\"tags\":null}"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"name\":\"rex\",\"category\":{\"id\":1,\"name\":\"big dogs\"},\"photoUrls\":[\"a\"],\"tags\":null,\"status\":\"sold\"}"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/pet/{petId}", id))
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().json("{\"name\":\"rex\",\"category\":{\"name\":\"big dogs\"},\"status\":\"sold\"}"));
+
+        mockMvc.perform(patch("/pet/{petId}", id).contentType(MERGE_PATCH).content("{\"name\":null}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/pet/{petId}", id).contentType(MERGE_PATCH).content("{\"status\":\"lost\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/pet/{petId}", id).contentType(MERGE_PATCH).content("{\"id\":" + (id + 1) + "}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/pet/{petId}", 424242).contentType(MERGE_PATCH).content("{\"name\":\"x\"}"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(patch("/pet/{petId}", id).contentType(MERGE_PATCH).header(HttpHeaders.IF_MATCH, eTag).content("{\"name\":\"max\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/pet/{petId}", id).contentType(MERGE_PATCH).header(HttpHeaders.IF_MATCH, eTag).content("{\"name\":\"bob\"}"))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("max", objectMapper.readTree(mockMvc.perform(get("/pet/{petId}", id)).andReturn().getResponse().getContentAsByteArray()).get("name").asText());
+    }
+}
@@ -0,0 +1,100 @@
+package com.project.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.file.Path;
+
+@SpringBootTest(properties = {"petstore.execution.mode=reactive", "petstore.execution.reactive-port=0"})
+class ReactivePetHandlerTest {
+    private static final String PET = "{\"name\":\"rex\",\"photoUrls\":[\"a\"],\"status\":\"available\"}";
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void journalInTempDirectory(DynamicPropertyRegistry registry) {
+        // journaled writes so the responses wait for the group commit like in production
+        registry.add("petstore.persistence.enabled", () -> "true");
+        registry.add("petstore.persistence.directory", () -> directory.toString());
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WebServer reactivePetServer;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void bindToReactiveServer() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + reactivePetServer.getPort()).build();
+    }
+
+    @Test
+    void servesTheSinglePetRoundTripWithTheServletStatusesAndHeaders() throws Exception {
+        byte[] created = client.post().uri("/pet").contentType(MediaType.APPLICATION_JSON).bodyValue(PET)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.name").isEqualTo("rex")
+                .returnResult().getResponseBody();
+        long id = objectMapper.readTree(created).get("id").asLong();
+
+        String eTag = client.get().uri("/pet/{petId}", id).accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody().jsonPath("$.id").isEqualTo(id)
+                .returnResult().getResponseHeaders().getETag();
+        client.get().uri("/pet/{petId}", id).header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        String updated = client.put().uri("/pet/{petId}", id).header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(PET.replace("rex", "max"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.name").isEqualTo("max")
+                .returnResult().getResponseHeaders().getETag();
+        client.put().uri("/pet/{petId}", id).header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(PET)
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody().jsonPath("$.code").isEqualTo(412);
+        client.get().uri("/pet/{petId}", id).header(HttpHeaders.IF_NONE_MATCH, updated)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        client.delete().uri("/pet/{petId}", id).exchange().expectStatus().isNoContent();
+        client.get().uri("/pet/{petId}", id)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().json("{\"code\":404,\"type\":\"Not Found\",\"message\":\"Pet not found\"}");
+    }
+
+    @Test
+    void reportsBadInputLikeTheExceptionHandler() {
+        client.get().uri("/pet/{petId}", "rex")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().json("{\"code\":400,\"type\":\"Bad Request\",\"message\":\"Id rex is invalid\"}");
+        client.post().uri("/pet").contentType(MediaType.APPLICATION_JSON).bodyValue("{\"name\":")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("The pet data provided is invalid!");
+        client.put().uri("/pet/{petId}", 424242).contentType(MediaType.APPLICATION_JSON).bodyValue(PET)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
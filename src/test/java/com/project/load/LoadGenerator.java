@@ -0,0 +1,199 @@
+package com.project.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Open-model HTTP load generator. Requests are scheduled at a fixed rate regardless of how fast
+ * earlier ones complete, and sent asynchronously so a slow response never delays the next send.
+ * Every request's latency is measured from the time it was scheduled to start, not from when it
+ * was actually sent, so stalls on either side of the connection show up in the percentiles
+ * instead of silently thinning the load (coordinated omission). The time from the actual send is
+ * recorded alongside for comparison.
+ */
+public class LoadGenerator {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final HttpClient client;
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private final List<String> weightedNames = new ArrayList<>();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicInteger peakInFlightRequests = new AtomicInteger();
+
+    public LoadGenerator() {
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Adds an operation picked for {@code weight} out of every total-weight requests. The factory
+     * gets the generator's random source, so requests can pick ids and payloads from it.
+     */
+    public LoadGenerator operation(String name, int weight, Function<SplittableRandom, HttpRequest> requestFactory) {
+        if(weight <= 0) return this;
+        operations.put(name, new Operation(name, requestFactory));
+        for(int i = 0; i < weight; i++) weightedNames.add(name);
+        return this;
+    }
+
+    /**
+     * Sends {@code ratePerSecond} requests per second for the given duration, waits for the
+     * outstanding ones and returns what was recorded during this run only.
+     */
+    public Results run(int ratePerSecond, Duration duration) {
+        if(weightedNames.isEmpty()) throw new IllegalStateException("No operations configured");
+        operations.values().forEach(Operation::reset);
+        peakInFlightRequests.set(0);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long requests = duration.toNanos() / intervalNanos;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        long start = System.nanoTime();
+        for(long i = 0; i < requests; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long wait;
+            while((wait = intendedStart - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+            Operation operation = operations.get(weightedNames.get(random.nextInt(weightedNames.size())));
+            long sent = System.nanoTime();
+            peakInFlightRequests.accumulateAndGet(inFlightRequests.incrementAndGet(), Math::max);
+            inFlight.add(client.sendAsync(operation.requestFactory.apply(random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        inFlightRequests.decrementAndGet();
+                        operation.record(intendedStart, sent, response, failure);
+                    }));
+            if(inFlight.size() >= 10_000) inFlight.removeIf(CompletableFuture::isDone);
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).exceptionally(failure -> null).join();
+        return new Results(new ArrayList<>(operations.values()), System.nanoTime() - start, ratePerSecond, peakInFlightRequests.get());
+    }
+
+    public static final class Operation {
+        private final String name;
+        private final Function<SplittableRandom, HttpRequest> requestFactory;
+        private final Histogram corrected = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Histogram uncorrected = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Map<Integer, LongAdder> statusCodes = new ConcurrentSkipListMap<>();
+        private final LongAdder failures = new LongAdder();
+
+        Operation(String name, Function<SplittableRandom, HttpRequest> requestFactory) {
+            this.name = name;
+            this.requestFactory = requestFactory;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public Histogram corrected() {
+            return corrected;
+        }
+
+        public Histogram uncorrected() {
+            return uncorrected;
+        }
+
+        public Map<Integer, LongAdder> statusCodes() {
+            return statusCodes;
+        }
+
+        public long failures() {
+            return failures.sum();
+        }
+
+        private void record(long intendedStart, long sent, HttpResponse<?> response, Throwable failure) {
+            long now = System.nanoTime();
+            corrected.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(now - intendedStart), HIGHEST_TRACKABLE_MICROS));
+            uncorrected.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(now - sent), HIGHEST_TRACKABLE_MICROS));
+            if(failure != null) failures.increment();
+            else statusCodes.computeIfAbsent(response.statusCode(), code -> new LongAdder()).increment();
+        }
+
+        private void reset() {
+            corrected.reset();
+            uncorrected.reset();
+            statusCodes.clear();
+            failures.reset();
+        }
+    }
+
+    public static final class Results {
+        private final List<Operation> operations;
+        private final long elapsedNanos;
+        private final int targetRate;
+        private final int peakInFlight;
+
+        Results(List<Operation> operations, long elapsedNanos, int targetRate, int peakInFlight) {
+            this.operations = operations;
+            this.elapsedNanos = elapsedNanos;
+            this.targetRate = targetRate;
+            this.peakInFlight = peakInFlight;
+        }
+
+        public List<Operation> operations() {
+            return operations;
+        }
+
+        public Histogram total() {
+            Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+            operations.forEach(operation -> total.add(operation.corrected()));
+            return total;
+        }
+
+        /**
+         * @return the most requests that were waiting for a response at the same time
+         */
+        public int peakInFlight() {
+            return peakInFlight;
+        }
+
+        public double throughput() {
+            return total().getTotalCount() / (elapsedNanos / 1e9);
+        }
+
+        public long serverErrors() {
+            long errors = 0;
+            for(Operation operation : operations) {
+                errors += operation.failures();
+                for(Map.Entry<Integer, LongAdder> status : operation.statusCodes().entrySet()) {
+                    if(status.getKey() >= 500) errors += status.getValue().sum();
+                }
+            }
+            return errors;
+        }
+
+        public void print(PrintStream out) {
+            out.printf("target %d req/s, achieved %.1f req/s over %.1fs, peak %d requests in flight%n", targetRate, throughput(), elapsedNanos / 1e9, peakInFlight);
+            out.printf("%-14s %8s %10s %10s %10s %10s %10s %14s  %s%n", "operation", "count", "p50 us", "p90 us", "p99 us", "p999 us", "max us", "raw p99 us", "status codes");
+            for(Operation operation : operations) print(out, operation.name(), operation.corrected(), operation.uncorrected().getValueAtPercentile(99), operation.statusCodes() + (operation.failures() > 0 ? " failures=" + operation.failures() : ""));
+            Histogram uncorrectedTotal = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+            operations.forEach(operation -> uncorrectedTotal.add(operation.uncorrected()));
+            print(out, "total", total(), uncorrectedTotal.getValueAtPercentile(99), "");
+        }
+
+        private static void print(PrintStream out, String name, Histogram histogram, long rawP99, String codes) {
+            out.printf("%-14s %8d %10d %10d %10d %10d %10d %14d  %s%n", name, histogram.getTotalCount(),
+                    histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9), histogram.getMaxValue(), rawP99, codes);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.project.load;
+
+import org.HdrHistogram.HistogramLogProcessor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the running application over HTTP with an open-model traffic mix and reports
+ * coordinated-omission-corrected latencies per operation. Everything is configurable through
+ * system properties, e.g.
+ * {@code mvn test -Pbenchmark -Dtest=PetApiLoadTest -Dload.rate=500 -Dload.duration=60s -Dload.mix=byId=80,update=15,create=5}.
+ * Application properties can be passed the same way, e.g. to compare the execution modes under
+ * journaled writes: {@code -Dpetstore.execution.mode=reactive -Dpetstore.execution.reactive-port=0
+ * -Dpetstore.persistence.enabled=true -Dpetstore.persistence.directory=target/load-data}. In reactive
+ * mode the single-pet operations go to the WebFlux server; seeding and the list and search
+ * operations stay on Tomcat.
+ * <p>
+ * The seeded pets are split in two: reads and updates target the first 90%, deletes the rest, so
+ * the mix does not turn reads into 404s as the run goes on.
+ * <p>
+ * Both modes on one CPU and Java 17 with journaled writes and {@code -Dload.mix=byId=50,update=40,create=10},
+ * 10s warm-up and 30s per rate, same build and same machine (corrected latencies over all operations):
+ * <pre>
+ * mode       rate     p50      p99      p999     peak in flight
+ * platform   150/s    3.5ms    19ms     36ms     7
+ * platform   250/s    3.1ms    23ms     55ms     14
+ * platform   400/s    9.5ms    1.08s    1.43s    376   (saturated)
+ * reactive   150/s    2.7ms    17ms     159ms    27
+ * reactive   250/s    2.5ms    21ms     159ms    39
+ * reactive   400/s    3.4ms    32ms     150ms    58
+ * </pre>
+ * At 400/s the blocking writers wait for the group commit on Tomcat's workers and the queue builds
+ * up; the reactive writers wait without a thread and keep up. In every reactive run a few requests
+ * in a thousand took about 150ms, which sets its p999 at every rate. Virtual mode needs a Java 21
+ * runtime and has not been measured here.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PetApiLoadTest {
+    private static final String DEFAULT_MIX = "byId=70,list=5,findByStatus=5,update=15,create=4,delete=1";
+    private static final String[] STATUSES = {"available", "pending", "sold"};
+
+    @LocalServerPort
+    private int port;
+
+    // the WebFlux server of petstore.execution.mode=reactive, absent in the other modes
+    @Autowired
+    private ObjectProvider<WebServer> reactivePetServer;
+
+    @Test
+    void petApiUnderMixedTraffic() throws IOException, InterruptedException {
+        int seeded = Integer.getInteger("load.pets", 10_000);
+        int rate = Integer.getInteger("load.rate", 200);
+        Duration warmup = Duration.parse("PT" + System.getProperty("load.warmup", "10s"));
+        Duration duration = Duration.parse("PT" + System.getProperty("load.duration", "30s"));
+        Map<String, Integer> mix = parseMix(System.getProperty("load.mix", DEFAULT_MIX));
+        URI base = URI.create("http://localhost:" + port + "/pet");
+        WebServer reactive = reactivePetServer.getIfAvailable();
+        // single-pet reads and writes go to the reactive server when there is one; it has no batch, list or search routes
+        URI single = reactive == null ? base : URI.create("http://localhost:" + reactive.getPort() + "/pet");
+        seed(base, seeded);
+
+        long readable = Math.max(1, seeded * 9L / 10);
+        LoadGenerator generator = new LoadGenerator()
+                .operation("byId", mix.getOrDefault("byId", 0), random -> get(single + "/" + (random.nextLong(readable) + 1)))
+                .operation("missing", mix.getOrDefault("missing", 0), random -> get(single + "/" + (seeded + 1_000_000L + random.nextLong(1_000_000))))
+                .operation("list", mix.getOrDefault("list", 0), random -> get(base + "?limit=100&after=" + random.nextLong(readable)))
+                .operation("findByStatus", mix.getOrDefault("findByStatus", 0), random -> get(base + "/findByStatus?status=" + STATUSES[random.nextInt(STATUSES.length)]))
+                .operation("search", mix.getOrDefault("search", 0), random -> get(base + "/search?nameContains=" + random.nextInt(100) + "&status=" + STATUSES[random.nextInt(STATUSES.length)] + "&limit=20"))
+                .operation("all", mix.getOrDefault("all", 0), random -> get(base.toString()))
+                .operation("create", mix.getOrDefault("create", 0), random -> send("POST", single.toString(), petJson(null, random)))
+                .operation("update", mix.getOrDefault("update", 0), random -> {
+                    long id = random.nextLong(readable) + 1;
+                    return send("PUT", single + "/" + id, petJson(id, random));
+                })
+                .operation("delete", mix.getOrDefault("delete", 0), random -> HttpRequest.newBuilder(URI.create(single + "/" + (readable + 1 + random.nextLong(Math.max(1, seeded - readable))))).DELETE().build());
+
+        System.out.printf("warming up for %ds at %d req/s against %d pets%n", warmup.toSeconds(), rate, seeded);
+        generator.run(rate, warmup);
+        LoadGenerator.Results results = generator.run(rate, duration);
+        results.print(System.out);
+
+        Path distribution = Path.of("target", "load-" + rate + "rps.hgrm");
+        Files.createDirectories(distribution.getParent());
+        try(PrintStream out = new PrintStream(Files.newOutputStream(distribution))) {
+            // values are recorded in microseconds; scale the output to milliseconds like HdrHistogram's plotter expects
+            results.total().outputPercentileDistribution(out, 1000.0);
+        }
+        System.out.println("percentile distribution written to " + distribution.toAbsolutePath()
+                + " (plot with " + HistogramLogProcessor.class.getSimpleName() + " or hdrhistogram.github.io/HdrHistogram/plotFiles.html)");
+        assertEquals(0, results.serverErrors(), "requests failed with 5xx or transport errors");
+    }
+
+    // creates the pets in batches through the API itself, so the run starts from a warm store
+    private static void seed(URI base, int count) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        SplittableRandom random = new SplittableRandom(7);
+        for(int first = 1; first <= count; first += 1000) {
+            StringJoiner batch = new StringJoiner(",", "[", "]");
+            for(long id = first; id < Math.min(first + 1000L, count + 1L); id++) batch.add(petJson(id, random));
+            HttpResponse<String> response = client.send(send("POST", base + "/batch", batch.toString()), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), response.body());
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new HashMap<>();
+        for(String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private static String petJson(Long id, SplittableRandom random) {
+        int category = random.nextInt(5);
+        return "{" + (id == null ? "" : "\"id\":" + id + ",") + "\"name\":\"pet" + random.nextInt(1_000_000) + "\","
+                + "\"category\":{\"id\":" + category + ",\"name\":\"category" + category + "\"},"
+                + "\"photoUrls\":[\"https://example.com/" + random.nextInt(1000) + ".png\"],"
+                + "\"tags\":[{\"id\":" + random.nextInt(20) + ",\"name\":\"tag\"}],"
+                + "\"status\":\"" + STATUSES[random.nextInt(STATUSES.length)] + "\"}";
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Accept", "application/json").GET().build();
+    }
+
+    private static HttpRequest send(String method, String uri, String json) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.project.load;
+
+import com.project.SwaggerRestApiDemoApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the application in a fresh JVM, again and again, and measures the time from launching the
+ * process to the first successful {@code GET /pet/1}, and the resident set size at that moment.
+ * Runs the default configuration, the fast-startup profile, and the fast-startup profile with the
+ * AppCDS archive when one was built:
+ * {@code mvn package -Pappcds && mvn test -Pbenchmark -Dtest=StartupBenchmarkTest -Dstartup.runs=10}.
+ * With the archive's jar present every configuration is launched from it, so they share a class path.
+ * RSS is read from /proc and only reported on Linux.
+ */
+@Tag("benchmark")
+class StartupBenchmarkTest {
+    private static final Path TARGET = Path.of("target");
+    private static final Path ARCHIVE = TARGET.resolve("app.jsa");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final long POLL_INTERVAL_MILLIS = 5;
+
+    @Test
+    void timeToFirstRequestAndResidentMemory() throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        Path thinJar = findThinJar();
+        Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("default", List.of());
+        configurations.put("fast-startup", List.of("-Dspring.profiles.active=fast-startup"));
+        if(thinJar != null && Files.exists(ARCHIVE)) {
+            configurations.put("fast-startup+appcds", List.of("-XX:SharedArchiveFile=" + ARCHIVE, "-Xlog:cds=error", "-Dspring.profiles.active=fast-startup"));
+        }
+        System.out.printf("launching from %s, %d runs per configuration%n", thinJar != null ? thinJar : "target/classes", runs);
+
+        System.out.printf("%-22s %12s %12s %12s %14s%n", "configuration", "min ms", "median ms", "max ms", "median RSS MB");
+        for(Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+            long[] millis = new long[runs];
+            long[] rssKilobytes = new long[runs];
+            for(int run = 0; run < runs; run++) {
+                long[] measured = startOnce(configuration.getKey(), configuration.getValue(), thinJar);
+                millis[run] = measured[0];
+                rssKilobytes[run] = measured[1];
+            }
+            Arrays.sort(millis);
+            Arrays.sort(rssKilobytes);
+            System.out.printf("%-22s %12d %12d %12d %14s%n", configuration.getKey(), millis[0], millis[runs / 2], millis[runs - 1],
+                    rssKilobytes[runs / 2] < 0 ? "n/a" : String.valueOf(rssKilobytes[runs / 2] / 1024));
+        }
+    }
+
+    // returns the milliseconds to the first 200 and the RSS in kilobytes at that point
+    private static long[] startOnce(String name, List<String> jvmOptions, Path thinJar) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-Dserver.port=" + port);
+        if(thinJar != null) {
+            command.add("-jar");
+            command.add(thinJar.toString());
+        } else {
+            command.add("-cp");
+            command.add(runtimeClassPath());
+            command.add(SwaggerRestApiDemoApplication.class.getName());
+        }
+        Path log = TARGET.resolve("startup-" + name + ".log");
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/pet/1")).timeout(Duration.ofSeconds(5)).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            while(true) {
+                assertTrue(process.isAlive(), name + " exited early, see " + log);
+                assertTrue(System.nanoTime() - start < STARTUP_TIMEOUT.toNanos(), name + " did not answer in time, see " + log);
+                try {
+                    if(client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) break;
+                } catch(ConnectException | HttpTimeoutException e) {
+                    // not listening yet
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new long[]{elapsedMillis, residentKilobytes(process.pid())};
+        } finally {
+            process.destroy();
+            if(!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static long residentKilobytes(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if(!Files.exists(status)) return -1;
+        try(Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                    .findFirst().orElse(-1);
+        }
+    }
+
+    // the jar the appcds profile builds: a plain jar whose manifest lists its dependencies in lib/
+    private static Path findThinJar() throws IOException {
+        if(!Files.isDirectory(TARGET)) return null;
+        try(Stream<Path> files = Files.list(TARGET)) {
+            for(Path jar : files.filter(file -> file.toString().endsWith(".jar")).toList()) {
+                try(JarFile jarFile = new JarFile(jar.toFile())) {
+                    if(jarFile.getManifest() != null && jarFile.getManifest().getMainAttributes().getValue("Class-Path") != null) return jar;
+                }
+            }
+        }
+        return null;
+    }
+
+    // the test class path without test classes, test-only tools or devtools, whose restart class loader would skew the numbers
+    private static String runtimeClassPath() {
+        return Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !entry.endsWith("test-classes") && !entry.contains("spring-boot-devtools"))
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static int freePort() throws IOException {
+        try(ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.project.metrics;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.repository.PetRepository;
+import com.project.repository.PetRepositoryMetrics.Operation;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicrometerPetRepositoryMetricsTest {
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    @Test
+    void recordsTimingsAndScannedVersusReturnedPets() {
+        PetRepository repository = new PetRepository();
+        repository.setMetrics(new MicrometerPetRepositoryMetrics(registry));
+        for(long id = 1; id <= 10; id++) {
+            repository.save(Pet.builder().id(id).name("pet" + id).category(new Category(id % 2, "category"))
+                    .photoUrls(List.of("url")).status(id <= 4 ? Status.SOLD : Status.AVAILABLE).build());
+        }
+
+        assertEquals(4, repository.getPetsByStatus(EnumSet.of(Status.SOLD)).size());
+        assertEquals(3, repository.findPage(7, 5).size());
+        repository.findById(3L);
+
+        assertEquals(10, registry.get(MicrometerPetRepositoryMetrics.OPERATIONS).tag("operation", "save").timer().count());
+        assertEquals(1, registry.get(MicrometerPetRepositoryMetrics.OPERATIONS).tag("operation", "findById").timer().count());
+        assertEquals(4, registry.get(MicrometerPetRepositoryMetrics.SCANNED).tag("operation", "findByStatus").counter().count());
+        assertEquals(4, registry.get(MicrometerPetRepositoryMetrics.RETURNED).tag("operation", "findByStatus").counter().count());
+        assertEquals(3, registry.get(MicrometerPetRepositoryMetrics.RETURNED).tag("operation", "findPage").counter().count());
+        assertTrue(registry.scrape().contains("petstore_repository_operations_seconds_bucket{operation=\"findById\""));
+    }
+
+    @Test
+    void recordingDoesNotAllocate() {
+        MicrometerPetRepositoryMetrics metrics = new MicrometerPetRepositoryMetrics(registry);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // warm up so the JIT has compiled the recording path and escape analysis applies; with the
+        // compiler busy with other tests that can take a while, so the best of a few rounds counts
+        for(int i = 0; i < 200_000; i++) record(metrics, i);
+
+        long allocated = Long.MAX_VALUE;
+        for(int round = 0; round < 5 && allocated >= 64 * 1024; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for(int i = 0; i < 1_000_000; i++) record(metrics, i);
+            allocated = Math.min(allocated, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        assertTrue(allocated < 64 * 1024, "recording 1M samples allocated " + allocated + " bytes");
+    }
+
+    private static void record(MicrometerPetRepositoryMetrics metrics, int i) {
+        metrics.timed(Operation.FIND_BY_ID, 200 + i % 5_000);
+        metrics.scanned(Operation.FIND_BY_STATUS, i % 100, i % 10);
+    }
+}
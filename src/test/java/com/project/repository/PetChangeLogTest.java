@@ -0,0 +1,86 @@
+package com.project.repository;
+
+import com.project.model.Pet;
+import com.project.model.PetChange;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PetChangeLogTest {
+
+    @Test
+    void readsChangesInOrderAndFallsBackOnceLapped() {
+        PetChangeLog log = new PetChangeLog(4);
+        long start = log.lastSequence();
+        log.saved(pet(1L));
+        log.saved(pet(2L));
+        log.deleted(1L);
+
+        List<PetChange> changes = log.read(start, 10);
+        assertEquals(List.of(start + 1, start + 2, start + 3), changes.stream().map(PetChange::getSequence).toList());
+        assertEquals(PetChange.Type.DELETED, changes.get(2).getType());
+        assertEquals(1L, changes.get(2).getPetId());
+        assertEquals(List.of(start + 3), log.read(start + 2, 10).stream().map(PetChange::getSequence).toList());
+        assertTrue(log.read(start + 3, 10).isEmpty());
+
+        log.saved(pet(3L));
+        log.saved(pet(4L));
+        assertNull(log.read(start, 10), "the first change was overwritten");
+        assertEquals(4, log.read(start + 1, 10).size());
+        assertNull(log.read(start - 100, 10), "sequences from before the log started are unknown");
+        assertNull(log.read(log.lastSequence() + 1, 10), "sequences ahead of the log are unknown");
+    }
+
+    @Test
+    void awaitWakesUpOnTheNextChange() throws InterruptedException {
+        PetChangeLog log = new PetChangeLog(16);
+        long start = log.lastSequence();
+        assertFalse(log.await(start, 10, TimeUnit.MILLISECONDS));
+
+        CountDownLatch woken = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                if(log.await(start, 10, TimeUnit.SECONDS)) woken.countDown();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        Thread.sleep(50);
+        log.saved(pet(1L));
+        assertTrue(woken.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    @Test
+    void concurrentWritersLeaveNoGapsInTheSequence() throws InterruptedException {
+        PetChangeLog log = new PetChangeLog(1 << 16);
+        long start = log.lastSequence();
+        Thread[] writers = new Thread[4];
+        for(int w = 0; w < writers.length; w++) {
+            long first = w * 10_000L;
+            writers[w] = new Thread(() -> {
+                for(long id = first; id < first + 10_000; id++) log.saved(pet(id));
+            });
+            writers[w].start();
+        }
+        for(Thread writer : writers) writer.join();
+
+        long cursor = start;
+        int read = 0;
+        List<PetChange> changes;
+        while(!(changes = log.read(cursor, 1000)).isEmpty()) {
+            for(PetChange change : changes) assertEquals(++cursor, change.getSequence());
+            read += changes.size();
+        }
+        assertEquals(40_000, read);
+    }
+
+    private static Pet pet(Long id) {
+        return Pet.builder().id(id).name("pet" + id).build();
+    }
+}
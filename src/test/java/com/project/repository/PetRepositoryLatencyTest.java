@@ -0,0 +1,63 @@
+package com.project.repository;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.repository.persistence.PetJournal;
+import com.project.repository.store.HeapPetStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares findById and autoIncrement from tiny to very large stores. The stores are filled with
+ * one shared pet straight through the {@code PetStore}, so ten million ids fit the heap; a lookup
+ * only touches the store, so the indexes that {@code save} would build do not change what is
+ * measured. Each size keeps the best of a few rounds, and the largest store is only compared with
+ * the smallest, so a machine that is slow overall does not fail the check.
+ */
+@Tag("benchmark")
+class PetRepositoryLatencyTest {
+    private static final int[] STORE_SIZES = {10, 1_000, 100_000, 1_000_000, 10_000_000};
+    private static final int OPERATIONS = 1_000_000;
+    private static final int ROUNDS = 5;
+    // a hash lookup pays a few cache misses on a large store (about 4.5x at 10M here); a tree
+    // would pay one per level, some 20x, and a scan far more
+    private static final double MAX_SLOWDOWN = 10;
+
+    @Test
+    void findByIdAndAutoIncrementStayFlatAsTheStoreGrows() {
+        Pet shared = Pet.builder().id(1L).name("pet").category(new Category(1L, "dogs"))
+                .photoUrls(List.of("url")).status(Status.AVAILABLE).build();
+        double[] lookupNanos = new double[STORE_SIZES.length];
+        long blackhole = 0;
+        for(int s = 0; s < STORE_SIZES.length; s++) {
+            int size = STORE_SIZES[s];
+            HeapPetStore store = new HeapPetStore();
+            for(long id = 1; id <= size; id++) store.compute(id, (key, previous) -> shared);
+            PetRepository repository = new PetRepository(store, PetJournal.NONE);
+
+            SplittableRandom random = new SplittableRandom(42);
+            lookupNanos[s] = Double.MAX_VALUE;
+            double autoIncrementNanos = Double.MAX_VALUE;
+            for(int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for(int i = 0; i < OPERATIONS; i++) blackhole += repository.findById(random.nextLong(size) + 1).orElseThrow().getId();
+                lookupNanos[s] = Math.min(lookupNanos[s], (System.nanoTime() - start) / (double) OPERATIONS);
+
+                start = System.nanoTime();
+                for(int i = 0; i < OPERATIONS; i++) blackhole += repository.autoIncrement();
+                autoIncrementNanos = Math.min(autoIncrementNanos, (System.nanoTime() - start) / (double) OPERATIONS);
+            }
+            System.out.printf("pets=%d findById=%.1fns autoIncrement=%.1fns (%d)%n", size, lookupNanos[s], autoIncrementNanos, blackhole & 1);
+        }
+
+        double slowdown = lookupNanos[lookupNanos.length - 1] / lookupNanos[0];
+        assertTrue(slowdown < MAX_SLOWDOWN, String.format("findById over %d pets is %.1fx slower than over %d",
+                STORE_SIZES[STORE_SIZES.length - 1], slowdown, STORE_SIZES[0]));
+    }
+}
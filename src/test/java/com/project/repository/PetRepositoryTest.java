@@ -0,0 +1,149 @@
+package com.project.repository;
+
+import com.project.exception.PreconditionFailedException;
+import com.project.exception.ResourceNotFoundException;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.query.PetQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PetRepositoryTest {
+    private PetRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new PetRepository();
+        repository.save(pet(1L, Status.AVAILABLE, 1L, 1L, 2L));
+        repository.save(pet(2L, Status.PENDING, 1L, 2L, 3L));
+        repository.save(pet(3L, Status.SOLD, 2L, 3L));
+    }
+
+    @Test
+    void statusIndexSupportsMultipleStatuses() {
+        assertEquals(Set.of(1L, 2L), ids(repository.getPetsByStatus(EnumSet.of(Status.AVAILABLE, Status.PENDING))));
+        assertEquals(Set.of(3L), ids(repository.getPetsByStatus(EnumSet.of(Status.SOLD))));
+    }
+
+    @Test
+    void categoryAndTagIndexesIntersectPostings() {
+        assertEquals(Set.of(1L, 2L), ids(repository.findByCategory(1L)));
+        assertEquals(Set.of(1L, 2L), ids(repository.findByTags(List.of(2L))));
+        assertEquals(Set.of(2L), ids(repository.findByTags(List.of(2L, 3L))));
+        assertTrue(repository.findByTags(List.of(1L, 3L)).isEmpty());
+        assertTrue(repository.findByTags(List.of(99L)).isEmpty());
+    }
+
+    @Test
+    void indexesFollowUpdatesAndDeletes() {
+        repository.updateById(pet(null, Status.SOLD, 2L, 7L), 1L);
+        assertEquals(Set.of(1L, 3L), ids(repository.getPetsByStatus(EnumSet.of(Status.SOLD))));
+        assertEquals(Set.of(2L), ids(repository.findByCategory(1L)));
+        assertEquals(Set.of(1L), ids(repository.findByTags(List.of(7L))));
+        assertEquals(Set.of(2L), ids(repository.findByTags(List.of(2L))));
+
+        repository.deleteById(1L);
+        assertEquals(Set.of(3L), ids(repository.getPetsByStatus(EnumSet.of(Status.SOLD))));
+        assertTrue(repository.findByTags(List.of(7L)).isEmpty());
+        assertTrue(repository.findById(1L).isEmpty());
+        assertThrows(ResourceNotFoundException.class, () -> repository.updateById(pet(null, Status.SOLD, 1L), 1L));
+    }
+
+    @Test
+    void pagesContinueAfterTheCursorInIdOrder() {
+        repository.save(pet(10L, Status.AVAILABLE, 1L));
+        repository.deleteById(2L);
+        assertEquals(List.of(1L, 3L), repository.findPage(Long.MIN_VALUE, 2).stream().map(Pet::getId).toList());
+        assertEquals(List.of(10L), repository.findPage(3L, 2).stream().map(Pet::getId).toList());
+        assertTrue(repository.findPage(10L, 2).isEmpty());
+    }
+
+    @Test
+    void batchWritesAssignOneIdBlockAndReportEveryItem() {
+        List<Pet> saved = repository.saveAll(List.of(pet(null, Status.AVAILABLE, 5L), pet(20L, Status.SOLD, 5L), pet(null, Status.PENDING, 5L)));
+        assertEquals(List.of(21L, 20L, 22L), saved.stream().map(Pet::getId).toList());
+        assertEquals(23L, repository.autoIncrement());
+        assertEquals(Set.of(20L, 21L, 22L), ids(repository.findByCategory(5L)));
+
+        assertArrayEquals(new boolean[]{true, false}, repository.updateAll(List.of(pet(21L, Status.SOLD, 6L), pet(99L, Status.SOLD, 6L))));
+        assertEquals(Set.of(21L), ids(repository.findByCategory(6L)));
+        assertTrue(repository.findById(99L).isEmpty());
+
+        assertArrayEquals(new boolean[]{true, false, true}, repository.deleteAll(List.of(21L, 21L, 20L)));
+        assertEquals(Set.of(22L), ids(repository.findByCategory(5L)));
+    }
+
+    @Test
+    void batchIdsAreGeneratedAboveTheExplicitIdsLaterInTheBatch() {
+        long next = repository.autoIncrement() + 1;
+        List<Pet> saved = repository.saveAll(List.of(pet(null, Status.AVAILABLE, 5L), pet(next, Status.SOLD, 5L)));
+        assertEquals(List.of(next + 1, next), saved.stream().map(Pet::getId).toList());
+        assertEquals(Status.AVAILABLE, repository.findById(next + 1).orElseThrow().getStatus());
+        assertEquals(Status.SOLD, repository.findById(next).orElseThrow().getStatus());
+    }
+
+    @Test
+    void conditionalUpdatesOnlyApplyToTheExpectedVersion() {
+        long readVersion = repository.findById(1L).orElseThrow().getVersion();
+        Pet winner = repository.updateById(pet(null, Status.PENDING, 1L), 1L, readVersion);
+        assertTrue(winner.getVersion() > readVersion);
+        assertThrows(PreconditionFailedException.class, () -> repository.updateById(pet(null, Status.SOLD, 1L), 1L, readVersion));
+        assertEquals(Status.PENDING, repository.findById(1L).orElseThrow().getStatus());
+
+        repository.deleteById(1L);
+        repository.save(pet(1L, Status.AVAILABLE, 1L));
+        assertTrue(repository.findById(1L).orElseThrow().getVersion() > winner.getVersion());
+    }
+
+    @Test
+    void nameIndexFindsPrefixesInNameOrderAndFollowsRenames() {
+        repository.save(pet(10L, Status.AVAILABLE, 1L).withName("Rexford"));
+        repository.save(pet(11L, Status.AVAILABLE, 1L).withName("rex"));
+        repository.save(pet(12L, Status.AVAILABLE, 1L).withName("Rover"));
+        repository.save(pet(13L, Status.AVAILABLE, 1L).withName("Max"));
+        repository.save(pet(14L, Status.AVAILABLE, 1L).withName("R"));
+        assertEquals(List.of("R", "rex", "Rexford", "Rover"), names(repository.findByName("R", 10)));
+        assertEquals(List.of("rex", "Rexford"), names(repository.findByName("REX", 10)));
+        assertEquals(List.of("R", "rex"), names(repository.findByName("r", 2)));
+
+        repository.updateById(pet(null, Status.SOLD, 1L).withName("Maxine"), 11L);
+        repository.deleteById(10L);
+        assertTrue(repository.findByName("rex", 10).isEmpty());
+        assertEquals(List.of("Max", "Maxine"), names(repository.findByName("max", 10)));
+        assertEquals(Set.of(11L), ids(repository.search(PetQuery.nameContains("xin"), 10)));
+    }
+
+    @Test
+    void generatedIdsNeverCollideWithSavedIds() {
+        repository.save(pet(41L, Status.AVAILABLE, 1L));
+        assertEquals(42L, repository.autoIncrement());
+        assertEquals(43L, repository.reserveIds(10));
+        assertEquals(53L, repository.autoIncrement());
+    }
+
+    private static Pet pet(Long id, Status status, Long categoryId, Long... tagIds) {
+        return Pet.builder().id(id).name("pet" + id)
+                .category(new Category(categoryId, "category" + categoryId))
+                .photoUrls(List.of("url"))
+                .tags(Arrays.stream(tagIds).map(tagId -> new Tag(tagId, "tag" + tagId)).toList())
+                .status(status)
+                .build();
+    }
+
+    private static List<String> names(List<Pet> pets) {
+        return pets.stream().map(Pet::getName).toList();
+    }
+
+    private static Set<Long> ids(List<Pet> pets) {
+        return Set.copyOf(pets.stream().map(Pet::getId).toList());
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writers keep replacing a few pets with generations whose every field carries the generation
+ * number, while readers look them up, query them through the indexes and serialize them. A reader
+ * seeing two different numbers in one pet has seen a half-applied update.
+ */
+class PetSnapshotConcurrencyTest {
+    private static final int PETS = 4;
+    private static final Status[] STATUSES = Status.values();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readersNeverSeeHalfAppliedUpdates() throws Exception {
+        PetRepository repository = new PetRepository();
+        for(long id = 1; id <= PETS; id++) repository.save(generation(id, 0));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> tornReads = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> tasks = new ArrayList<>();
+        tasks.add(executor.submit(() -> {
+            for(int generation = 1; running.get(); generation++) {
+                long id = generation % PETS + 1;
+                if(generation % 2 == 0) {
+                    repository.updateById(generation(id, generation), id);
+                } else {
+                    int next = generation;
+                    repository.modifyById(id, pet -> generation(pet.getId(), next), null);
+                }
+            }
+        }));
+        for(int reader = 0; reader < 3; reader++) {
+            boolean queries = reader == 0;
+            tasks.add(executor.submit(() -> {
+                while(running.get()) {
+                    if(queries) {
+                        repository.getPetsByStatus(EnumSet.allOf(Status.class)).forEach(pet -> check(pet, tornReads));
+                    } else {
+                        for(long id = 1; id <= PETS; id++) repository.findById(id).ifPresent(pet -> check(pet, tornReads));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        TimeUnit.SECONDS.sleep(1);
+        running.set(false);
+        for(Future<?> task : tasks) task.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertTrue(tornReads.isEmpty(), () -> tornReads.size() + " torn reads, e.g. " + tornReads.peek());
+    }
+
+    @Test
+    void storedSnapshotsCannotBeChangedByCallers() {
+        PetRepository repository = new PetRepository();
+        List<String> photoUrls = new ArrayList<>(List.of("url"));
+        Pet saved = repository.save(generation(1L, 0).withPhotoUrls(photoUrls));
+        photoUrls.add("added after saving");
+
+        Pet stored = repository.findById(1L).orElseThrow();
+        assertEquals(List.of("url"), stored.getPhotoUrls());
+        assertThrows(UnsupportedOperationException.class, () -> stored.getPhotoUrls().add("url2"));
+        assertThrows(UnsupportedOperationException.class, () -> stored.getTags().clear());
+
+        Pet renamed = repository.modifyById(1L, pet -> pet.withName("renamed"), saved.getVersion());
+        assertEquals("pet0", stored.getName());
+        assertEquals("renamed", renamed.getName());
+        assertSame(stored.getPhotoUrls(), renamed.getPhotoUrls());
+        assertTrue(renamed.getVersion() > stored.getVersion());
+    }
+
+    private void check(Pet pet, ConcurrentLinkedQueue<String> tornReads) {
+        String generation = pet.getName().substring("pet".length());
+        JsonNode json = objectMapper.valueToTree(pet);
+        boolean consistent = json.get("category").get("name").asText().equals("category" + generation)
+                && json.get("photoUrls").get(0).asText().equals("url" + generation)
+                && json.get("tags").get(0).get("name").asText().equals("tag" + generation)
+                && json.get("tags").get(1).get("name").asText().equals("tag" + generation)
+                && pet.getStatus() == STATUSES[Integer.parseInt(generation) % STATUSES.length];
+        if(!consistent) tornReads.add(json.toString());
+    }
+
+    private static Pet generation(Long id, int generation) {
+        return Pet.builder().id(id).name("pet" + generation)
+                .category(new Category((long) generation, "category" + generation))
+                .photoUrls(List.of("url" + generation))
+                .tags(List.of(new Tag(1L, "tag" + generation), new Tag(2L, "tag" + generation)))
+                .status(STATUSES[generation % STATUSES.length])
+                .build();
+    }
+}
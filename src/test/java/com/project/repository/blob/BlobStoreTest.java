@@ -0,0 +1,52 @@
+package com.project.repository.blob;
+
+import com.project.exception.InvalidDataException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void identicalContentIsStoredOnceUnderItsHash() throws IOException {
+        BlobStore store = new BlobStore(directory, 1 << 20);
+        byte[] content = new byte[200_000];
+        new Random(1).nextBytes(content);
+
+        BlobStore.StoredBlob first = store.put(new ByteArrayInputStream(content));
+        BlobStore.StoredBlob second = store.put(new ByteArrayInputStream(content));
+
+        assertTrue(first.isCreated());
+        assertFalse(second.isCreated());
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(content.length, first.getSize());
+        assertArrayEquals(content, Files.readAllBytes(store.find(first.getHash()).orElseThrow()));
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void rejectsOversizedBlobsAndMalformedHashes() throws IOException {
+        BlobStore store = new BlobStore(directory, 1000);
+        assertThrows(InvalidDataException.class, () -> store.put(new ByteArrayInputStream(new byte[1001])));
+        assertEquals(0, temporaryFiles());
+
+        assertTrue(store.find("../../etc/passwd").isEmpty());
+        assertTrue(store.find("0".repeat(64)).isEmpty());
+    }
+
+    private long temporaryFiles() throws IOException {
+        try(Stream<Path> files = Files.list(directory.resolve("tmp"))) {
+            return files.count();
+        }
+    }
+}
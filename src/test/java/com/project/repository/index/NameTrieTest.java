@@ -0,0 +1,101 @@
+package com.project.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class NameTrieTest {
+    private static final String[] SYLLABLES = {"a", "ab", "abc", "b", "ba", "rex", "re", "x"};
+
+    @Test
+    void agreesWithASortedMapThroughSplitsAndMerges() {
+        NameTrie trie = new NameTrie();
+        TreeMap<String, List<Long>> expected = new TreeMap<>();
+        Random random = new Random(3);
+        for(int step = 0; step < 20_000; step++) {
+            String name = randomName(random);
+            long id = random.nextInt(50);
+            if(random.nextInt(3) == 0) {
+                trie.remove(name, id);
+                List<Long> ids = expected.get(name);
+                if(ids != null && ids.remove(id) && ids.isEmpty()) expected.remove(name);
+            } else {
+                trie.add(name, id);
+                List<Long> ids = expected.computeIfAbsent(name, key -> new ArrayList<>());
+                if(!ids.contains(id)) ids.add(id);
+            }
+            if(step % 500 == 0) assertSameContents(trie, expected, random);
+        }
+        assertSameContents(trie, expected, random);
+    }
+
+    @Test
+    void stopsWhenTheVisitorDeclines() {
+        NameTrie trie = new NameTrie();
+        for(long id = 0; id < 100; id++) trie.add("same", id);
+        for(long id = 0; id < 10; id++) trie.add("sample" + id, id);
+        int[] visited = new int[1];
+        assertFalse(trie.forEachWhile("sam", id -> ++visited[0] < 5));
+        assertEquals(5, visited[0]);
+        assertEquals(110, trie.count("sam"));
+        assertEquals(10, trie.count("samp"));
+    }
+
+    @Test
+    void findsTheIdsOfAnExactNameAndTheCharactersAfterAPrefix() {
+        NameTrie trie = new NameTrie();
+        trie.add("r", 1);
+        trie.add("rex", 2);
+        trie.add("rover", 3);
+        trie.add("max", 4);
+        List<Long> exact = new ArrayList<>();
+        trie.forEachIdWhile("r", exact::add);
+        assertEquals(List.of(1L), exact);
+        trie.forEachIdWhile("re", exact::add);
+        assertEquals(List.of(1L), exact);
+
+        BitSet next = new BitSet();
+        trie.collectNextChars("r", next);
+        assertEquals("{101, 111}", next.toString());
+        next.clear();
+        trie.collectNextChars("m", next);
+        assertEquals("{97}", next.toString());
+    }
+
+    private static void assertSameContents(NameTrie trie, TreeMap<String, List<Long>> expected, Random random) {
+        for(int i = 0; i < 50; i++) {
+            String name = randomName(random);
+            String prefix = name.substring(0, 1 + random.nextInt(Math.min(name.length(), 3)));
+            Map<String, List<Long>> withPrefix = expected.subMap(prefix, prefix + Character.MAX_VALUE);
+            List<Long> expectedIds = new ArrayList<>();
+            withPrefix.values().forEach(ids -> ids.stream().sorted().forEach(expectedIds::add));
+            List<Long> actualIds = new ArrayList<>();
+            trie.forEachWhile(prefix, actualIds::add);
+            // ids of one name come in no particular order, so compare them sorted per name
+            List<Long> sortedPerName = new ArrayList<>();
+            int from = 0;
+            for(List<Long> ids : withPrefix.values()) {
+                actualIds.subList(from, Math.min(from + ids.size(), actualIds.size())).stream().sorted().forEach(sortedPerName::add);
+                from += ids.size();
+            }
+            assertEquals(expectedIds, sortedPerName, "prefix " + prefix);
+            assertEquals(expectedIds.size(), actualIds.size(), "prefix " + prefix);
+            assertEquals(expectedIds.size(), trie.count(prefix), "count of prefix " + prefix);
+        }
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int parts = 1 + random.nextInt(3);
+        for(int i = 0; i < parts; i++) name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        return name.toString();
+    }
+}
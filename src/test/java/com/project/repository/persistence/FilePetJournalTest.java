@@ -0,0 +1,185 @@
+package com.project.repository.persistence;
+
+import com.project.exception.StorageException;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilePetJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversEveryWriteAfterRestart() {
+        Map<Long, Pet> store = new HashMap<>();
+        FilePetJournal journal = open(store);
+        assertTrue(store.isEmpty());
+        save(journal, store, pet(1L, "dog", Status.AVAILABLE));
+        save(journal, store, pet(2L, "cat", Status.PENDING));
+        save(journal, store, pet(1L, "dog renamed", Status.SOLD));
+        delete(journal, store, 2L);
+        journal.close();
+
+        Map<Long, Pet> recovered = new HashMap<>();
+        open(recovered).close();
+        assertEquals(store, recovered);
+    }
+
+    @Test
+    void discardsARecordTornByACrashAndKeepsAppending() throws IOException {
+        Map<Long, Pet> store = new HashMap<>();
+        FilePetJournal journal = open(store);
+        for(long id = 1; id <= 3; id++) save(journal, store, pet(id, "pet" + id, Status.AVAILABLE));
+        // crash without closing, halfway through writing a fourth record
+        Path segment = WriteAheadLog.segmentPath(directory, 0);
+        byte[] fourth = PetRecordCodec.encode(pet(4L, "pet4", Status.AVAILABLE));
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(9 + fourth.length / 2).putInt(fourth.length).putInt(0x1234).put(WriteAheadLog.PUT).put(fourth, 0, fourth.length / 2).flip());
+        }
+
+        Map<Long, Pet> recovered = new HashMap<>();
+        FilePetJournal reopened = open(recovered);
+        assertEquals(store, recovered);
+        save(reopened, recovered, pet(5L, "pet5", Status.SOLD));
+        reopened.close();
+
+        Map<Long, Pet> recoveredAgain = new HashMap<>();
+        open(recoveredAgain).close();
+        assertEquals(recovered, recoveredAgain);
+        assertEquals(4, recoveredAgain.size());
+    }
+
+    @Test
+    void dropsOnlyTheLastRecordWhenItsBytesAreCutShort() throws IOException {
+        Map<Long, Pet> store = new HashMap<>();
+        FilePetJournal journal = open(store);
+        for(long id = 1; id <= 3; id++) save(journal, store, pet(id, "pet" + id, Status.AVAILABLE));
+        journal.close();
+        Path segment = WriteAheadLog.segmentPath(directory, 0);
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        Map<Long, Pet> recovered = new HashMap<>();
+        open(recovered).close();
+        store.remove(3L);
+        assertEquals(store, recovered);
+    }
+
+    @Test
+    void snapshotTruncatesTheLogAndRecoveryReplaysTheTail() throws IOException {
+        Map<Long, Pet> store = new HashMap<>();
+        FilePetJournal journal = open(store);
+        for(long id = 1; id <= 100; id++) save(journal, store, pet(id, "pet" + id, Status.AVAILABLE));
+        journal.snapshot();
+        assertFalse(Files.exists(WriteAheadLog.segmentPath(directory, 0)));
+        save(journal, store, pet(101L, "pet101", Status.PENDING));
+        save(journal, store, pet(5L, "pet5 renamed", Status.SOLD));
+        delete(journal, store, 7L);
+        // a snapshot that was being written when the process died must be ignored
+        Files.write(directory.resolve("snapshot-00000000000000000002.snap.tmp"), new byte[]{1, 2, 3});
+
+        Map<Long, Pet> recovered = new HashMap<>();
+        open(recovered).close();
+        assertEquals(store, recovered);
+    }
+
+    @Test
+    void aFailedSyncStopsTheLogAndReleasesTheWritersWaitingForIt() throws InterruptedException {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 0, channel -> {
+            throw new IOException("Input/output error");
+        });
+        long position = writeAheadLog.appendPut(pet(1L, "dog", Status.AVAILABLE));
+        AtomicReference<Throwable> waited = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                writeAheadLog.awaitDurable(position);
+            } catch(Throwable e) {
+                waited.set(e);
+            }
+        });
+        writer.start();
+        while(writer.getState() != Thread.State.WAITING) Thread.onSpinWait();
+
+        StorageException failure = assertThrows(StorageException.class, writeAheadLog::flush);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(writer.isAlive(), "writer still waiting for durability");
+        assertTrue(waited.get() instanceof StorageException, String.valueOf(waited.get()));
+        assertSame(failure, waited.get().getCause());
+        assertSame(failure, assertThrows(StorageException.class, () -> writeAheadLog.appendDelete(1L)).getCause());
+        writeAheadLog.close();
+    }
+
+    @Test
+    void durabilityFuturesCompleteWithTheFlushThatCoversThemAndFailWithTheLog() {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 0);
+        long first = writeAheadLog.appendPut(pet(1L, "dog", Status.AVAILABLE));
+        CompletableFuture<Void> firstDurable = writeAheadLog.whenDurable(first);
+        assertFalse(firstDurable.isDone());
+        writeAheadLog.flush();
+        assertTrue(firstDurable.isDone());
+        assertTrue(writeAheadLog.whenDurable(first).isDone());
+
+        long second = writeAheadLog.appendPut(pet(2L, "cat", Status.SOLD));
+        CompletableFuture<Void> secondDurable = writeAheadLog.whenDurable(second);
+        // close flushes what was appended, so the waiting future still completes normally
+        writeAheadLog.close();
+        assertDoesNotThrow(() -> secondDurable.get(5, TimeUnit.SECONDS));
+        assertTrue(writeAheadLog.whenDurable(second + 1).isCompletedExceptionally());
+
+        WriteAheadLog failing = new WriteAheadLog(directory, 1, channel -> {
+            throw new IOException("Input/output error");
+        });
+        CompletableFuture<Void> lost = failing.whenDurable(failing.appendPut(pet(3L, "parrot", Status.PENDING)));
+        StorageException failure = assertThrows(StorageException.class, failing::flush);
+        ExecutionException waited = assertThrows(ExecutionException.class, () -> lost.get(5, TimeUnit.SECONDS));
+        assertSame(failure, waited.getCause().getCause());
+        failing.close();
+    }
+
+    private FilePetJournal open(Map<Long, Pet> store) {
+        FilePetJournal journal = new FilePetJournal(directory, Duration.ofMillis(1), Duration.ZERO, true);
+        journal.open(pet -> store.put(pet.getId(), pet), store::remove,
+                chunkConsumer -> chunkConsumer.accept(List.copyOf(store.values())));
+        return journal;
+    }
+
+    private static void save(FilePetJournal journal, Map<Long, Pet> store, Pet pet) {
+        journal.awaitDurable(journal.appendSave(pet));
+        store.put(pet.getId(), pet);
+    }
+
+    private static void delete(FilePetJournal journal, Map<Long, Pet> store, long id) {
+        journal.awaitDurable(journal.appendDelete(id));
+        store.remove(id);
+    }
+
+    private static Pet pet(Long id, String name, Status status) {
+        return Pet.builder().id(id).name(name)
+                .category(new Category(id % 3, "category" + id % 3))
+                .photoUrls(List.of("url" + id))
+                .tags(List.of(new Tag(id, "tag" + id)))
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.project.repository.query;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.PetRepository;
+import com.project.repository.PetRepositoryMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PetQueryEngineTest {
+    private static final int PETS = 20_000;
+
+    private final PetQueryEngine engine = new PetQueryEngine(4);
+    private final AtomicLong examined = new AtomicLong();
+    private PetRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new PetRepository();
+        repository.setQueryEngine(engine);
+        repository.setMetrics(new PetRepositoryMetrics() {
+            @Override
+            public void timed(Operation operation, long elapsedNanos) {
+            }
+
+            @Override
+            public void scanned(Operation operation, long scanned, long returned) {
+                if(operation == Operation.SEARCH) examined.set(scanned);
+            }
+        });
+        SplittableRandom random = new SplittableRandom(11);
+        List<Pet> pets = new ArrayList<>(PETS);
+        for(long id = 1; id <= PETS; id++) {
+            List<String> photoUrls = new ArrayList<>();
+            for(int i = random.nextInt(4); i > 0; i--) photoUrls.add("url" + i);
+            pets.add(Pet.builder().id(id).name((random.nextBoolean() ? "Rex" : "Tom") + random.nextInt(1000))
+                    .category(new Category((long) random.nextInt(10), "category"))
+                    .photoUrls(photoUrls)
+                    .tags(List.of(new Tag((long) random.nextInt(5), "tag"), new Tag(5L + random.nextInt(5), "tag")))
+                    .status(Status.values()[random.nextInt(3)])
+                    .build());
+        }
+        repository.saveAll(pets);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void indexedAndScannedSearchesFindTheSamePetsAsAFullFilter() {
+        List<PetQuery> queries = List.of(
+                PetQuery.category(3),
+                PetQuery.and(List.of(PetQuery.status(EnumSet.of(Status.SOLD)), PetQuery.allTags(List.of(2L, 7L)))),
+                PetQuery.or(List.of(PetQuery.category(1), PetQuery.allTags(List.of(4L)))),
+                PetQuery.namePrefix("rex1"),
+                PetQuery.and(List.of(PetQuery.nameContains("X99"), PetQuery.photoCount(2, 3))),
+                PetQuery.or(List.of(PetQuery.namePrefix("tom5"), PetQuery.category(9))),
+                PetQuery.and(List.of(PetQuery.category(2), PetQuery.namePrefix("tom"), PetQuery.status(Set.of(Status.AVAILABLE, Status.PENDING)))));
+        for(PetQuery query : queries) {
+            List<Long> expected = repository.findAll().stream().filter(query::matches).map(Pet::getId).sorted().toList();
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, repository.search(query, PETS).stream().map(Pet::getId).toList());
+        }
+    }
+
+    @Test
+    void limitedSearchesReturnTheFirstMatchesByIdAndPageThroughTheRest() {
+        List<PetQuery> queries = List.of(PetQuery.namePrefix("rex"), PetQuery.category(4), PetQuery.photoCount(2, 3));
+        for(PetQuery query : queries) {
+            List<Long> expected = repository.findAll().stream().filter(query::matches).map(Pet::getId).sorted().toList();
+            List<Long> paged = new ArrayList<>();
+            long after = Long.MIN_VALUE;
+            List<Pet> page;
+            do {
+                page = repository.search(query, after, 500);
+                // the same page every time, whichever chunks finish first
+                assertEquals(page, repository.search(query, after, 500));
+                page.forEach(pet -> paged.add(pet.getId()));
+                if(!page.isEmpty()) after = page.get(page.size() - 1).getId();
+            } while(page.size() == 500);
+            assertEquals(expected, paged);
+            assertEquals(expected.subList(0, 10), repository.search(query, 10).stream().map(Pet::getId).toList());
+        }
+
+        repository.search(PetQuery.category(4), 5);
+        assertTrue(examined.get() < PETS / 5, "index search examined " + examined.get() + " pets");
+    }
+}
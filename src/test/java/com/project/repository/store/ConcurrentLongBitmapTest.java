@@ -0,0 +1,48 @@
+package com.project.repository.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongBitmapTest {
+
+    @Test
+    void walksTheValuesAfterACursorInOrder() {
+        ConcurrentLongBitmap bitmap = new ConcurrentLongBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        SplittableRandom random = new SplittableRandom(7);
+        for(int i = 0; i < 50_000; i++) {
+            // dense ids around zero plus a few far apart, so pages are shared, sparse and negative
+            long value = i % 100 == 0 ? random.nextLong() : random.nextLong(-20_000, 20_000);
+            if(random.nextInt(4) == 0) assertEquals(expected.remove(value), bitmap.remove(value));
+            else assertEquals(expected.add(value), bitmap.add(value));
+        }
+        for(long after : new long[]{Long.MIN_VALUE, -4097, -1, 0, 4095, 4096, 19_999, Long.MAX_VALUE}) {
+            List<Long> visited = new ArrayList<>();
+            assertTrue(bitmap.forEachAfter(after, visited::add));
+            assertEquals(new ArrayList<>(expected.tailSet(after, false)), visited);
+        }
+
+        List<Long> firstTen = new ArrayList<>();
+        assertFalse(bitmap.forEachAfter(-1, value -> firstTen.add(value) && firstTen.size() < 10));
+        assertEquals(new ArrayList<>(expected.tailSet(-1L, false)).subList(0, 10), firstTen);
+    }
+
+    @Test
+    void aPageEmptiedByARemovalCanBeFilledAgain() {
+        ConcurrentLongBitmap bitmap = new ConcurrentLongBitmap();
+        assertTrue(bitmap.add(5));
+        assertTrue(bitmap.remove(5));
+        assertFalse(bitmap.remove(5));
+        assertTrue(bitmap.add(6));
+        assertFalse(bitmap.add(6));
+        List<Long> visited = new ArrayList<>();
+        bitmap.forEachAfter(Long.MIN_VALUE, visited::add);
+        assertEquals(List.of(6L), visited);
+    }
+}
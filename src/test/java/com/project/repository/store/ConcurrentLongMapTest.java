@@ -0,0 +1,156 @@
+package com.project.repository.store;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    @Test
+    void putGetRemove() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(4, 2);
+        for(long key = -1000; key < 1000; key++) assertNull(map.put(key, "v" + key));
+        assertEquals(2000, map.size());
+        for(long key = -1000; key < 1000; key++) assertEquals("v" + key, map.get(key));
+        assertEquals("v5", map.putIfAbsent(5, "other"));
+        assertEquals("v5", map.remove(5));
+        assertNull(map.get(5));
+        assertNull(map.remove(5));
+        assertEquals(1999, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void spliteratorSplitsAlongSegmentsAndVisitsEveryValueOnce() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(1024, 16);
+        for(long key = 0; key < 10_000; key++) map.put(key, key);
+
+        List<Spliterator<Long>> parts = new ArrayList<>(List.of(map.spliterator()));
+        for(int round = 0; round < 3; round++) {
+            for(Spliterator<Long> part : List.copyOf(parts)) {
+                Spliterator<Long> prefix = part.trySplit();
+                if(prefix != null) parts.add(prefix);
+            }
+        }
+        assertEquals(8, parts.size());
+        assertEquals(10_000, parts.stream().mapToLong(Spliterator::estimateSize).sum());
+
+        Set<Long> seen = new HashSet<>();
+        parts.get(0).tryAdvance(seen::add);
+        for(Spliterator<Long> part : parts) part.forEachRemaining(value -> assertTrue(seen.add(value)));
+        assertEquals(10_000, seen.size());
+    }
+
+    @Test
+    void concurrentComputeLosesNoUpdates() throws Exception {
+        ConcurrentLongMap<Long> counters = new ConcurrentLongMap<>();
+        int keys = 64;
+        int incrementsPerThread = 20_000;
+        runConcurrently(THREADS, thread -> {
+            for(int i = 0; i < incrementsPerThread; i++) {
+                counters.compute(i % keys, (key, value) -> value == null ? 1L : value + 1);
+            }
+        });
+        AtomicLong total = new AtomicLong();
+        counters.forEach((key, value) -> total.addAndGet(value));
+        assertEquals((long) THREADS * incrementsPerThread, total.get());
+    }
+
+    @Test
+    void concurrentMixedTrafficKeepsEveryThreadsWrites() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(16, 4);
+        int keysPerThread = 5_000;
+        runConcurrently(THREADS, thread -> {
+            long base = (long) thread * keysPerThread;
+            for(long key = base; key < base + keysPerThread; key++) map.put(key, key);
+            for(long key = base; key < base + keysPerThread; key += 2) map.remove(key);
+            for(long key = base; key < base + keysPerThread; key++) {
+                Long value = map.get(key);
+                if((key - base) % 2 == 0) assertNull(value);
+                else assertEquals(key, value);
+            }
+        });
+        assertEquals(THREADS * keysPerThread / 2, map.size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void mixedTrafficThroughputScalesWithThreads() throws Exception {
+        int keySpace = 1 << 20;
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(keySpace, 256);
+        for(long key = 0; key < keySpace; key++) map.put(key, key);
+
+        double singleThreaded = 0;
+        double best = 0;
+        for(int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads <<= 1) {
+            double opsPerSecond = measureMixedTraffic(map, threads, keySpace);
+            if(threads == 1) singleThreaded = opsPerSecond;
+            best = Math.max(best, opsPerSecond);
+            System.out.printf("ConcurrentLongMap threads=%d ops/s=%.0f%n", threads, opsPerSecond);
+        }
+        if(Runtime.getRuntime().availableProcessors() > 1) assertTrue(best > singleThreaded);
+    }
+
+    // 90% GET, 8% PUT, 2% DELETE over a uniformly random key space
+    private static double measureMixedTraffic(ConcurrentLongMap<Long> map, int threads, int keySpace) throws Exception {
+        long durationNanos = TimeUnit.SECONDS.toNanos(2);
+        AtomicLong operations = new AtomicLong();
+        runConcurrently(threads, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long deadline = System.nanoTime() + durationNanos;
+            long done = 0;
+            while(System.nanoTime() < deadline) {
+                for(int i = 0; i < 1024; i++, done++) {
+                    long key = random.nextInt(keySpace);
+                    int operation = random.nextInt(100);
+                    if(operation < 90) map.get(key);
+                    else if(operation < 98) map.put(key, key);
+                    else map.remove(key);
+                }
+            }
+            operations.addAndGet(done);
+        });
+        return operations.get() / (durationNanos / 1e9);
+    }
+
+    private static void runConcurrently(int threads, ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    body.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for(Future<?> future : futures) future.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
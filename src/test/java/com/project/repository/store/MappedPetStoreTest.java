@@ -0,0 +1,175 @@
+package com.project.repository.store;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.PetRepository;
+import com.project.repository.persistence.PetJournal;
+import com.project.repository.query.PetQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedPetStoreTest {
+    @TempDir
+    Path directory;
+
+    private MappedPetStore store;
+
+    @BeforeEach
+    void setUp() {
+        // tiny chunks so that records regularly have to skip to the next chunk; compaction only on request
+        store = new MappedPetStore(directory.resolve("pets.mapped"), 4096, 16, Double.POSITIVE_INFINITY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void storesReplacesAndRemovesPets() throws IOException {
+        Map<Long, Pet> expected = new HashMap<>();
+        for(long id = 1; id <= 2_000; id++) {
+            Pet pet = pet(id, Status.values()[(int) (id % 3)]);
+            assertNull(store.compute(id, (key, previous) -> pet));
+            expected.put(id, pet);
+        }
+        for(long id = 1; id <= 2_000; id += 3) {
+            Pet renamed = pet(id, Status.SOLD).withName("renamed" + id);
+            assertEquals(expected.get(id), store.compute(id, (key, previous) -> renamed));
+            expected.put(id, renamed);
+        }
+        for(long id = 2; id <= 2_000; id += 5) {
+            assertEquals(expected.remove(id), store.compute(id, (key, previous) -> null));
+        }
+
+        assertEquals(expected.size(), store.size());
+        for(long id = 1; id <= 2_000; id++) {
+            assertEquals(expected.get(id), store.get(id));
+            assertEquals(expected.containsKey(id) ? expected.get(id).getStatus() : null, store.statusOf(id));
+        }
+        List<Pet> chunked = new ArrayList<>();
+        store.forEachChunk(chunked::addAll);
+        assertEquals(expected.size(), chunked.size());
+        assertTrue(store.garbageBytes() > 0);
+        assertTrue(store.fileBytes() > 4096);
+
+        long fileBytes = store.fileBytes();
+        store.compact();
+        assertTrue(store.fileBytes() < fileBytes);
+        assertEquals(1, countFiles());
+        assertEquals(expected.size(), store.size());
+        for(long id = 1; id <= 2_000; id++) assertEquals(expected.get(id), store.get(id));
+        Pet replaced = pet(1L, Status.PENDING);
+        store.compute(1L, (key, previous) -> replaced);
+        assertEquals(replaced, store.get(1L));
+    }
+
+    @Test
+    void steadyUpdatesAreCompactedAwayWhileReadersRun() throws Exception {
+        MappedPetStore compacting = new MappedPetStore(directory.resolve("compacting.mapped"), 4096, 16, 0.5);
+        Map<Long, Pet> expected = new ConcurrentHashMap<>();
+        for(long id = 1; id <= 100; id++) {
+            Pet pet = pet(id, Status.AVAILABLE);
+            compacting.compute(id, (key, previous) -> pet);
+            expected.put(id, pet);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> readFailure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            SplittableRandom random = new SplittableRandom(1);
+            while(writing.get()) {
+                long id = random.nextLong(1, 101);
+                try {
+                    Pet pet = compacting.get(id);
+                    if(pet == null || pet.getId() != id || !pet.getName().startsWith("pet" + id)) throw new AssertionError("read " + pet + " for id " + id);
+                } catch(Throwable e) {
+                    readFailure.compareAndSet(null, e);
+                }
+            }
+        });
+        reader.start();
+        long maxFileBytes = 0;
+        try {
+            for(int round = 0; round < 2_000; round++) {
+                for(long id = 1; id <= 100; id++) {
+                    Pet pet = pet(id, Status.values()[round % 3]).withName("pet" + id + "-" + round);
+                    compacting.compute(id, (key, previous) -> pet);
+                    expected.put(id, pet);
+                }
+                maxFileBytes = Math.max(maxFileBytes, compacting.fileBytes());
+            }
+        } finally {
+            writing.set(false);
+            reader.join();
+        }
+        assertNull(readFailure.get(), () -> "a reader saw a broken record: " + readFailure.get());
+        assertTrue(compacting.compactions() > 0);
+        // 200k records of ~100 bytes were written; without compaction the file would be ~20MB
+        assertTrue(maxFileBytes < 1 << 20, "file grew to " + maxFileBytes + " bytes");
+        for(long id = 1; id <= 100; id++) assertEquals(expected.get(id), compacting.get(id));
+        compacting.close();
+    }
+
+    @Test
+    void repositoryReindexesFromTheReplacedPetsAndPagesInIdOrder() {
+        PetRepository repository = new PetRepository(store, PetJournal.NONE);
+        Map<Long, Pet> expected = new TreeMap<>();
+        for(long id = 1; id <= 9_000; id++) expected.put(id, repository.save(pet(id, Status.AVAILABLE)));
+        for(long id = 1; id <= 9_000; id += 3) {
+            long petId = id;
+            expected.put(id, repository.modifyById(id, pet -> pet.withName("rex" + petId).toBuilder().category(new Category(9L, "moved")).build(), null));
+        }
+        for(long id = 2; id <= 9_000; id += 5) {
+            repository.deleteById(id);
+            expected.remove(id);
+        }
+
+        PetQuery query = PetQuery.or(List.of(PetQuery.namePrefix("rex"), PetQuery.category(1)));
+        List<Pet> matches = expected.values().stream().filter(query::matches).toList();
+        assertEquals(matches, repository.search(query, Integer.MAX_VALUE));
+        assertEquals(expected.values().stream().filter(pet -> pet.getName().startsWith("rex")).count(), repository.findByName("rex", Integer.MAX_VALUE).size());
+        assertEquals(expected.size(), repository.statusIndexSize(Status.AVAILABLE));
+        assertEquals(expected.values().stream().filter(pet -> pet.getCategory() != null && pet.getCategory().getId() == 9L).count(), repository.findByCategory(9L).size());
+
+        List<Pet> paged = new ArrayList<>();
+        for(List<Pet> page = repository.findPage(Long.MIN_VALUE, 1_000); !page.isEmpty(); page = repository.findPage(page.get(page.size() - 1).getId(), 1_000)) {
+            paged.addAll(page);
+        }
+        assertEquals(new ArrayList<>(expected.values()), paged);
+    }
+
+    private long countFiles() throws IOException {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("pets.mapped")).count();
+        }
+    }
+
+    private static Pet pet(long id, Status status) {
+        return Pet.builder().id(id).name("pet" + id)
+                .category(id % 7 == 0 ? null : new Category(id % 4, "category"))
+                .photoUrls(List.of("https://photos/" + id))
+                .tags(List.of(new Tag(id, "tag" + id), new Tag(null, "ünïcode")))
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.repository.store;
+
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.PetRepository;
+import com.project.repository.persistence.PetJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Heap retained per pet by the two stores on their own, and by a {@link PetRepository} on top of
+ * each, which adds its id order and search indexes. The mapped store takes the pets themselves off
+ * the heap; what the repository keeps per pet stays on it either way.
+ * {@code mvn test -Pbenchmark -Dtest=PetStoreFootprintTest -Dfootprint.sizes=1000000,10000000}
+ */
+@org.junit.jupiter.api.Tag("benchmark")
+class PetStoreFootprintTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void mappedStoreKeepsPetsOffTheHeap() {
+        int[] sizes = Arrays.stream(System.getProperty("footprint.sizes", "1000000").split(",")).mapToInt(Integer::parseInt).toArray();
+        for(int size : sizes) {
+            long mappedStore = measure("mapped store", size, () -> {
+                MappedPetStore store = mappedStore(size);
+                fill(pet -> store.compute(pet.getId(), (key, previous) -> pet), size);
+                System.out.printf("mapped pets=%d file=%dMB index=%dMB%n", size, store.fileBytes() >> 20, store.indexBytes() >> 20);
+                return store;
+            });
+            long heapStore = measure("heap store", size, () -> {
+                HeapPetStore store = new HeapPetStore();
+                fill(pet -> store.compute(pet.getId(), (key, previous) -> pet), size);
+                return store;
+            });
+            long mappedRepository = measure("mapped repository", size, () -> {
+                MappedPetStore store = mappedStore(size);
+                return retained(new PetRepository(store, PetJournal.NONE), store, size);
+            });
+            long heapRepository = measure("heap repository", size, () -> {
+                HeapPetStore store = new HeapPetStore();
+                return retained(new PetRepository(store, PetJournal.NONE), store, size);
+            });
+            System.out.printf("pets=%d repository indexes=%d bytes/pet, pet objects=%d bytes/pet%n",
+                    size, (mappedRepository - mappedStore) / size, (heapStore - mappedStore) / size);
+            if(heapStore < 0 || mappedRepository < 0 || heapRepository < 0) continue;
+            assertTrue(mappedStore * 10 < heapStore, "mapped store should use a fraction of the heap store's heap");
+            // over the mapped store the pet objects move off the heap, and the id order and index keys shrink;
+            // the search postings are the same over both stores
+            assertTrue(mappedRepository + (heapStore - mappedStore) / 2 < heapRepository, "mapped repository should save the pet objects' heap");
+        }
+    }
+
+    private MappedPetStore mappedStore(int size) {
+        return new MappedPetStore(directory.resolve("pets-" + size + ".mapped"), 256L << 20, size);
+    }
+
+    // the close action holds on to the repository, so its indexes count until the measurement is done
+    private static AutoCloseable retained(PetRepository repository, PetStore store, int size) {
+        fill(repository::save, size);
+        return () -> {
+            Reference.reachabilityFence(repository);
+            store.close();
+        };
+    }
+
+    private static void fill(Consumer<Pet> save, int size) {
+        for(long id = 1; id <= size; id++) {
+            save.accept(Pet.builder().id(id).name("pet" + id)
+                    .category(new Category(id % 100, "category" + id % 100))
+                    .photoUrls(List.of("https://photos.example.com/" + id + ".jpg"))
+                    .tags(List.of(new Tag(id % 50, "tag" + id % 50), new Tag(50 + id % 7, "tag" + (50 + id % 7))))
+                    .status(Status.values()[(int) (id % 3)])
+                    .build());
+        }
+    }
+
+    // heap retained by what the supplier builds, measured after full GCs; -1 when it would not fit the heap
+    private static long measure(String name, int size, Supplier<AutoCloseable> supplier) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        AutoCloseable built;
+        try {
+            built = supplier.get();
+        } catch(OutOfMemoryError e) {
+            System.out.printf("%s pets=%d skipped: does not fit -Xmx%dMB%n", name, size, Runtime.getRuntime().maxMemory() >> 20);
+            return -1;
+        }
+        System.gc();
+        long used = Math.max(0, memory.getHeapMemoryUsage().getUsed() - before);
+        try {
+            built.close();
+        } catch(Exception e) {
+            throw new IllegalStateException(e);
+        }
+        System.out.printf("%s pets=%d heap=%dMB (%d bytes/pet)%n", name, size, used >> 20, used / size);
+        return used;
+    }
+}
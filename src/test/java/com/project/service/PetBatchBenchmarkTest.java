@@ -0,0 +1,86 @@
+package com.project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.model.Category;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.repository.PetRepository;
+import com.project.repository.persistence.FilePetJournal;
+import com.project.repository.persistence.PetJournal;
+import com.project.repository.store.HeapPetStore;
+import com.project.service.impl.PetServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Tag("benchmark")
+class PetBatchBenchmarkTest {
+    private static final int PETS = 20_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void batchCreatesBeatTheSingleItemLoop() {
+        // the single-item loop validates like @Valid does on POST /pet
+        ServiceWorkload loop = service -> {
+            for(Pet pet : pets()) {
+                validator.validate(pet);
+                service.save(pet);
+            }
+        };
+        ServiceWorkload batch = service -> {
+            List<Pet> pets = pets();
+            for(int from = 0; from < PETS; from += BATCH_SIZE) service.saveAll(pets.subList(from, from + BATCH_SIZE));
+        };
+        measure(false, "warmup-loop", loop);
+        measure(false, "warmup-batch", batch);
+        for(boolean journaled : new boolean[]{false, true}) {
+            double loopNanos = measure(journaled, "loop", loop);
+            double batchNanos = measure(journaled, "batch", batch);
+            System.out.printf("journaled=%b loop=%.0fns/pet batch=%.0fns/pet speedup=%.1fx%n", journaled, loopNanos, batchNanos, loopNanos / batchNanos);
+            if(journaled) assertTrue(batchNanos < loopNanos, "batched writes should share the journal's group commits");
+        }
+    }
+
+    private double measure(boolean journaled, String name, ServiceWorkload workload) {
+        PetJournal journal = PetJournal.NONE;
+        if(journaled) {
+            journal = new FilePetJournal(directory.resolve(name), Duration.ofMillis(1), Duration.ZERO, true);
+            journal.open(pet -> {}, id -> {}, chunkConsumer -> {});
+        }
+        try {
+            PetService service = new PetServiceImpl(new PetRepository(new HeapPetStore(), journal), validator, new ObjectMapper());
+            long start = System.nanoTime();
+            workload.run(service);
+            return (System.nanoTime() - start) / (double) PETS;
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static List<Pet> pets() {
+        List<Pet> pets = new ArrayList<>(PETS);
+        for(int i = 0; i < PETS; i++) {
+            pets.add(Pet.builder().name("pet" + i).category(new Category(1L, "dogs")).photoUrls(List.of("url")).status(Status.AVAILABLE).build());
+        }
+        return pets;
+    }
+
+    @FunctionalInterface
+    private interface ServiceWorkload {
+        void run(PetService service);
+    }
+}
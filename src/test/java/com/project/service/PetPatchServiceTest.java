@@ -0,0 +1,55 @@
+package com.project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.exception.PreconditionFailedException;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.repository.PetRepository;
+import com.project.service.impl.PetServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.validation.Validation;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PetPatchServiceTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void aPatchBuiltFromAStaleSnapshotIsAppliedAgainToTheNewerOne() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+        PetRepository repository = new PetRepository() {
+            // another write lands right after the first snapshot was read
+            @Override
+            public Optional<Pet> findById(Long id) {
+                Optional<Pet> snapshot = super.findById(id);
+                if(reads.incrementAndGet() == 1) updateById(snapshot.orElseThrow().withStatus(Status.SOLD), id);
+                return snapshot;
+            }
+        };
+        PetService service = new PetServiceImpl(repository, Validation.buildDefaultValidatorFactory().getValidator(), objectMapper);
+        Pet stored = service.save(Pet.builder().name("rex").photoUrls(List.of("a")).status(Status.AVAILABLE).build());
+
+        Pet patched = service.patchById(stored.getId(), objectMapper.readTree("{\"name\":\"max\"}"), null);
+        assertEquals(2, reads.get());
+        assertEquals("max", patched.getName());
+        assertEquals(Status.SOLD, patched.getStatus());
+        assertEquals(patched, repository.findById(stored.getId()).orElseThrow());
+    }
+
+    @Test
+    void aPatchForAnOutdatedVersionIsNotRetried() throws Exception {
+        PetRepository repository = new PetRepository();
+        PetService service = new PetServiceImpl(repository, Validation.buildDefaultValidatorFactory().getValidator(), objectMapper);
+        Pet stored = service.save(Pet.builder().name("rex").photoUrls(List.of("a")).build());
+        service.patchById(stored.getId(), objectMapper.readTree("{\"name\":\"max\"}"), stored.getVersion());
+
+        assertThrows(PreconditionFailedException.class, () -> service.patchById(stored.getId(), objectMapper.readTree("{\"name\":\"bob\"}"), stored.getVersion()));
+        assertEquals("max", repository.findById(stored.getId()).orElseThrow().getName());
+    }
+}
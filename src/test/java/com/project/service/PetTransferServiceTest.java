@@ -0,0 +1,152 @@
+package com.project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.model.Category;
+import com.project.model.ImportSummary;
+import com.project.model.Pet;
+import com.project.model.Status;
+import com.project.model.Tag;
+import com.project.repository.PetRepository;
+import com.project.service.impl.PetServiceImpl;
+import com.project.service.impl.PetTransferServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PetTransferServiceTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void gzippedExportImportsIntoAnIdenticalStore() throws IOException {
+        PetService source = service();
+        List<Pet> pets = new ArrayList<>();
+        for(long id = 1; id <= 2_500; id++) pets.add(pet(id, "pet" + id));
+        source.saveAll(pets);
+
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        try(GZIPOutputStream out = new GZIPOutputStream(exported)) {
+            assertEquals(2_500, new PetTransferServiceImpl(source, objectMapper).exportPets(out));
+        }
+
+        PetService target = service();
+        PetTransferService transfers = new PetTransferServiceImpl(target, objectMapper);
+        ImportSummary summary = transfers.importPets(new GZIPInputStream(new ByteArrayInputStream(exported.toByteArray())));
+        assertNull(summary.getError());
+        assertEquals(2_500, summary.getRead());
+        assertEquals(2_500, summary.getImported());
+        assertEquals(source.findAll().size(), target.findAll().size());
+        for(Pet pet : pets) assertEquals(pet, target.findById(pet.getId()).orElseThrow());
+        assertTrue(transfers.activeTransfers().isEmpty());
+    }
+
+    @Test
+    void reportsRejectedPetsAndStopsAtTheFirstMalformedRecord() {
+        PetService target = service();
+        String ndjson = """
+                {"id":1,"name":"dog","photoUrls":["url"]}
+                {"id":2,"photoUrls":["url"]}
+                {"id":3,"name":"cat","photoUrls":["url"]}
+                {"id":4,"name":
+                {"id":5,"name":"bird","photoUrls":["url"]}
+                """;
+        ImportSummary summary = new PetTransferServiceImpl(target, objectMapper).importPets(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, summary.getRead());
+        assertEquals(2, summary.getImported());
+        assertEquals(1, summary.getFailed());
+        assertEquals(1, summary.getErrors().get(0).getIndex());
+        assertEquals(400, summary.getErrors().get(0).getCode());
+        assertNotNull(summary.getError());
+        assertEquals(2, target.findAll().size());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Tag("benchmark")
+    void importsAStreamFarLargerThanTheHeap() {
+        long streamBytes = Long.getLong("benchmark.importBytes", 5L << 30);
+        int distinctIds = 100_000;
+        PetService target = service();
+        long heapBefore = usedHeapAfterGc();
+        long start = System.nanoTime();
+        ImportSummary summary = new PetTransferServiceImpl(target, objectMapper).importPets(new GeneratedNdjson(streamBytes, distinctIds));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long heapGrowth = usedHeapAfterGc() - heapBefore;
+        System.out.printf("imported %d pets, %d MB in %.1fs (%.0f MB/s, %.0f pets/s), heap growth %d MB, max heap %d MB%n",
+                summary.getImported(), summary.getBytes() >> 20, seconds, (summary.getBytes() >> 20) / seconds, summary.getImported() / seconds,
+                heapGrowth >> 20, Runtime.getRuntime().maxMemory() >> 20);
+        assertNull(summary.getError());
+        assertEquals(0, summary.getFailed());
+        assertTrue(summary.getBytes() >= streamBytes);
+        // the store only ever holds distinctIds pets, so anything beyond them would be the importer buffering the stream
+        assertTrue(heapGrowth < 128L << 20, "import should not hold on to the stream");
+    }
+
+    private PetService service() {
+        return new PetServiceImpl(new PetRepository(), Validation.buildDefaultValidatorFactory().getValidator(), objectMapper);
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static Pet pet(Long id, String name) {
+        return Pet.builder().id(id).name(name)
+                .category(new Category(id % 3, "category" + id % 3))
+                .photoUrls(List.of("url" + id))
+                .tags(List.of(new Tag(id % 7, "tag" + id % 7)))
+                .status(Status.values()[(int) (id % 3)])
+                .build();
+    }
+
+    // produces NDJSON lazily, cycling through a fixed set of ids, so arbitrarily large inputs cost no memory
+    private static final class GeneratedNdjson extends InputStream {
+        private final long totalBytes;
+        private final int distinctIds;
+        private long produced;
+        private long line;
+        private byte[] current = new byte[0];
+        private int position;
+
+        GeneratedNdjson(long totalBytes, int distinctIds) {
+            this.totalBytes = totalBytes;
+            this.distinctIds = distinctIds;
+        }
+
+        @Override
+        public int read() {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if(position == current.length) {
+                if(produced >= totalBytes) return -1;
+                long id = line++ % distinctIds + 1;
+                current = ("{\"id\":" + id + ",\"name\":\"pet" + line + "\",\"category\":{\"id\":" + id % 3 + ",\"name\":\"dogs\"},"
+                        + "\"photoUrls\":[\"https://example.com/" + id + ".png\"],\"tags\":[{\"id\":" + id % 7 + ",\"name\":\"tag\"}],\"status\":\"available\"}\n")
+                        .getBytes(StandardCharsets.US_ASCII);
+                position = 0;
+            }
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            produced += count;
+            return count;
+        }
+    }
+}